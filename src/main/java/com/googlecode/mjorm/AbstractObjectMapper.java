@@ -1,5 +1,13 @@
 package com.googlecode.mjorm;
 
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
+
+import com.googlecode.mjorm.bson.MappedDBObject;
 import com.googlecode.mjorm.convert.ConversionContext;
 import com.googlecode.mjorm.convert.ConversionException;
 import com.googlecode.mjorm.convert.JavaType;
@@ -9,13 +17,17 @@ import com.googlecode.mjorm.convert.converters.CollectionToMongoTypeConverter;
 import com.googlecode.mjorm.convert.converters.BooleanTypeConverter;
 import com.googlecode.mjorm.convert.converters.CharacterTypeConverter;
 import com.googlecode.mjorm.convert.converters.EnumToMongoTypeConverter;
+import com.googlecode.mjorm.convert.converters.LazyRefToMongoTypeConverter;
 import com.googlecode.mjorm.convert.converters.MapToMongoTypeConverter;
 import com.googlecode.mjorm.convert.converters.MongoToArrayTypeConverter;
 import com.googlecode.mjorm.convert.converters.MongoToCollectionTypeConverter;
 import com.googlecode.mjorm.convert.converters.MongoToEnumTypeConverter;
+import com.googlecode.mjorm.convert.converters.MongoToLazyRefTypeConverter;
 import com.googlecode.mjorm.convert.converters.MongoToMapTypeConverter;
+import com.googlecode.mjorm.convert.converters.MongoToPrimitiveArrayTypeConverter;
 import com.googlecode.mjorm.convert.converters.NumberTypeConverter;
 import com.googlecode.mjorm.convert.converters.ObjectIdToStringTypeConverter;
+import com.googlecode.mjorm.convert.converters.PrimitiveArrayToMongoTypeConverter;
 import com.googlecode.mjorm.convert.converters.StringToObjectIdTypeConverter;
 import com.googlecode.mjorm.convert.converters.StringToUUIDConverter;
 import com.googlecode.mjorm.convert.converters.StringTypeConverter;
@@ -27,9 +39,17 @@ import com.mongodb.DBObject;
  * object conversion for the subclass.
  */
 public abstract class AbstractObjectMapper
-	implements ObjectMapper {
+	implements BatchObjectMapper {
+
+	/**
+	 * The default number of objects in a batch mapped by one task.
+	 */
+	public static final int DEFAULT_PARALLEL_BATCH_SIZE = 512;
 
 	private ConversionContext conversionContext = new ConversionContext();
+	private Executor executor;
+	private int parallelBatchSize = DEFAULT_PARALLEL_BATCH_SIZE;
+	private volatile LazyRefLoader lazyRefLoader = new LazyRefLoader(this);
 
 	/**
 	 * Creates the mapper.
@@ -42,27 +62,139 @@ public abstract class AbstractObjectMapper
 		registerTypeConverter(new ObjectIdToStringTypeConverter());
 		registerTypeConverter(new StringToObjectIdTypeConverter());
 		registerTypeConverter(new StringToUUIDConverter());
+		registerTypeConverter(new PrimitiveArrayToMongoTypeConverter());
 		registerTypeConverter(new ArrayToMongoTypeConverter());
 		registerTypeConverter(new CollectionToMongoTypeConverter());
 		registerTypeConverter(new EnumToMongoTypeConverter());
 		registerTypeConverter(new MapToMongoTypeConverter());
+		registerTypeConverter(new MongoToPrimitiveArrayTypeConverter());
 		registerTypeConverter(new MongoToArrayTypeConverter());
 		registerTypeConverter(new MongoToCollectionTypeConverter());
 		registerTypeConverter(new MongoToMapTypeConverter());
 		registerTypeConverter(new MongoToEnumTypeConverter());
+		registerTypeConverter(new LazyRefToMongoTypeConverter());
+		registerTypeConverter(new MongoToLazyRefTypeConverter(this));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public <T> T map(DBObject dbObject, Class<T> objectClass) {
+		return map(dbObject, objectClass, JavaType.fromType(objectClass));
+	}
+
+	/**
+	 * Converts the given {@link DBObject} into a java object.
+	 * @param dbObject the {@link DBObject}
+	 * @param objectClass the {@link Class} of the object to convert to
+	 * @param type the {@link JavaType} of the class
+	 * @return the java object
+	 */
+	private <T> T map(DBObject dbObject, Class<T> objectClass, JavaType type) {
+		if (MappedDBObject.class.isInstance(dbObject)) {
+			Object object = MappedDBObject.class.cast(dbObject).getObject();
+			if (objectClass.isInstance(object)) {
+				return objectClass.cast(object);
+			}
+		}
 		try {
-			return conversionContext.convert(dbObject, JavaType.fromType(objectClass));
+			return conversionContext.convert(dbObject, type);
 		} catch(ConversionException ce) {
 			throw new MjormException(ce);
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * Batches larger than the parallel batch size are split and
+	 * mapped by the {@link Executor} if one is set.  The
+	 * {@link LazyRef}s of the batch are loaded together.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> mapAll(List<? extends DBObject> dbObjects, final Class<T> objectClass) {
+		final List<? extends DBObject> source = randomAccess(dbObjects);
+		final T[] ret = (T[])Array.newInstance(objectClass, source.size());
+		final LazyRefLoader loader = lazyRefLoader;
+		LazyRefLoader.Batch previous = loader.begin();
+		try {
+			final LazyRefLoader.Batch batch = loader.current();
+			ParallelBatch.run(executor, parallelBatchSize, ret.length, new ParallelBatch.Task() {
+				public void run(int from, int to) {
+					LazyRefLoader.Batch joined = loader.join(batch);
+					try {
+						mapRange(source, from, to, objectClass, ret);
+					} finally {
+						loader.end(joined);
+					}
+				}
+			});
+		} finally {
+			loader.end(previous);
+		}
+		return new ArrayList<T>(Arrays.asList(ret));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Batches larger than the parallel batch size are split and
+	 * unmapped by the {@link Executor} if one is set.
+	 */
+	public List<DBObject> unmapAll(List<?> objects) {
+		final List<?> source = randomAccess(objects);
+		final DBObject[] ret = new DBObject[source.size()];
+		ParallelBatch.run(executor, parallelBatchSize, ret.length, new ParallelBatch.Task() {
+			public void run(int from, int to) {
+				unmapRange(source, from, to, ret);
+			}
+		});
+		return new ArrayList<DBObject>(Arrays.asList(ret));
+	}
+
+	/**
+	 * Maps a range of a batch of {@link DBObject}s.  Subclasses may
+	 * override this to do work once per batch rather than once
+	 * per object.
+	 * @param dbObjects the {@link DBObject}s
+	 * @param from the index of the first object, inclusive
+	 * @param to the index of the last object, exclusive
+	 * @param objectClass the {@link Class} of the objects to convert to
+	 * @param ret the array to put the objects in, at the same index
+	 */
+	protected <T> void mapRange(
+		List<? extends DBObject> dbObjects, int from, int to, Class<T> objectClass, T[] ret) {
+		JavaType type = JavaType.fromType(objectClass);
+		for (int i=from; i<to; i++) {
+			ret[i] = map(dbObjects.get(i), objectClass, type);
+		}
+	}
+
+	/**
+	 * Unmaps a range of a batch of objects.  Subclasses may
+	 * override this to do work once per batch rather than once
+	 * per object.
+	 * @param objects the objects
+	 * @param from the index of the first object, inclusive
+	 * @param to the index of the last object, exclusive
+	 * @param ret the array to put the {@link DBObject}s in, at the same index
+	 */
+	protected void unmapRange(List<?> objects, int from, int to, DBObject[] ret) {
+		for (int i=from; i<to; i++) {
+			ret[i] = unmap(objects.get(i));
+		}
+	}
+
+	/**
+	 * Returns the given list, or a copy of it if it isn't
+	 * a {@link RandomAccess} list.
+	 * @param list the list
+	 * @return the list
+	 */
+	private static <E> List<E> randomAccess(List<E> list) {
+		return RandomAccess.class.isInstance(list)
+			? list
+			: new ArrayList<E>(list);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -89,6 +221,54 @@ public abstract class AbstractObjectMapper
 		}
 	}
 
+	/**
+	 * Sets the {@link Executor} that large batches passed to
+	 * {@link #mapAll(List, Class)} and {@link #unmapAll(List)}
+	 * are mapped with.  By default batches are mapped by the
+	 * calling thread.
+	 * @param executor the {@link Executor}, or null
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets the number of objects in a batch that are mapped by a
+	 * single task when there's an {@link Executor}, batches that
+	 * aren't larger than this are mapped by the calling thread.
+	 * @param parallelBatchSize the batch size
+	 */
+	public void setParallelBatchSize(int parallelBatchSize) {
+		if (parallelBatchSize<1) {
+			throw new IllegalArgumentException("parallelBatchSize must be positive");
+		}
+		this.parallelBatchSize = parallelBatchSize;
+	}
+
+	/**
+	 * @return the {@link LazyRefLoader} that loads the {@link LazyRef}s
+	 * created by this mapper
+	 */
+	public LazyRefLoader getLazyRefLoader() {
+		return lazyRefLoader;
+	}
+
+	/**
+	 * Sets the {@link LazyRefLoader} that loads the {@link LazyRef}s
+	 * created by this mapper.
+	 * @param lazyRefLoader the {@link LazyRefLoader}
+	 */
+	public void setLazyRefLoader(LazyRefLoader lazyRefLoader) {
+		this.lazyRefLoader = lazyRefLoader;
+	}
+
+	/**
+	 * @return the {@link ConversionContext}
+	 */
+	protected ConversionContext getConversionContext() {
+		return conversionContext;
+	}
+
 	/**
 	 * Registers the given {@link TypeConverter}.
 	 * @param typeConverter the {@link TypeConverter}
@@ -97,4 +277,14 @@ public abstract class AbstractObjectMapper
 		conversionContext.registerTypeConverter(typeConverter);
 	}
 
+	/**
+	 * Registers the storage class to use for values of the given
+	 * class, see {@link ConversionContext#registerStorageClass(Class, Class)}.
+	 * @param clazz the class
+	 * @param storageClass the storage class
+	 */
+	public void registerStorageClass(Class<?> clazz, Class<?> storageClass) {
+		conversionContext.registerStorageClass(clazz, storageClass);
+	}
+
 }
@@ -0,0 +1,33 @@
+package com.googlecode.mjorm;
+
+import com.mongodb.DBObject;
+
+/**
+ * A {@link MongoDao} that works with batches of objects.
+ */
+public interface BatchMongoDao
+	extends MongoDao {
+
+	/**
+	 * Creates a {@link BulkInsert} that streams objects into
+	 * the given collection in batches.
+	 * @param collection the collection
+	 * @return the {@link BulkInsert}
+	 */
+	BulkInsert createBulkInsert(String collection);
+
+	/**
+	 * Maps and returns objects from the given collection in the
+	 * order of the given ids, the returned array has an element
+	 * for each id that is null if the object wasn't found.
+	 * @param <T> the type
+	 * @param collection the collection
+	 * @param ids the object's ids
+	 * @param clazz the object's class
+	 * @param fields the fields to read, must include the id, or
+	 * null for the default
+	 * @return the objects read
+	 */
+	<T> T[] readObjects(String collection, Object[] ids, Class<T> clazz, DBObject fields);
+
+}
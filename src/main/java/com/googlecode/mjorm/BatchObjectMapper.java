@@ -0,0 +1,37 @@
+package com.googlecode.mjorm;
+
+import java.util.List;
+
+import com.mongodb.DBObject;
+
+/**
+ * An {@link ObjectMapper} that converts batches of objects at once,
+ * see {@link MappingUtil#mapAll(ObjectMapper, List, Class)} for
+ * converting batches with any {@link ObjectMapper}.
+ */
+public interface BatchObjectMapper
+	extends ObjectMapper {
+
+	/**
+	 * Converts the given {@link DBObject}s into java objects of
+	 * the same class, the returned list is in the same order.
+	 * @param <T> the type
+	 * @param dbObjects the {@link DBObject}s
+	 * @param objectClass the {@link Class} of the objects to convert to
+	 * @throws MjormException on error
+	 * @return the java objects
+	 */
+	<T> List<T> mapAll(List<? extends DBObject> dbObjects, Class<T> objectClass)
+		throws MjormException;
+
+	/**
+	 * Converts the given java objects into {@link DBObject}s, the
+	 * returned list is in the same order.
+	 * @param objects the java objects
+	 * @throws MjormException on error
+	 * @return the {@link DBObject}s
+	 */
+	List<DBObject> unmapAll(List<?> objects)
+		throws MjormException;
+
+}
@@ -0,0 +1,295 @@
+package com.googlecode.mjorm;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBEncoder;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBEncoder;
+import com.mongodb.LazyDBCallback;
+import com.mongodb.LazyDBEncoder;
+import com.mongodb.LazyDBObject;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteResult;
+
+/**
+ * Inserts a stream of objects in batches that are bounded by the
+ * number of documents and their encoded size, so that only one
+ * batch is held in memory at a time.  The next batch is unmapped
+ * while the previous one is being inserted.  The objects aren't
+ * mapped again once inserted, generated ids are set on them
+ * when they're unmapped.  Each document is encoded once, when
+ * it's measured, and the batches hold and insert the encoded
+ * documents.
+ */
+public class BulkInsert {
+
+	/**
+	 * The default maximum number of documents in a batch.
+	 */
+	public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+	/**
+	 * The default maximum encoded size of a batch.
+	 */
+	public static final int DEFAULT_MAX_BATCH_BYTES = 16*1024*1024;
+
+	/**
+	 * Creates the daemon threads that insert batches.
+	 */
+	private static final ThreadFactory DAEMON_THREADS = new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+			Thread ret = new Thread(runnable, "mjorm-bulk-insert");
+			ret.setDaemon(true);
+			return ret;
+		}
+	};
+
+	private final DBCollection collection;
+	private final ObjectMapper objectMapper;
+	private WriteConcern concern;
+	private Executor executor;
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	private int maxBatchBytes = DEFAULT_MAX_BATCH_BYTES;
+	private List<BulkInsertResult> results = new ArrayList<BulkInsertResult>();
+
+	/**
+	 * Creates the {@link BulkInsert}.
+	 * @param collection the collection to insert into
+	 * @param objectMapper the {@link ObjectMapper}
+	 */
+	public BulkInsert(DBCollection collection, ObjectMapper objectMapper) {
+		this.collection		= collection;
+		this.objectMapper	= objectMapper;
+	}
+
+	/**
+	 * Inserts the given objects.
+	 * @param objects the objects
+	 * @return the result of each batch
+	 * @see #insert(Iterator)
+	 */
+	public List<BulkInsertResult> insert(Iterable<?> objects) {
+		return insert(objects.iterator());
+	}
+
+	/**
+	 * Inserts the given objects, each batch is inserted once the
+	 * next one would be too large.  If a batch fails the objects
+	 * after it aren't inserted and a {@link MjormException} is
+	 * thrown, the results of the batches inserted before it are
+	 * then available from {@link #getResults()}.
+	 * @param objects the objects
+	 * @return the result of each batch
+	 */
+	public List<BulkInsertResult> insert(Iterator<?> objects) {
+		results = new ArrayList<BulkInsertResult>();
+		ExecutorService ownExecutor = null;
+		Future<BulkInsertResult> inFlight = null;
+		try {
+			DBEncoder encoder = DefaultDBEncoder.FACTORY.create();
+			LazyDBCallback callback = new LazyDBCallback(collection);
+			List<DBObject> batch = new ArrayList<DBObject>();
+			int batchIndex = 0;
+			int bytes = 0;
+			long offset = 0;
+			while (objects.hasNext()) {
+
+				// unmap it, giving it (and the object) the
+				// id that the driver would give it
+				Object object = objects.next();
+				DBObject dbObject = objectMapper.unmap(object);
+				if (dbObject.get("_id")==null) {
+					ObjectId id = ObjectId.get();
+					dbObject.put("_id", id);
+					if (DescriptorObjectMapper.class.isInstance(objectMapper)) {
+						DescriptorObjectMapper.class.cast(objectMapper).setIdentifier(object, id);
+					}
+				}
+
+				// encode it, it's inserted as encoded
+				BasicOutputBuffer buffer = new BasicOutputBuffer();
+				int size = encoder.writeObject(buffer, dbObject);
+				dbObject = new LazyDBObject(buffer.toByteArray(), callback);
+
+				// insert the batch when it's full
+				if (!batch.isEmpty()
+					&& (batch.size()>=maxBatchSize || bytes+size>maxBatchBytes)) {
+					await(inFlight);
+					inFlight = null;
+					if (executor==null && ownExecutor==null) {
+						ownExecutor = Executors.newSingleThreadExecutor(DAEMON_THREADS);
+					}
+					FutureTask<BulkInsertResult> task = new FutureTask<BulkInsertResult>(
+						insertTask(batchIndex++, offset, batch, bytes));
+					(executor!=null ? executor : ownExecutor).execute(task);
+					inFlight = task;
+					offset += batch.size();
+					batch = new ArrayList<DBObject>(batch.size());
+					bytes = 0;
+				}
+				batch.add(dbObject);
+				bytes += size;
+			}
+
+			// insert the last batch on this thread
+			await(inFlight);
+			inFlight = null;
+			if (!batch.isEmpty()) {
+				results.add(insertBatch(batchIndex, offset, batch, bytes));
+			}
+			return results;
+
+		} finally {
+			if (inFlight!=null) {
+				try {
+					await(inFlight);
+				} catch (MjormException e) {
+					// the original error is thrown
+				}
+			}
+			if (ownExecutor!=null) {
+				ownExecutor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Inserts a batch of documents, they're {@link LazyDBObject}s
+	 * that are written as they were encoded.
+	 * @param batch the documents
+	 * @param concern the {@link WriteConcern}
+	 * @return the {@link WriteResult}
+	 */
+	protected WriteResult doInsert(List<DBObject> batch, WriteConcern concern) {
+		return collection.insert(
+			batch.toArray(new DBObject[batch.size()]), concern, new LazyDBEncoder());
+	}
+
+	/**
+	 * Creates the task that inserts the given batch.
+	 * @param batchIndex the index of the batch
+	 * @param offset the index of the first object of the batch
+	 * @param batch the documents
+	 * @param bytes the encoded size of the batch
+	 * @return the task
+	 */
+	private Callable<BulkInsertResult> insertTask(
+		final int batchIndex, final long offset, final List<DBObject> batch, final int bytes) {
+		return new Callable<BulkInsertResult>() {
+			public BulkInsertResult call() {
+				return insertBatch(batchIndex, offset, batch, bytes);
+			}
+		};
+	}
+
+	/**
+	 * Inserts the given batch.
+	 * @param batchIndex the index of the batch
+	 * @param offset the index of the first object of the batch
+	 * @param batch the documents
+	 * @param bytes the encoded size of the batch
+	 * @return the {@link BulkInsertResult}
+	 */
+	private BulkInsertResult insertBatch(int batchIndex, long offset, List<DBObject> batch, int bytes) {
+		try {
+			WriteResult result = doInsert(batch, concern!=null ? concern : collection.getWriteConcern());
+			return new BulkInsertResult(batchIndex, offset, batch.size(), bytes, result);
+		} catch (RuntimeException e) {
+			throw new MjormException(
+				"Error inserting batch "+batchIndex+" of "+batch.size()+" objects at "+offset, e);
+		}
+	}
+
+	/**
+	 * Waits for the given batch to be inserted and adds it's result.
+	 * @param future the batch, or null
+	 */
+	private void await(Future<BulkInsertResult> future) {
+		if (future==null) {
+			return;
+		}
+		try {
+			results.add(future.get());
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new MjormException("Interrupted while inserting", ie);
+		} catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (MjormException.class.isInstance(cause)) {
+				throw MjormException.class.cast(cause);
+			}
+			throw new MjormException(cause);
+		}
+	}
+
+	/**
+	 * @return the results of the batches inserted by the last call
+	 * to {@link #insert(Iterator)}
+	 */
+	public List<BulkInsertResult> getResults() {
+		return results;
+	}
+
+	/**
+	 * @param concern the {@link WriteConcern}, the collection's
+	 * is used by default
+	 * @return this
+	 */
+	public BulkInsert setWriteConcern(WriteConcern concern) {
+		this.concern = concern;
+		return this;
+	}
+
+	/**
+	 * Sets the {@link Executor} that batches are inserted with while
+	 * the next batch is unmapped.  By default a thread is started for
+	 * each call to {@link #insert(Iterator)} that has more than one batch.
+	 * @param executor the {@link Executor}
+	 * @return this
+	 */
+	public BulkInsert setExecutor(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
+	/**
+	 * @param maxBatchSize the maximum number of documents in a batch
+	 * @return this
+	 */
+	public BulkInsert setMaxBatchSize(int maxBatchSize) {
+		if (maxBatchSize<1) {
+			throw new IllegalArgumentException("maxBatchSize must be positive");
+		}
+		this.maxBatchSize = maxBatchSize;
+		return this;
+	}
+
+	/**
+	 * Sets the maximum encoded size of a batch, a document that's
+	 * larger than this is inserted in a batch of it's own.
+	 * @param maxBatchBytes the maximum size in bytes
+	 * @return this
+	 */
+	public BulkInsert setMaxBatchBytes(int maxBatchBytes) {
+		if (maxBatchBytes<1) {
+			throw new IllegalArgumentException("maxBatchBytes must be positive");
+		}
+		this.maxBatchBytes = maxBatchBytes;
+		return this;
+	}
+
+}
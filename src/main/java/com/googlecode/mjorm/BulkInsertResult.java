@@ -0,0 +1,69 @@
+package com.googlecode.mjorm;
+
+import com.mongodb.WriteResult;
+
+/**
+ * The result of inserting one batch of a {@link BulkInsert}.
+ */
+public class BulkInsertResult {
+
+	private final int batchIndex;
+	private final long offset;
+	private final int count;
+	private final int bytes;
+	private final WriteResult writeResult;
+
+	/**
+	 * Creates the {@link BulkInsertResult}.
+	 * @param batchIndex the index of the batch
+	 * @param offset the index of the first object of the batch
+	 * @param count the number of objects in the batch
+	 * @param bytes the encoded size of the batch
+	 * @param writeResult the {@link WriteResult}
+	 */
+	public BulkInsertResult(
+		int batchIndex, long offset, int count, int bytes, WriteResult writeResult) {
+		this.batchIndex		= batchIndex;
+		this.offset			= offset;
+		this.count			= count;
+		this.bytes			= bytes;
+		this.writeResult	= writeResult;
+	}
+
+	/**
+	 * @return the index of the batch
+	 */
+	public int getBatchIndex() {
+		return batchIndex;
+	}
+
+	/**
+	 * @return the index of the first object of the batch
+	 * among all of the objects inserted
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the number of objects in the batch
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return the encoded size of the batch in bytes
+	 */
+	public int getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the {@link WriteResult}
+	 */
+	public WriteResult getWriteResult() {
+		return writeResult;
+	}
+
+}
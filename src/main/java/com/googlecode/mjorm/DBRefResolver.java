@@ -0,0 +1,407 @@
+package com.googlecode.mjorm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.bson.types.ObjectId;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import com.mongodb.DBRefBase;
+
+/**
+ * Resolves references in batches.  Rather than fetching each
+ * {@link DBRef} on it's own, every reference at the same depth of
+ * a document is collected and the references are fetched with one
+ * query per collection, the fetched documents are then put in
+ * place of the references and their references are resolved in
+ * the same way.  References to a document that is already being
+ * resolved higher up are left as they are, so that cycles end, and
+ * each reference is replaced with it's own copy of the document so
+ * that the result is never a cycle of objects.
+ */
+public class DBRefResolver {
+
+	private final DB db;
+	private final String dbName;
+	private Executor executor;
+	private int maxDepth = Integer.MAX_VALUE;
+
+	/**
+	 * Creates the {@link DBRefResolver}.
+	 * @param db the {@link DB} that references are resolved in
+	 */
+	public DBRefResolver(DB db) {
+		this.db		= db;
+		this.dbName	= db!=null ? db.getName() : null;
+	}
+
+	/**
+	 * Resolves the references in the given document, and those of
+	 * the documents they reference, up to the maximum depth.  Only
+	 * references to documents in this resolver's {@link DB} are
+	 * resolved, references to missing documents are replaced
+	 * with null.
+	 * @param obj the document
+	 * @return the document that was passed in
+	 */
+	public DBObject resolve(DBObject obj) {
+		Map<RefKey, DBObject> fetched = new HashMap<RefKey, DBObject>();
+		List<Pending> pending = new ArrayList<Pending>();
+		collect(obj, null, pending);
+
+		for (int depth=0; depth<maxDepth && !pending.isEmpty(); depth++) {
+
+			// group the references that aren't cycles
+			// and haven't been fetched by collection
+			Map<RefKey, Set<Object>> groups = new LinkedHashMap<RefKey, Set<Object>>();
+			for (Pending p : pending) {
+				if (!p.isCycle() && !fetched.containsKey(p.ref)) {
+					addToGroup(groups, p.ref);
+				}
+			}
+			fetched.putAll(fetch(groups));
+
+			// put the documents in place and collect their references
+			List<Pending> next = new ArrayList<Pending>();
+			for (Pending p : pending) {
+				if (p.isCycle()) {
+					continue;
+				}
+				// each place gets it's own copy of the fetched document,
+				// so that references between documents never make a
+				// cycle of objects
+				DBObject value = fetched.get(p.ref);
+				if (value!=null) {
+					value = copy(value);
+					collect(value, new Path(p.ref, p.path), next);
+				}
+				p.container.put(p.key, value);
+			}
+			pending = next;
+		}
+		return obj;
+	}
+
+	/**
+	 * Fetches the documents referenced by the given {@link ObjectRef}s,
+	 * with one query per collection.  References in the fetched
+	 * documents aren't resolved.
+	 * @param refs the references
+	 * @return the documents, by reference, missing documents are left out
+	 */
+	public Map<ObjectRef, DBObject> fetch(Collection<ObjectRef> refs) {
+		Map<RefKey, Set<Object>> groups = new LinkedHashMap<RefKey, Set<Object>>();
+		for (ObjectRef ref : refs) {
+			addToGroup(groups, keyOf(ref));
+		}
+		Map<RefKey, DBObject> fetched = fetch(groups);
+		Map<ObjectRef, DBObject> ret = new HashMap<ObjectRef, DBObject>(fetched.size()*4/3+1);
+		for (ObjectRef ref : refs) {
+			DBObject value = fetched.get(keyOf(ref));
+			if (value!=null) {
+				ret.put(ref, value);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Finds the documents with the given ids, subclasses may
+	 * override this to fetch them some other way.
+	 * @param database the database, or null for this resolver's
+	 * @param collection the collection
+	 * @param ids the ids
+	 * @return the documents
+	 */
+	protected List<DBObject> find(String database, String collection, Collection<Object> ids) {
+		DB target = database==null || database.equals(dbName)
+			? db
+			: db.getSisterDB(database);
+		DBCursor cursor = target.getCollection(collection).find(
+			new BasicDBObject("_id", new BasicDBObject("$in", ids)));
+		List<DBObject> ret = new ArrayList<DBObject>(ids.size());
+		try {
+			while (cursor.hasNext()) {
+				ret.add(cursor.next());
+			}
+		} finally {
+			cursor.close();
+		}
+		return ret;
+	}
+
+	/**
+	 * Fetches the given groups of ids, in parallel if there's
+	 * an {@link Executor}.
+	 * @param groups the ids, by the key of their collection
+	 * @return the documents, by reference
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Map<RefKey, DBObject> fetch(Map<RefKey, Set<Object>> groups) {
+		final List<Entry<RefKey, Set<Object>>> entries
+			= new ArrayList<Entry<RefKey, Set<Object>>>(groups.entrySet());
+		final List<DBObject>[] results = new List[entries.size()];
+		ParallelBatch.run(executor, 1, entries.size(), new ParallelBatch.Task() {
+			public void run(int from, int to) {
+				for (int i=from; i<to; i++) {
+					RefKey group = entries.get(i).getKey();
+					results[i] = find(group.database, group.collection, entries.get(i).getValue());
+				}
+			}
+		});
+		Map<RefKey, DBObject> ret = new HashMap<RefKey, DBObject>();
+		for (int i=0; i<results.length; i++) {
+			RefKey group = entries.get(i).getKey();
+			for (DBObject dbObject : results[i]) {
+				ret.put(new RefKey(group.database, group.collection, dbObject.get("_id")), dbObject);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Copies the given document and the documents and lists in it.
+	 * @param obj the document
+	 * @return the copy
+	 */
+	private static DBObject copy(DBObject obj) {
+		if (BasicDBList.class.isInstance(obj)) {
+			BasicDBList list = BasicDBList.class.cast(obj);
+			BasicDBList ret = new BasicDBList();
+			for (Object value : list) {
+				ret.add(copyValue(value));
+			}
+			return ret;
+		}
+		BasicDBObject ret = new BasicDBObject();
+		for (String key : obj.keySet()) {
+			ret.put(key, copyValue(obj.get(key)));
+		}
+		return ret;
+	}
+
+	/**
+	 * Copies the given value if it's a document or list.
+	 * @param value the value
+	 * @return the copy, or the value
+	 */
+	private static Object copyValue(Object value) {
+		return BasicDBList.class.isInstance(value) || BasicDBObject.class.isInstance(value)
+			? copy(DBObject.class.cast(value))
+			: value;
+	}
+
+	/**
+	 * Collects the references in the given document, without
+	 * looking into the references themselves.
+	 * @param obj the document
+	 * @param path the references that lead to the document
+	 * @param pending the list to add the references to
+	 */
+	private void collect(DBObject obj, Path path, List<Pending> pending) {
+		if (BasicDBList.class.isInstance(obj)) {
+			BasicDBList list = BasicDBList.class.cast(obj);
+			for (int i=0; i<list.size(); i++) {
+				collect(list, String.valueOf(i), list.get(i), path, pending);
+			}
+		} else if (BasicDBObject.class.isInstance(obj)) {
+			for (String key : obj.keySet()) {
+				collect(obj, key, obj.get(key), path, pending);
+			}
+		}
+	}
+
+	/**
+	 * Collects the given value if it's a reference, or the
+	 * references in it if it's a document.
+	 * @param container the document containing the value
+	 * @param key the key of the value
+	 * @param value the value
+	 * @param path the references that lead to the container
+	 * @param pending the list to add the references to
+	 */
+	private void collect(DBObject container, String key, Object value, Path path, List<Pending> pending) {
+		RefKey ref = keyOf(value);
+		if (ref!=null) {
+			pending.add(new Pending(container, key, ref, path));
+		} else if (DBObject.class.isInstance(value)) {
+			collect(DBObject.class.cast(value), path, pending);
+		}
+	}
+
+	/**
+	 * Returns the key of the given value if it's a reference
+	 * to a document in this resolver's database.
+	 * @param value the value
+	 * @return the key, or null
+	 */
+	private RefKey keyOf(Object value) {
+		if (DBRefBase.class.isInstance(value)) {
+			DBRefBase ref = DBRefBase.class.cast(value);
+			if (ref.getDB()==null || ref.getDB().getName().equals(dbName)) {
+				return new RefKey(null, ref.getRef(), ref.getId());
+			}
+		} else if (BasicDBObject.class.isInstance(value)) {
+			BasicDBObject dbObject = BasicDBObject.class.cast(value);
+			if (DBRefUtil.isRef(dbObject)
+				&& (!dbObject.containsField("$db")
+				|| dbObject.get("$db").equals(dbName))) {
+				return new RefKey(null, dbObject.getString("$ref"), dbObject.get("$id"));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the key of the given {@link ObjectRef}, ids that
+	 * are valid {@link ObjectId}s are looked up as such.
+	 * @param ref the {@link ObjectRef}
+	 * @return the key
+	 */
+	private RefKey keyOf(ObjectRef ref) {
+		String database = ref.getDatabase()!=null && !ref.getDatabase().equals(dbName)
+			? ref.getDatabase()
+			: null;
+		Object id = ref.getId()!=null && ObjectId.isValid(ref.getId())
+			? new ObjectId(ref.getId())
+			: ref.getId();
+		return new RefKey(database, ref.getCollection(), id);
+	}
+
+	/**
+	 * Adds the id of the given key to the group of it's collection.
+	 * @param groups the groups
+	 * @param ref the key
+	 */
+	private static void addToGroup(Map<RefKey, Set<Object>> groups, RefKey ref) {
+		RefKey group = new RefKey(ref.database, ref.collection, null);
+		Set<Object> ids = groups.get(group);
+		if (ids==null) {
+			ids = new LinkedHashSet<Object>();
+			groups.put(group, ids);
+		}
+		ids.add(ref.id);
+	}
+
+	/**
+	 * Sets the {@link Executor} that the collections are queried with
+	 * concurrently.  By default they're queried one after another.
+	 * @param executor the {@link Executor}, or null
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Sets the number of levels of references that are resolved,
+	 * references below it are left as they are.  By default there's
+	 * no limit.
+	 * @param maxDepth the maximum depth
+	 */
+	public void setMaxDepth(int maxDepth) {
+		if (maxDepth<0) {
+			throw new IllegalArgumentException("maxDepth can't be negative");
+		}
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Identifies a referenced document, or a collection
+	 * when the id is null.
+	 */
+	private static final class RefKey {
+
+		private final String database;
+		private final String collection;
+		private final Object id;
+
+		private RefKey(String database, String collection, Object id) {
+			this.database	= database;
+			this.collection	= collection;
+			this.id			= id;
+		}
+
+		@Override
+		public int hashCode() {
+			int ret = collection!=null ? collection.hashCode() : 0;
+			ret = ret*31 + (database!=null ? database.hashCode() : 0);
+			return ret*31 + (id!=null ? id.hashCode() : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj==this) {
+				return true;
+			} else if (!RefKey.class.isInstance(obj)) {
+				return false;
+			}
+			RefKey other = RefKey.class.cast(obj);
+			return equal(database, other.database)
+				&& equal(collection, other.collection)
+				&& equal(id, other.id);
+		}
+
+		private static boolean equal(Object a, Object b) {
+			return a==null ? b==null : a.equals(b);
+		}
+	}
+
+	/**
+	 * The references that lead to a document.
+	 */
+	private static final class Path {
+
+		private final RefKey ref;
+		private final Path parent;
+
+		private Path(RefKey ref, Path parent) {
+			this.ref	= ref;
+			this.parent	= parent;
+		}
+	}
+
+	/**
+	 * A reference waiting to be resolved.
+	 */
+	private static final class Pending {
+
+		private final DBObject container;
+		private final String key;
+		private final RefKey ref;
+		private final Path path;
+
+		private Pending(DBObject container, String key, RefKey ref, Path path) {
+			this.container	= container;
+			this.key		= key;
+			this.ref		= ref;
+			this.path		= path;
+		}
+
+		/**
+		 * @return true if the reference is to a document
+		 * that leads to it
+		 */
+		private boolean isCycle() {
+			for (Path p=path; p!=null; p=p.parent) {
+				if (p.ref.equals(ref)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+}
@@ -1,6 +1,5 @@
 package com.googlecode.mjorm;
 
-import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DB;
 import com.mongodb.DBObject;
@@ -19,40 +18,15 @@ public final class DBRefUtil {
 
 	/**
 	 * Inspects the given {@link DBObject} recursively and fetches it's
-	 * DBRefs recursively for the given {@link DB}.
+	 * DBRefs recursively for the given {@link DB}.  The references are
+	 * fetched in batches by a {@link DBRefResolver}, references that
+	 * would form a cycle aren't fetched.
 	 * @param db the {@link DB}
 	 * @param obj the {@link DBObject}
 	 * @return the {@link DBObject} that was passed in
 	 */
 	public static DBObject fetchDBRefs(DB db, DBObject obj) {
-
-		// BasicDBList
-		if (BasicDBList.class.isInstance(obj)) {
-			BasicDBList list = BasicDBList.class.cast(obj);
-			for (int i=0; i<list.size(); i++) {
-				Object value = fetchDBRef(db, list.get(i));
-				if (DBObject.class.isInstance(value)) {
-					fetchDBRefs(db, DBObject.class.cast(value));
-				}
-				list.set(i, value);
-			}
-
-		// BasicDBObject
-		} else if (BasicDBObject.class.isInstance(obj)) {
-			BasicDBObject dbObject = BasicDBObject.class.cast(obj);
-
-			// loop through each key
-			for (String key : obj.keySet()) {
-				Object value = fetchDBRef(db, dbObject.get(key));
-				if (DBObject.class.isInstance(value)) {
-					fetchDBRefs(db, DBObject.class.cast(value));
-				}
-				dbObject.put(key, value);
-			}
-		}
-
-		// return it
-		return obj;
+		return new DBRefResolver(db).resolve(obj);
 	}
 
 	/**
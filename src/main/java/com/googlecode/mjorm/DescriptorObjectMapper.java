@@ -1,7 +1,22 @@
 package com.googlecode.mjorm;
 
+import java.util.List;
+
+import com.googlecode.mjorm.UnmappingPlan.PropertyUnmapping;
+import com.googlecode.mjorm.accessor.PropertyAccessor;
+import com.googlecode.mjorm.accessor.PropertyAccessorFactory;
+import com.googlecode.mjorm.accessor.ReflectionPropertyAccessorFactory;
+import com.googlecode.mjorm.bson.MappedDBObject;
+import com.googlecode.mjorm.bson.MappingDBDecoderFactory;
+import com.googlecode.mjorm.bson.MappingDBEncoder;
+import com.googlecode.mjorm.bson.UnmappedDBObject;
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.TypeConverter;
 import com.googlecode.mjorm.convert.converters.MongoToPojoTypeConverter;
 import com.googlecode.mjorm.convert.converters.PojoToMongoTypeConverter;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBDecoderFactory;
+import com.mongodb.DBObject;
 
 /**
  * Abstract class that uses {@link ObjectDescriptor}s and
@@ -12,6 +27,7 @@ public class DescriptorObjectMapper
 	extends AbstractObjectMapper {
 
 	private ObjectDescriptorRegistry registry;
+	private boolean lazyMapping = false;
 
 	public DescriptorObjectMapper() {
 		registry = new ObjectDescriptorRegistry();
@@ -25,6 +41,278 @@ public class DescriptorObjectMapper
 	 */
 	protected void registerObjectDescriptor(ObjectDescriptor descriptor) {
 		registry.registerDescriptor(descriptor);
+		getConversionContext().clearConverterCache();
+		getConversionContext().clearStorageTypeCache();
+	}
+
+	/**
+	 * Sets the {@link PropertyAccessorFactory} used to create
+	 * the {@link PropertyAccessor}s for mapped properties.  By
+	 * default accessor classes are generated, a
+	 * {@link ReflectionPropertyAccessorFactory} may be set
+	 * to use plain reflection instead.
+	 * @param propertyAccessorFactory the factory
+	 */
+	public void setPropertyAccessorFactory(PropertyAccessorFactory propertyAccessorFactory) {
+		registry.setPropertyAccessorFactory(propertyAccessorFactory);
+	}
+
+	/**
+	 * Registers an {@link Instantiator} to use for creating instances
+	 * of the given mapped class instead of it's constructors.
+	 * @param <T> the type
+	 * @param clazz the class
+	 * @param instantiator the {@link Instantiator}
+	 */
+	public <T> void registerInstantiator(Class<T> clazz, Instantiator<? extends T> instantiator) {
+		registry.registerInstantiator(clazz, instantiator);
+	}
+
+	/**
+	 * Removes the {@link Instantiator} registered for the given class.
+	 * @param clazz the class
+	 */
+	public void removeInstantiator(Class<?> clazz) {
+		registry.removeInstantiator(clazz);
+	}
+
+	/**
+	 * Enables or disables lazy mapping, when enabled {@link #map(DBObject, Class)}
+	 * maps objects the same as {@link #mapLazily(DBObject, Class)}.
+	 * @param lazyMapping true to enable it
+	 */
+	public void setLazyMapping(boolean lazyMapping) {
+		this.lazyMapping = lazyMapping;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T map(DBObject dbObject, Class<T> objectClass) {
+		return lazyMapping
+			? mapLazily(dbObject, objectClass)
+			: super.map(dbObject, objectClass);
+	}
+
+	/**
+	 * Maps the given {@link DBObject} to an object whose properties
+	 * are converted the first time their getters are called, so that
+	 * properties that are never read are never converted.  The object
+	 * is an instance of a generated subclass of the mapped class that
+	 * implements {@link LazyEntity}, see
+	 * {@link MappingPlan#mapLazily(DBObject, com.googlecode.mjorm.convert.ConversionContext)}.
+	 * Objects that can't be mapped lazily are mapped normally.
+	 * @param dbObject the {@link DBObject}
+	 * @param objectClass the class
+	 * @return the object
+	 */
+	public <T> T mapLazily(DBObject dbObject, Class<T> objectClass) {
+		MappingPlan plan = (dbObject!=null && !MappedDBObject.class.isInstance(dbObject))
+			? registry.getMappingPlan(objectClass)
+			: null;
+		if (plan==null || !MongoToPojoTypeConverter.class.isInstance(
+			getConversionContext().getConverter(dbObject.getClass(), objectClass))) {
+			return super.map(dbObject, objectClass);
+		}
+		return objectClass.cast(plan.mapLazily(dbObject, getConversionContext()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The {@link MappingPlan} is resolved once for the range.
+	 */
+	@Override
+	protected <T> void mapRange(
+		List<? extends DBObject> dbObjects, int from, int to, Class<T> objectClass, T[] ret) {
+		MappingPlan plan = registry.getMappingPlan(objectClass);
+		if (plan==null) {
+			super.mapRange(dbObjects, from, to, objectClass, ret);
+			return;
+		}
+		ConversionContext context = getConversionContext();
+		Class<?> sourceClass = null;
+		boolean usePlan = false;
+		for (int i=from; i<to; i++) {
+			DBObject dbObject = dbObjects.get(i);
+
+			// decoded objects and nulls are mapped as usual
+			if (dbObject==null || MappedDBObject.class.isInstance(dbObject)) {
+				ret[i] = super.map(dbObject, objectClass);
+				continue;
+			}
+
+			// only use the plan where the converter would
+			if (dbObject.getClass()!=sourceClass) {
+				sourceClass = dbObject.getClass();
+				usePlan = MongoToPojoTypeConverter.class.isInstance(
+					context.getConverter(sourceClass, objectClass));
+			}
+			if (!usePlan) {
+				ret[i] = super.map(dbObject, objectClass);
+			} else if (lazyMapping) {
+				ret[i] = objectClass.cast(plan.mapLazily(dbObject, context));
+			} else {
+				ret[i] = objectClass.cast(plan.map(dbObject, context));
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The {@link UnmappingPlan} is resolved once for each run
+	 * of objects of the same class.
+	 */
+	@Override
+	protected void unmapRange(List<?> objects, int from, int to, DBObject[] ret) {
+		ConversionContext context = getConversionContext();
+		Class<?> sourceClass = null;
+		UnmappingPlan plan = null;
+		for (int i=from; i<to; i++) {
+			Object object = objects.get(i);
+			if (object==null) {
+				ret[i] = null;
+				continue;
+			}
+			if (object.getClass()!=sourceClass) {
+				sourceClass = object.getClass();
+				plan = PojoToMongoTypeConverter.class.isInstance(
+						context.getConverter(sourceClass, BasicDBObject.class))
+					? registry.getUnmappingPlan(sourceClass)
+					: null;
+			}
+			ret[i] = plan!=null
+				? plan.unmap(object, context)
+				: super.unmap(object);
+		}
+	}
+
+	/**
+	 * Creates a {@link DBDecoderFactory} that decodes documents
+	 * directly into instances of the given class, the documents
+	 * are returned as {@link MappedDBObject}s that this mapper
+	 * maps without any further conversion.
+	 * @param clazz the class
+	 * @return the {@link DBDecoderFactory}
+	 */
+	public DBDecoderFactory createDecoderFactory(Class<?> clazz) {
+		return new MappingDBDecoderFactory(clazz, registry, getConversionContext());
+	}
+
+	/**
+	 * Creates the projection that selects only the fields that are
+	 * read when mapping documents to the given class, including the
+	 * discriminator and the fields of mapped sub classes.
+	 * @param clazz the class
+	 * @return the projection, or null if the class isn't mapped
+	 */
+	public DBObject createProjection(Class<?> clazz) {
+		MappingPlan plan = registry.getMappingPlan(clazz);
+		return plan!=null ? plan.createProjection() : null;
+	}
+
+	/**
+	 * Takes an {@link ObjectSnapshot} of the stored values of the
+	 * given object's properties.
+	 * @param object the object
+	 * @return the {@link ObjectSnapshot}
+	 */
+	public ObjectSnapshot createSnapshot(Object object) {
+		UnmappingPlan plan = registry.getUnmappingPlan(object.getClass());
+		if (plan==null) {
+			throw new MjormException("Unable to find ObjectDescriptor for "+object.getClass());
+		}
+		return new ObjectSnapshot(object, plan, getConversionContext());
+	}
+
+	/**
+	 * Returns the stored value of the identifier property of the
+	 * given object.
+	 * @param object the object
+	 * @return the stored id, or null if it isn't set or the
+	 * object has no identifier property
+	 */
+	public Object getIdentifier(Object object) {
+		UnmappingPlan plan = object!=null
+			? registry.getUnmappingPlan(object.getClass())
+			: null;
+		int index = plan!=null ? plan.getFieldIndex("_id") : -1;
+		if (index<0) {
+			return null;
+		}
+		PropertyUnmapping prop = plan.getProperties()[index];
+		try {
+			Object value = prop.getProperty().get(object);
+			return value!=null
+				? prop.toStorage(value, getConversionContext())
+				: null;
+		} catch (Exception e) {
+			throw new MjormException("Error getting the identifier of "+object.getClass(), e);
+		}
+	}
+
+	/**
+	 * Sets the identifier property of the given object to the
+	 * given stored id if the property isn't set, as when the
+	 * driver generated the id of an inserted document.
+	 * @param object the object
+	 * @param id the stored id
+	 * @return true if the property was set
+	 */
+	public boolean setIdentifier(Object object, Object id) {
+		UnmappingPlan plan = (object!=null && id!=null)
+			? registry.getUnmappingPlan(object.getClass())
+			: null;
+		int index = plan!=null ? plan.getFieldIndex("_id") : -1;
+		if (index<0) {
+			return false;
+		}
+		PropertyDescriptor prop = plan.getProperties()[index].getProperty();
+		try {
+			if (prop.get(object)!=null) {
+				return false;
+			}
+			prop.set(object, getConversionContext().convert(
+				id, prop.getType(), prop.getTypeConversionHints()));
+			return true;
+		} catch (Exception e) {
+			throw new MjormException("Error setting the identifier of "+object.getClass(), e);
+		}
+	}
+
+	/**
+	 * Creates an {@link UnmappedDBObject} for the given object,
+	 * it's fields are unmapped when they're first read.  It
+	 * should be written with a {@link MappingDBEncoder}.
+	 * @param object the object
+	 * @return the {@link UnmappedDBObject}
+	 */
+	public UnmappedDBObject createUnmappedDBObject(Object object) {
+		UnmappingPlan plan = registry.getUnmappingPlan(object.getClass());
+		if (plan==null) {
+			throw new MjormException("Unable to find ObjectDescriptor for "+object.getClass());
+		}
+		return new UnmappedDBObject(object, plan, registry, getConversionContext());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void registerTypeConverter(TypeConverter<?, ?> typeConverter) {
+		super.registerTypeConverter(typeConverter);
+		if (registry!=null) {
+			registry.clearPlans();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void registerStorageClass(Class<?> clazz, Class<?> storageClass) {
+		super.registerStorageClass(clazz, storageClass);
+		registry.clearPlans();
 	}
 
 }
@@ -0,0 +1,198 @@
+package com.googlecode.mjorm;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.mongodb.DBObject;
+
+/**
+ * Remembers the state that objects were read with so that only
+ * the fields that have changed need to be written when they're
+ * updated.  Objects are tracked by identity and are only weakly
+ * referenced, so tracking an object doesn't keep it from being
+ * garbage collected.
+ */
+public class DirtyTracker {
+
+	private final DescriptorObjectMapper objectMapper;
+	private final Map<IdentityKey, ObjectSnapshot> snapshots
+		= new HashMap<IdentityKey, ObjectSnapshot>();
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+	/**
+	 * Creates the {@link DirtyTracker}.
+	 * @param objectMapper the {@link DescriptorObjectMapper}
+	 */
+	public DirtyTracker(DescriptorObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Takes a snapshot of the given object, replacing any
+	 * snapshot already taken of it.
+	 * @param object the object
+	 * @return the object
+	 */
+	public <T> T track(T object) {
+		if (object==null) {
+			return null;
+		}
+		commit(object, objectMapper.createSnapshot(object));
+		return object;
+	}
+
+	/**
+	 * Stops tracking the given object.
+	 * @param object the object
+	 */
+	public void untrack(Object object) {
+		synchronized (snapshots) {
+			expunge();
+			snapshots.remove(new IdentityKey(object, null));
+		}
+	}
+
+	/**
+	 * Returns the snapshot last taken of the given object.
+	 * @param object the object
+	 * @return the snapshot, or null if the object isn't tracked
+	 */
+	public ObjectSnapshot getSnapshot(Object object) {
+		synchronized (snapshots) {
+			expunge();
+			return snapshots.get(new IdentityKey(object, null));
+		}
+	}
+
+	/**
+	 * Indicates whether or not the given object is tracked.
+	 * @param object the object
+	 * @return true if it is
+	 */
+	public boolean isTracked(Object object) {
+		return getSnapshot(object)!=null;
+	}
+
+	/**
+	 * Creates the modifier document that updates the stored document
+	 * of the given object with the fields that have changed since it
+	 * was last tracked.  The returned document is empty if nothing
+	 * changed.  Null is returned if the object isn't tracked or the
+	 * mapping of it's class has changed since it was, in which case
+	 * the whole object should be written.  The tracked state isn't
+	 * changed, see {@link #createUpdate(Object, ObjectSnapshot)}.
+	 * @param object the object
+	 * @return the modifier document, or null
+	 */
+	public DBObject createUpdate(Object object) {
+		return isTracked(object)
+			? createUpdate(object, objectMapper.createSnapshot(object))
+			: null;
+	}
+
+	/**
+	 * Creates the modifier document that updates the stored document
+	 * of the given object to the given snapshot of it, as
+	 * {@link #createUpdate(Object)} does.  Once the update has been
+	 * written the snapshot should be passed to
+	 * {@link #commit(Object, ObjectSnapshot)}, so that a failed
+	 * write can be retried.
+	 * @param object the object
+	 * @param current the snapshot of it's current state
+	 * @return the modifier document, or null
+	 */
+	public DBObject createUpdate(Object object, ObjectSnapshot current) {
+		ObjectSnapshot snapshot = getSnapshot(object);
+		if (snapshot==null || !snapshot.isComparableTo(current)) {
+			return null;
+		}
+		return snapshot.createUpdate(current);
+	}
+
+	/**
+	 * Tracks the given snapshot of the given object, after it's
+	 * state has been written.
+	 * @param object the object
+	 * @param snapshot the snapshot
+	 */
+	public void commit(Object object, ObjectSnapshot snapshot) {
+		synchronized (snapshots) {
+			expunge();
+			snapshots.put(new IdentityKey(object, queue), snapshot);
+		}
+	}
+
+	/**
+	 * Takes a snapshot of the given object without tracking it.
+	 * @param object the object
+	 * @return the {@link ObjectSnapshot}
+	 */
+	public ObjectSnapshot createSnapshot(Object object) {
+		return objectMapper.createSnapshot(object);
+	}
+
+	/**
+	 * Stops tracking all objects.
+	 */
+	public void clear() {
+		synchronized (snapshots) {
+			snapshots.clear();
+			while (queue.poll()!=null);
+		}
+	}
+
+	/**
+	 * @return the number of objects tracked
+	 */
+	public int size() {
+		synchronized (snapshots) {
+			expunge();
+			return snapshots.size();
+		}
+	}
+
+	/**
+	 * Removes the snapshots of objects that have been collected.
+	 */
+	private void expunge() {
+		Reference<?> ref;
+		while ((ref = queue.poll())!=null) {
+			snapshots.remove(ref);
+		}
+	}
+
+	/**
+	 * A weak reference to a tracked object that is equal
+	 * to other references to the same object.
+	 */
+	private static final class IdentityKey
+		extends WeakReference<Object> {
+
+		private final int hash;
+
+		private IdentityKey(Object object, ReferenceQueue<Object> queue) {
+			super(object, queue);
+			this.hash = System.identityHashCode(object);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj==this) {
+				return true;
+			} else if (!IdentityKey.class.isInstance(obj)) {
+				return false;
+			}
+			Object object = get();
+			return object!=null && object==IdentityKey.class.cast(obj).get();
+		}
+	}
+
+}
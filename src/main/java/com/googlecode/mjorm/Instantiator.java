@@ -0,0 +1,21 @@
+package com.googlecode.mjorm;
+
+/**
+ * Creates instances of a class.  An {@code Instantiator} can be
+ * registered with {@link DescriptorObjectMapper#registerInstantiator(Class, Instantiator)}
+ * for mapped classes that can't be created with a constructor,
+ * for instance those created with a factory method or a builder.
+ * @param <T> the type created
+ */
+public interface Instantiator<T> {
+
+	/**
+	 * Creates an instance.
+	 * @param args the arguments, an empty array if there are none
+	 * @return the instance
+	 * @throws Exception on error
+	 */
+	T instantiate(Object[] args)
+		throws Exception;
+
+}
@@ -0,0 +1,16 @@
+package com.googlecode.mjorm;
+
+/**
+ * Implemented by the classes generated for objects that are mapped
+ * lazily, see {@link DescriptorObjectMapper#mapLazily(com.mongodb.DBObject, Class)}.
+ * The properties of a lazily mapped object are converted from the
+ * document the first time their getters are called.
+ */
+public interface LazyEntity {
+
+	/**
+	 * @return the {@link LazyLoader} that loads the properties
+	 */
+	LazyLoader getLazyLoader();
+
+}
@@ -0,0 +1,99 @@
+package com.googlecode.mjorm;
+
+import com.googlecode.mjorm.MappingPlan.PropertyMapping;
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.mongodb.DBObject;
+
+/**
+ * Converts the properties of a {@link LazyEntity} from the document
+ * it was mapped from as they are read.  A property that's set before
+ * it's read is never loaded.  The document is released once all of
+ * the properties are loaded.
+ */
+public final class LazyLoader {
+
+	private final MappingPlan plan;
+	private final ConversionContext context;
+	private final boolean[] loaded;
+	private DBObject source;
+	private int remaining;
+
+	/**
+	 * Creates the loader.
+	 * @param plan the plan of the entity
+	 * @param source the document
+	 * @param context the {@link ConversionContext}
+	 * @param lazy which properties are loaded lazily
+	 */
+	LazyLoader(MappingPlan plan, DBObject source, ConversionContext context, boolean[] lazy) {
+		this.plan		= plan;
+		this.source		= source;
+		this.context	= context;
+		this.loaded		= new boolean[lazy.length];
+		for (int i=0; i<lazy.length; i++) {
+			loaded[i] = !lazy[i];
+			if (lazy[i]) {
+				remaining++;
+			}
+		}
+		if (remaining==0) {
+			this.source = null;
+		}
+	}
+
+	/**
+	 * Loads a property, if it hasn't been already.  Called by
+	 * the getters of the generated class.
+	 * @param target the entity
+	 * @param index the index of the property in the plan
+	 */
+	public synchronized void load(Object target, int index) {
+		if (loaded[index]) {
+			return;
+		}
+		PropertyMapping prop = plan.getProperties()[index];
+		plan.setProperty(target, prop, source.get(prop.getFieldName()), context);
+		loaded(index);
+	}
+
+	/**
+	 * Marks a property as loaded.  Called by the setters of the
+	 * generated class.
+	 * @param index the index of the property in the plan
+	 */
+	public synchronized void loaded(int index) {
+		if (loaded[index]) {
+			return;
+		}
+		loaded[index] = true;
+		if (--remaining==0) {
+			source = null;
+		}
+	}
+
+	/**
+	 * Loads all of the properties that haven't been loaded.
+	 * @param target the entity
+	 */
+	public synchronized void loadAll(Object target) {
+		for (int i=0; i<loaded.length; i++) {
+			load(target, i);
+		}
+	}
+
+	/**
+	 * Indicates whether or not the given property has been loaded.
+	 * @param propertyName the name of the property
+	 * @return true if it has
+	 */
+	public synchronized boolean isLoaded(String propertyName) {
+		PropertyMapping[] props = plan.getProperties();
+		for (int i=0; i<props.length; i++) {
+			if (props[i].getProperty().getName().equals(propertyName)) {
+				return loaded[i];
+			}
+		}
+		throw new IllegalArgumentException("Unknown property: "+propertyName);
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.googlecode.mjorm;
+
+import com.mongodb.DB;
+
+/**
+ * A reference to another object that's only fetched the first
+ * time it's read.  Properties of this type are stored as references
+ * and mapped back to a {@code LazyRef} of the type given by it's
+ * type parameter.  The referenced document is fetched, from the
+ * {@link DB} the reference was read from, and mapped by the
+ * {@link LazyRefLoader} of the {@link ObjectMapper} when
+ * {@link #get()} is first called.
+ * @param <T> the type of the referenced object
+ */
+public final class LazyRef<T> {
+
+	private final DB db;
+	private final String collection;
+	private final Object id;
+	private final String database;
+	private final Class<T> type;
+	private final LazyRefLoader.Batch batch;
+	private final int batchIndex;
+	private volatile boolean loaded;
+	private T value;
+
+	/**
+	 * Creates a reference to an object that's already loaded,
+	 * for storing.
+	 * @param collection the collection of the object
+	 * @param id the id of the object, as it's stored
+	 * @param value the object
+	 */
+	public LazyRef(String collection, Object id, T value) {
+		this(null, collection, id, null, null, null, 0);
+		set(value);
+	}
+
+	/**
+	 * Creates a reference that's loaded by a {@link LazyRefLoader}.
+	 * @param db the {@link DB} it was read from, or null
+	 * @param collection the collection of the object
+	 * @param id the id of the object, as it's stored
+	 * @param database the database, or null for the {@link DB}'s
+	 * @param type the type of the object
+	 * @param batch the batch it's loaded with
+	 * @param batchIndex the index of the reference in the batch
+	 */
+	LazyRef(DB db, String collection, Object id, String database, Class<T> type,
+		LazyRefLoader.Batch batch, int batchIndex) {
+		this.db			= db;
+		this.collection	= collection;
+		this.id			= id;
+		this.database	= database;
+		this.type		= type;
+		this.batch		= batch;
+		this.batchIndex	= batchIndex;
+	}
+
+	/**
+	 * Returns the referenced object, fetching it first if it
+	 * hasn't been loaded.
+	 * @return the object, or null if it doesn't exist
+	 */
+	public T get() {
+		if (!loaded) {
+			batch.load(this);
+		}
+		return value;
+	}
+
+	/**
+	 * Sets the referenced object and marks it loaded.
+	 * @param value the object
+	 */
+	void set(T value) {
+		this.value	= value;
+		this.loaded	= true;
+	}
+
+	/**
+	 * @return the index of the reference in it's batch
+	 */
+	int getBatchIndex() {
+		return batchIndex;
+	}
+
+	/**
+	 * @return the {@link DB} it was read from, or null
+	 */
+	DB getDB() {
+		return db;
+	}
+
+	/**
+	 * @return true if the referenced object has been loaded
+	 */
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * @return the collection
+	 */
+	public String getCollection() {
+		return collection;
+	}
+
+	/**
+	 * @return the id, as it's stored
+	 */
+	public Object getId() {
+		return id;
+	}
+
+	/**
+	 * @return the database, or null
+	 */
+	public String getDatabase() {
+		return database;
+	}
+
+	/**
+	 * @return the type of the object, or null if it
+	 * wasn't created by a {@link LazyRefLoader}
+	 */
+	public Class<T> getType() {
+		return type;
+	}
+
+}
@@ -0,0 +1,284 @@
+package com.googlecode.mjorm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+
+/**
+ * Loads the {@link LazyRef}s created by an {@link ObjectMapper}.
+ * The references created while a batch of documents is mapped,
+ * see {@link AbstractObjectMapper#mapAll(List, Class)}, are loaded
+ * together when the first of them is read, up to the maximum batch
+ * size, with one query per collection.  References created on their own are loaded
+ * on their own.  Documents are fetched from the {@link DB} that the
+ * reference was read from, that is the {@link DB} of the
+ * {@link MongoDao} that read the referencing document, or from the
+ * {@link DB} of the batch for references stored as documents (those
+ * mapped by a {@link MongoDao} after inserting them for instance).
+ */
+public class LazyRefLoader {
+
+	public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+	private static final ThreadLocal<Batch> CURRENT_BATCH = new ThreadLocal<Batch>();
+
+	private final ObjectMapper objectMapper;
+	private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	/**
+	 * Creates the loader.
+	 * @param objectMapper the {@link ObjectMapper} that fetched
+	 * documents are mapped with
+	 */
+	public LazyRefLoader(ObjectMapper objectMapper) {
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Creates a {@link LazyRef} that's loaded by this loader, with
+	 * the other references of the batch being mapped by the calling
+	 * thread if there is one.
+	 * @param db the {@link DB} the reference was read from, or null
+	 * @param collection the collection of the object
+	 * @param id the id of the object, as it's stored
+	 * @param database the database, or null for the {@link DB}'s
+	 * @param type the type of the object
+	 * @return the {@link LazyRef}
+	 */
+	public <T> LazyRef<T> create(
+		DB db, String collection, Object id, String database, Class<T> type) {
+		Batch batch = CURRENT_BATCH.get();
+		if (batch==null || batch.loader!=this) {
+			batch = new Batch(this, null);
+		}
+		return batch.add(db!=null ? db : batch.db, collection, id, database, type);
+	}
+
+	/**
+	 * Starts a batch on the calling thread, the references created
+	 * until it's ended are loaded together.  Nothing is started if
+	 * a batch of this loader is already running.
+	 * @return the previous batch, to pass to {@link #end(Batch)}
+	 */
+	Batch begin() {
+		return begin(null);
+	}
+
+	/**
+	 * Starts a batch on the calling thread whose references are
+	 * loaded from the given {@link DB} when they weren't read from
+	 * one.  A running batch of this loader is kept if it has the
+	 * same {@link DB}, or if no {@link DB} is given.
+	 * @param db the {@link DB}, or null
+	 * @return the previous batch, to pass to {@link #end(Batch)}
+	 */
+	Batch begin(DB db) {
+		Batch ret = CURRENT_BATCH.get();
+		boolean running = ret!=null && ret.loader==this;
+		if (!running || (db!=null && ret.db!=db)) {
+			CURRENT_BATCH.set(new Batch(this, db!=null || !running ? db : ret.db));
+		}
+		return ret;
+	}
+
+	/**
+	 * Has the calling thread add the references it creates to the
+	 * given batch, for the parts of a batch mapped by other threads.
+	 * @param batch the batch, as returned by {@link #current()}
+	 * @return the previous batch, to pass to {@link #end(Batch)}
+	 */
+	Batch join(Batch batch) {
+		Batch ret = CURRENT_BATCH.get();
+		CURRENT_BATCH.set(batch);
+		return ret;
+	}
+
+	/**
+	 * @return the batch running on the calling thread, or null
+	 */
+	Batch current() {
+		return CURRENT_BATCH.get();
+	}
+
+	/**
+	 * Ends the batch on the calling thread, restoring the previous one.
+	 * @param previous the batch returned by {@link #begin()},
+	 * {@link #begin(DB)} or {@link #join(Batch)}
+	 */
+	void end(Batch previous) {
+		if (previous!=null) {
+			CURRENT_BATCH.set(previous);
+		} else {
+			CURRENT_BATCH.remove();
+		}
+	}
+
+	/**
+	 * Fetches the documents with the given ids, subclasses may
+	 * override this to fetch them some other way.
+	 * @param db the {@link DB} the references were read from
+	 * @param database the database, or null for the {@link DB}'s
+	 * @param collection the collection
+	 * @param ids the ids
+	 * @return the documents
+	 */
+	protected List<DBObject> find(DB db, String database, String collection, Collection<Object> ids) {
+		if (db==null) {
+			throw new MjormException(
+				"Unable to load references to "+collection
+				+", they weren't read from a DB");
+		}
+		return new DBRefResolver(db).find(database, collection, ids);
+	}
+
+	/**
+	 * Fetches and sets the given references, with one
+	 * query per {@link DB} and collection.
+	 * @param refs the references
+	 */
+	private void load(List<LazyRef<?>> refs) {
+
+		// group the ids by collection
+		Map<DB, Map<List<String>, Set<Object>>> groups
+			= new IdentityHashMap<DB, Map<List<String>, Set<Object>>>();
+		for (LazyRef<?> ref : refs) {
+			Map<List<String>, Set<Object>> dbGroups = groups.get(ref.getDB());
+			if (dbGroups==null) {
+				dbGroups = new LinkedHashMap<List<String>, Set<Object>>();
+				groups.put(ref.getDB(), dbGroups);
+			}
+			List<String> group = Arrays.asList(ref.getDatabase(), ref.getCollection());
+			Set<Object> ids = dbGroups.get(group);
+			if (ids==null) {
+				ids = new LinkedHashSet<Object>();
+				dbGroups.put(group, ids);
+			}
+			ids.add(ref.getId());
+		}
+
+		// fetch them
+		Map<List<Object>, DBObject> fetched = new HashMap<List<Object>, DBObject>();
+		for (Entry<DB, Map<List<String>, Set<Object>>> dbGroups : groups.entrySet()) {
+			for (Entry<List<String>, Set<Object>> group : dbGroups.getValue().entrySet()) {
+				String database = group.getKey().get(0);
+				String collection = group.getKey().get(1);
+				for (DBObject dbObject : find(dbGroups.getKey(), database, collection, group.getValue())) {
+					fetched.put(key(dbGroups.getKey(), database, collection, dbObject.get("_id")), dbObject);
+				}
+			}
+		}
+
+		// map them
+		for (LazyRef<?> ref : refs) {
+			set(ref, fetched.get(key(ref.getDB(), ref.getDatabase(), ref.getCollection(), ref.getId())));
+		}
+	}
+
+	/**
+	 * Returns the key of a fetched document.
+	 * @param db the {@link DB}
+	 * @param database the database
+	 * @param collection the collection
+	 * @param id the id
+	 * @return the key
+	 */
+	private static List<Object> key(DB db, String database, String collection, Object id) {
+		return Arrays.<Object>asList(db, database, collection, id);
+	}
+
+	/**
+	 * Maps the given document to the type of the given reference
+	 * and sets it.
+	 * @param ref the {@link LazyRef}
+	 * @param dbObject the document, or null
+	 */
+	private <T> void set(LazyRef<T> ref, DBObject dbObject) {
+		ref.set(dbObject!=null
+			? objectMapper.map(dbObject, ref.getType())
+			: null);
+	}
+
+	/**
+	 * Sets the maximum number of references of a batch
+	 * that are loaded together.
+	 * @param maxBatchSize the maximum batch size
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		if (maxBatchSize<1) {
+			throw new IllegalArgumentException("maxBatchSize must be positive");
+		}
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * The references created while mapping a batch of documents.
+	 * They're split into parts of the maximum batch size in the
+	 * order they're created, reading a reference loads it's part.
+	 * Only the references of the same batch wait for each other.
+	 */
+	static final class Batch {
+
+		private final LazyRefLoader loader;
+		private final DB db;
+		private final int partSize;
+		private final List<LazyRef<?>> refs = new ArrayList<LazyRef<?>>();
+
+		private Batch(LazyRefLoader loader, DB db) {
+			this.loader		= loader;
+			this.db			= db;
+			this.partSize	= loader.maxBatchSize;
+		}
+
+		/**
+		 * Creates a reference in the batch.
+		 * @param db the {@link DB} the reference was read from, or null
+		 * @param collection the collection of the object
+		 * @param id the id of the object
+		 * @param database the database, or null
+		 * @param type the type of the object
+		 * @return the reference
+		 */
+		private synchronized <T> LazyRef<T> add(
+			DB db, String collection, Object id, String database, Class<T> type) {
+			LazyRef<T> ret = new LazyRef<T>(db, collection, id, database, type, this, refs.size());
+			refs.add(ret);
+			return ret;
+		}
+
+		/**
+		 * Loads the part of the batch that the given reference is
+		 * in.  The loaded references are released by the batch.
+		 * @param ref the reference
+		 */
+		synchronized void load(LazyRef<?> ref) {
+			if (ref.isLoaded()) {
+				return;
+			}
+			int from = ref.getBatchIndex()-ref.getBatchIndex()%partSize;
+			int to = Math.min(from+partSize, refs.size());
+			List<LazyRef<?>> part = new ArrayList<LazyRef<?>>(to-from);
+			for (int i=from; i<to; i++) {
+				LazyRef<?> r = refs.get(i);
+				if (r!=null && !r.isLoaded()) {
+					part.add(r);
+				}
+			}
+			loader.load(part);
+			for (int i=from; i<to; i++) {
+				refs.set(i, null);
+			}
+		}
+	}
+
+}
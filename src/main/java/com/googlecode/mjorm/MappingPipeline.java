@@ -0,0 +1,222 @@
+package com.googlecode.mjorm;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+
+/**
+ * Reads documents from a cursor on it's own thread while they're
+ * mapped by an {@link Executor}, so that fetching and mapping overlap.
+ * The documents are read and mapped in batches, the mapped batches
+ * are returned in the order they were read through a bounded queue
+ * that stops the reader when the consumer falls behind.  The
+ * pipeline must be closed if it isn't read to the end.
+ * @param <E> the type of the mapped objects
+ */
+final class MappingPipeline<E>
+	implements Runnable {
+
+	private final Iterator<DBObject> source;
+	private final ObjectMapper objectMapper;
+	private final Class<E> clazz;
+	private final Executor executor;
+	private final int batchSize;
+	private final BlockingQueue<Future<List<E>>> queue;
+	private final Thread reader;
+	private volatile boolean closed;
+
+	private Iterator<E> batch;
+	private boolean finished;
+
+	/**
+	 * Creates the pipeline, it's started with {@link #start()}.
+	 * @param source the documents, a {@link DBCursor} is closed
+	 * once it's been read
+	 * @param objectMapper the {@link ObjectMapper}
+	 * @param clazz the class to map to
+	 * @param executor the {@link Executor} to map with
+	 * @param batchSize the number of documents mapped by one task
+	 * @param capacity the number of batches that are read ahead
+	 */
+	MappingPipeline(
+		Iterator<DBObject> source, ObjectMapper objectMapper, Class<E> clazz,
+		Executor executor, int batchSize, int capacity) {
+		if (batchSize<1 || capacity<1) {
+			throw new IllegalArgumentException("batchSize and capacity must be positive");
+		}
+		this.source			= source;
+		this.objectMapper	= objectMapper;
+		this.clazz			= clazz;
+		this.executor		= executor;
+		this.batchSize		= batchSize;
+		this.queue			= new ArrayBlockingQueue<Future<List<E>>>(capacity);
+		this.reader			= new Thread(this, "mjorm-pipeline-reader");
+		this.reader.setDaemon(true);
+	}
+
+	/**
+	 * Starts reading.
+	 */
+	void start() {
+		reader.start();
+	}
+
+	/**
+	 * Reads the source, run by the reader thread.
+	 */
+	public void run() {
+		try {
+			while (!closed && source.hasNext()) {
+
+				// read a batch
+				final List<DBObject> dbObjects = new ArrayList<DBObject>(batchSize);
+				while (dbObjects.size()<batchSize && source.hasNext()) {
+					dbObjects.add(source.next());
+				}
+
+				// queue it before mapping it so that the order is kept
+				FutureTask<List<E>> task = new FutureTask<List<E>>(new Callable<List<E>>() {
+					public List<E> call() {
+						return MappingUtil.mapAll(objectMapper, dbObjects, clazz);
+					}
+				});
+				queue.put(task);
+				try {
+					executor.execute(task);
+				} catch (RejectedExecutionException ree) {
+					task.run();
+				}
+			}
+
+			// a null batch is the end
+			queue.put(end(null));
+
+		} catch (InterruptedException ie) {
+			// closed
+
+		} catch (Throwable t) {
+			try {
+				queue.put(end(t));
+			} catch (InterruptedException ie) {
+				// closed
+			}
+
+		} finally {
+			if (DBCursor.class.isInstance(source)) {
+				DBCursor.class.cast(source).close();
+			}
+		}
+	}
+
+	/**
+	 * Indicates whether or not there's another object, waits
+	 * for the next batch to be mapped if need be.
+	 * @return true if there is
+	 */
+	boolean hasNext() {
+		while (batch==null || !batch.hasNext()) {
+			if (finished) {
+				return false;
+			}
+			List<E> objects = take();
+			if (objects==null) {
+				finished = true;
+				return false;
+			}
+			batch = objects.iterator();
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the next object.
+	 * @return the object
+	 */
+	E next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return batch.next();
+	}
+
+	/**
+	 * Stops the reader and discards the batches read ahead, the
+	 * cursor is closed by the reader.
+	 */
+	void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		finished = true;
+		batch = null;
+		reader.interrupt();
+		Future<List<E>> future;
+		while ((future = queue.poll())!=null) {
+			future.cancel(false);
+		}
+	}
+
+	/**
+	 * @return true if the pipeline has been closed
+	 */
+	boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Takes the next mapped batch from the queue, closing the
+	 * pipeline if it failed.
+	 * @return the batch, or null at the end
+	 */
+	private List<E> take() {
+		try {
+			return queue.take().get();
+		} catch (InterruptedException ie) {
+			close();
+			Thread.currentThread().interrupt();
+			throw new MjormException("Interrupted while waiting for mapped objects", ie);
+		} catch (ExecutionException ee) {
+			close();
+			Throwable cause = ee.getCause();
+			if (MjormException.class.isInstance(cause)) {
+				throw MjormException.class.cast(cause);
+			}
+			throw new MjormException(cause);
+		}
+	}
+
+	/**
+	 * Creates the completed {@link Future} that ends the queue.
+	 * @param error the error it fails with, or null
+	 * @return the {@link Future}
+	 */
+	private FutureTask<List<E>> end(final Throwable error) {
+		FutureTask<List<E>> ret = new FutureTask<List<E>>(new Callable<List<E>>() {
+			public List<E> call()
+				throws Exception {
+				if (Exception.class.isInstance(error)) {
+					throw Exception.class.cast(error);
+				} else if (error!=null) {
+					throw new MjormException(error);
+				}
+				return null;
+			}
+		});
+		ret.run();
+		return ret;
+	}
+
+}
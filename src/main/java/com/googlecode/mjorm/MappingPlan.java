@@ -0,0 +1,761 @@
+package com.googlecode.mjorm;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Map.Entry;
+
+import com.googlecode.mjorm.accessor.LazyEntityClassFactory;
+import com.googlecode.mjorm.accessor.PropertyAccessor;
+import com.googlecode.mjorm.convert.Conversion;
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.ConversionException;
+import com.googlecode.mjorm.convert.JavaType;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * A precomputed plan for mapping {@link DBObject}s to instances
+ * of a class.  The plan is a flat list of the properties of the
+ * class and it's mapped super classes, each with it's field name,
+ * accessor and conversion, so mapping a document doesn't need
+ * to look any of them up.  Classes with a creator (see
+ * {@link ObjectDescriptor#setCreator(Member, String...)}) are
+ * created by passing the converted values of the creator's
+ * properties to it, the rest of the properties are then set.
+ * Plans are created and cached by the {@link ObjectDescriptorRegistry}.
+ */
+public class MappingPlan {
+
+	private final Class<?> type;
+	private final PropertyMapping[] properties;
+	private final String discriminatorName;
+	private final String[] discriminatorPath;
+	private final Map<Object, MappingPlan> subClassPlans;
+	private final Map<String, PropertyMapping> propertiesByFieldName;
+	private final Creator creator;
+	private final Set<String> projectedFieldNames;
+	private volatile LazyClass lazyClass;
+	private final boolean instantiatorRegistered;
+	private volatile Instantiator<?> instantiator;
+
+	/**
+	 * Creates the plan.
+	 * @param descriptor the descriptor of the class created
+	 * @param descriptors the descriptors whose properties are mapped
+	 * @param discriminatorName the discriminator name, or null
+	 * @param subClassPlans plans for sub classes by discriminator
+	 * @param instantiators the registered {@link Instantiator}s by class
+	 */
+	private MappingPlan(
+		ObjectDescriptor descriptor, List<ObjectDescriptor> descriptors,
+		String discriminatorName, Map<Object, MappingPlan> subClassPlans,
+		Map<Class<?>, Instantiator<?>> instantiators) {
+		this.type			= descriptor.getType();
+		this.instantiator	= instantiators.get(type);
+		this.instantiatorRegistered = instantiator!=null;
+		this.subClassPlans	= subClassPlans;
+		this.discriminatorName = discriminatorName;
+		this.discriminatorPath = discriminatorName!=null
+			? discriminatorName.split("\\.")
+			: null;
+
+		// flatten the properties
+		int count = 0;
+		for (ObjectDescriptor desc : descriptors) {
+			count += desc.getProperties().length;
+		}
+		this.properties = new PropertyMapping[count];
+		this.propertiesByFieldName = new HashMap<String, PropertyMapping>();
+		int i = 0;
+		for (ObjectDescriptor desc : descriptors) {
+			for (PropertyDescriptor prop : desc.getProperties()) {
+				properties[i] = new PropertyMapping(prop, i);
+				if (!propertiesByFieldName.containsKey(properties[i].fieldName)) {
+					propertiesByFieldName.put(properties[i].fieldName, properties[i]);
+				}
+				i++;
+			}
+		}
+
+		// the creator
+		this.creator = descriptor.getCreator()!=null
+			? new Creator(descriptor, properties)
+			: null;
+
+		// the fields read by this plan and it's sub class plans
+		Set<String> names = new LinkedHashSet<String>();
+		names.add("_id");
+		if (discriminatorName!=null) {
+			names.add(discriminatorName);
+		}
+		for (PropertyMapping prop : properties) {
+			names.add(prop.fieldName);
+		}
+		for (MappingPlan subClass : subClassPlans.values()) {
+			names.addAll(subClass.projectedFieldNames);
+		}
+		this.projectedFieldNames = Collections.unmodifiableSet(names);
+	}
+
+	/**
+	 * Creates the plan for a class along with plans for each of
+	 * it's sub classes that are mapped with a discriminator.
+	 * @param descriptors the descriptors of the class hierarchy
+	 * in superclass to subclass order
+	 * @param instantiators the registered {@link Instantiator}s by class
+	 * @return the plan
+	 */
+	static MappingPlan create(
+		List<ObjectDescriptor> descriptors, Map<Class<?>, Instantiator<?>> instantiators) {
+		ObjectDescriptor descriptor = descriptors.get(descriptors.size()-1);
+
+		// a sub class with sub classes of it's own uses
+		// the discriminator of it's closest super class
+		String discriminatorName = null;
+		for (int i=descriptors.size()-1; i>=0 && discriminatorName==null; i--) {
+			discriminatorName = discriminatorName(descriptors.get(i), null);
+			if (!descriptor.hasSubClasses()) {
+				break;
+			}
+		}
+		return create(descriptor, descriptors, discriminatorName, instantiators);
+	}
+
+	/**
+	 * Creates the plan for a class and, recursively, the plans for
+	 * it's sub classes.  The plans of sub classes of sub classes that
+	 * use the same discriminator are added to the dispatch table of
+	 * the class as well so that any class in the chain is found with
+	 * a single lookup.
+	 * @param descriptor the descriptor of the class
+	 * @param descriptors the descriptors whose properties are mapped
+	 * @param discriminatorName the discriminator name, or null
+	 * @param instantiators the registered {@link Instantiator}s by class
+	 * @return the plan
+	 */
+	private static MappingPlan create(
+		ObjectDescriptor descriptor, List<ObjectDescriptor> descriptors, String discriminatorName,
+		Map<Class<?>, Instantiator<?>> instantiators) {
+		if (!descriptor.hasSubClasses()) {
+			return new MappingPlan(descriptor, descriptors, discriminatorName,
+				Collections.<Object, MappingPlan>emptyMap(), instantiators);
+		}
+
+		// the sub class properties come first, followed
+		// by those of the class hierarchy
+		Map<Object, MappingPlan> subClassPlans = new HashMap<Object, MappingPlan>();
+		Map<Object, MappingPlan> nestedPlans = new HashMap<Object, MappingPlan>();
+		for (Entry<Object, ObjectDescriptor> entry : descriptor.getSubClassObjectDescriptors().entrySet()) {
+			ObjectDescriptor subDescriptor = entry.getValue();
+			List<ObjectDescriptor> subDescriptors = new ArrayList<ObjectDescriptor>(descriptors.size()+1);
+			subDescriptors.add(subDescriptor);
+			subDescriptors.addAll(descriptors);
+			String subDiscriminatorName = subDescriptor.hasSubClasses()
+				? discriminatorName(subDescriptor, discriminatorName)
+				: null;
+			MappingPlan subClassPlan = create(
+				subDescriptor, subDescriptors, subDiscriminatorName, instantiators);
+			subClassPlans.put(entry.getKey(), subClassPlan);
+			if (subDiscriminatorName!=null && subDiscriminatorName.equals(discriminatorName)) {
+				nestedPlans.putAll(subClassPlan.subClassPlans);
+			}
+		}
+
+		// direct sub classes win over nested ones
+		for (Entry<Object, MappingPlan> entry : nestedPlans.entrySet()) {
+			if (!subClassPlans.containsKey(entry.getKey())) {
+				subClassPlans.put(entry.getKey(), entry.getValue());
+			}
+		}
+		return new MappingPlan(descriptor, descriptors, discriminatorName, subClassPlans, instantiators);
+	}
+
+	/**
+	 * Returns the discriminator name of the given descriptor, or the
+	 * given inherited name if the descriptor doesn't declare one.
+	 * @param descriptor the descriptor
+	 * @param inherited the inherited name
+	 * @return the name, or null
+	 */
+	private static String discriminatorName(ObjectDescriptor descriptor, String inherited) {
+		String ret = descriptor.getDiscriminatorName();
+		return ret!=null && ret.trim().length()>0 ? ret : inherited;
+	}
+
+	/**
+	 * Maps the given {@link DBObject} to a new object.  If the
+	 * class is mapped with a discriminator the plan for the
+	 * sub class is used.
+	 * @param source the source
+	 * @param context the {@link ConversionContext}
+	 * @return the object
+	 */
+	public Object map(DBObject source, ConversionContext context) {
+		MappingPlan plan = planFor(source);
+
+		// convert everything and create it in one go
+		if (plan.creator!=null) {
+			Object[] values = new Object[plan.properties.length];
+			for (PropertyMapping prop : plan.properties) {
+				values[prop.index] = plan.convertProperty(prop, source.get(prop.fieldName), context);
+			}
+			return plan.instantiate(values);
+		}
+
+		// create the return object
+		Object ret = plan.newInstance();
+
+		// map the properties
+		plan.populate(source, ret, context);
+		return ret;
+	}
+
+	/**
+	 * Maps the given {@link DBObject} to a new object whose
+	 * properties are converted the first time their getters are
+	 * called.  The object is an instance of a generated subclass
+	 * that implements {@link LazyEntity}.  Properties whose getters
+	 * or setters can't be overridden are converted right away, as
+	 * are all of the properties of classes that can't be subclassed
+	 * or that have a creator, in which case the object is mapped
+	 * the same as {@link #map(DBObject, ConversionContext)} would.
+	 * @param source the source
+	 * @param context the {@link ConversionContext}
+	 * @return the object
+	 */
+	public Object mapLazily(DBObject source, ConversionContext context) {
+		MappingPlan plan = planFor(source);
+		LazyClass lazy = plan.getLazyClass();
+		if (lazy==null) {
+			return plan.map(source, context);
+		}
+
+		// create it
+		Object ret;
+		try {
+			ret = lazy.constructor.newInstance(new LazyLoader(plan, source, context, lazy.lazy));
+		} catch (Exception e) {
+			throw new MjormException(
+				"Error creating class: "+plan.type, e);
+		}
+
+		// map the properties that aren't lazy
+		for (PropertyMapping prop : plan.properties) {
+			if (!lazy.lazy[prop.index]) {
+				plan.setProperty(ret, prop, source.get(prop.fieldName), context);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the generated lazy subclass, generating it if needed.
+	 * @return the {@link LazyClass}, or null if there isn't one
+	 */
+	private LazyClass getLazyClass() {
+		LazyClass ret = lazyClass;
+		if (ret==null) {
+			ret = LazyClass.create(this);
+			lazyClass = ret;
+		}
+		return ret!=LazyClass.NONE ? ret : null;
+	}
+
+	/**
+	 * Maps the fields of the given {@link DBObject} onto the
+	 * properties of the given object.
+	 * @param source the source
+	 * @param target the target
+	 * @param context the {@link ConversionContext}
+	 */
+	public void populate(DBObject source, Object target, ConversionContext context) {
+		for (PropertyMapping prop : properties) {
+			setProperty(target, prop, source.get(prop.fieldName), context);
+		}
+	}
+
+	/**
+	 * Converts the given field value and sets it on the given object.
+	 * @param target the object
+	 * @param prop the property
+	 * @param value the field value
+	 * @param context the {@link ConversionContext}
+	 */
+	public void setProperty(Object target, PropertyMapping prop, Object value, ConversionContext context) {
+		set(target, prop, convertProperty(prop, value, context));
+	}
+
+	/**
+	 * Converts the given field value to the type of a property.
+	 * @param prop the property
+	 * @param value the field value
+	 * @param context the {@link ConversionContext}
+	 * @return the converted value
+	 */
+	public Object convertProperty(PropertyMapping prop, Object value, ConversionContext context) {
+		try {
+			return prop.convert(value, context);
+		} catch (Exception e) {
+			throw new MjormException(
+				"Error mapping property "+prop.property.getName()
+				+" of class "+type, e);
+		}
+	}
+
+	/**
+	 * Sets an already converted value on the given object.
+	 * @param target the object
+	 * @param prop the property
+	 * @param value the converted value
+	 */
+	private void set(Object target, PropertyMapping prop, Object value) {
+		try {
+			prop.accessor.set(target, value);
+		} catch (Exception e) {
+			throw new MjormException(
+				"Error mapping property "+prop.property.getName()
+				+" of class "+type, e);
+		}
+	}
+
+	/**
+	 * Creates a new instance with the creator of this plan from
+	 * the given converted property values, and sets the values of
+	 * the properties that aren't passed to the creator.
+	 * @param values the converted values, indexed by property index
+	 * @return the instance
+	 */
+	public Object instantiate(Object[] values) {
+		if (creator==null) {
+			Object ret = newInstance();
+			for (PropertyMapping prop : properties) {
+				set(ret, prop, values[prop.index]);
+			}
+			return ret;
+		}
+		Object ret;
+		try {
+			ret = creator.create(values);
+		} catch (Exception e) {
+			throw new MjormException(
+				"Error creating class: "+type, e);
+		}
+		for (PropertyMapping prop : properties) {
+			if (!creator.passes[prop.index]) {
+				set(ret, prop, values[prop.index]);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Indicates whether or not instances are created by passing
+	 * property values to a creator, in which case they must be
+	 * created with {@link #instantiate(Object[])} rather than
+	 * {@link #newInstance()}.
+	 * @return true if they are
+	 */
+	public boolean hasCreator() {
+		return creator!=null;
+	}
+
+	/**
+	 * Returns the plan that should be used to map the given
+	 * {@link DBObject}, this is either this plan or the
+	 * plan for the sub class indicated by the discriminator.
+	 * Sub classes at any depth that use the same discriminator
+	 * are found with a single lookup, a sub class that uses a
+	 * different discriminator dispatches on it in turn.
+	 * @param source the source
+	 * @return the plan
+	 */
+	public MappingPlan planFor(DBObject source) {
+		MappingPlan plan = this;
+		while (plan.discriminatorPath!=null) {
+			Object discriminator = plan.getDiscriminator(source);
+			if (discriminator==null) {
+				return plan;
+			}
+			MappingPlan subClass = plan.subClassPlans.get(discriminator);
+			if (subClass==null && Modifier.isAbstract(plan.type.getModifiers())) {
+				throw new MjormException(
+					"Sublcass for discriminiator value "+discriminator
+					+" was not found on abstract ObjectDescriptor for "
+					+ plan.type.getName());
+			} else if (subClass==null
+				|| subClass.discriminatorPath==null
+				|| subClass.discriminatorName.equals(plan.discriminatorName)) {
+				return subClass!=null ? subClass : plan;
+			}
+			plan = subClass;
+		}
+		return plan;
+	}
+
+	/**
+	 * Reads the discriminator from the given {@link DBObject}
+	 * by following the pre-split discriminator path.
+	 * @param source the source
+	 * @return the discriminator, or null
+	 */
+	private Object getDiscriminator(DBObject source) {
+		DBObject dbObject = source;
+		for (int i=0; i<discriminatorPath.length-1; i++) {
+			Object value = dbObject.get(discriminatorPath[i]);
+			if (!DBObject.class.isInstance(value)) {
+				throw new IllegalArgumentException(
+					"Property "+discriminatorName+" could not be followed");
+			}
+			dbObject = DBObject.class.cast(value);
+		}
+		return dbObject.get(discriminatorPath[discriminatorPath.length-1]);
+	}
+
+	/**
+	 * Creates a new instance of the class that this plan creates.
+	 * The {@link Instantiator} registered for the class with the
+	 * {@link ObjectDescriptorRegistry} is used if there is one,
+	 * otherwise the constructor is resolved the first time and held
+	 * by the plan, rather than cached globally.
+	 * @return the instance
+	 */
+	public Object newInstance() {
+		try {
+			Instantiator<?> ret = instantiator;
+			if (ret==null) {
+				ret = ReflectionUtil.findInstantiator(type);
+				instantiator = ret;
+			}
+			return ReflectionUtil.instantiate(ret);
+		} catch (Exception e) {
+			throw new MjormException(
+				"Error creating class: "+type, e);
+		}
+	}
+
+	/**
+	 * Indicates whether or not documents can be mapped a field at
+	 * a time as they're read, that is: the class isn't mapped with
+	 * a discriminator and each field maps to a single property.
+	 * @return true if they can
+	 */
+	public boolean canMapFields() {
+		return discriminatorName==null
+			&& propertiesByFieldName.size()==properties.length;
+	}
+
+	/**
+	 * Creates the projection that selects only the fields that this
+	 * plan reads: the id, the discriminator and the fields of the
+	 * properties of the class and all of it's sub classes.  Fields
+	 * nested in a field that is already selected are left out.
+	 * @return the projection
+	 */
+	public DBObject createProjection() {
+		BasicDBObject ret = new BasicDBObject((int)(projectedFieldNames.size()/0.75f)+1);
+		for (String name : projectedFieldNames) {
+			if (!isNestedInProjected(name)) {
+				ret.put(name, 1);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Indicates whether or not a parent of the given field is
+	 * also selected by the projection.
+	 * @param name the dotted field name
+	 * @return true if it is
+	 */
+	private boolean isNestedInProjected(String name) {
+		for (int i=name.indexOf('.'); i>0; i=name.indexOf('.', i+1)) {
+			if (projectedFieldNames.contains(name.substring(0, i))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the names of the fields read by this plan and the
+	 * plans of it's sub classes
+	 */
+	public Set<String> getProjectedFieldNames() {
+		return projectedFieldNames;
+	}
+
+	/**
+	 * Returns the property mapped to the given field.
+	 * @param fieldName the field name
+	 * @return the property, or null if the field isn't mapped
+	 */
+	public PropertyMapping getProperty(String fieldName) {
+		return propertiesByFieldName.get(fieldName);
+	}
+
+	/**
+	 * @return the class that this plan creates
+	 */
+	public Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * @return the properties
+	 */
+	public PropertyMapping[] getProperties() {
+		return properties;
+	}
+
+	/**
+	 * A single mapped property of a {@link MappingPlan}.
+	 */
+	public static final class PropertyMapping {
+
+		private final int index;
+		private final String fieldName;
+		private final PropertyDescriptor property;
+		private final PropertyAccessor accessor;
+		private final Conversion conversion;
+
+		/**
+		 * Creates the mapping for a property.
+		 * @param prop the property
+		 * @param index the index of the property in the plan
+		 */
+		private PropertyMapping(PropertyDescriptor prop, int index) {
+			this.index		= index;
+			this.fieldName	= prop.isIdentifier() ? "_id" : prop.getFieldName();
+			this.property	= prop;
+			this.accessor	= prop.getAccessor();
+
+			this.conversion = new Conversion(prop.getType(), prop.getTypeConversionHints());
+		}
+
+		/**
+		 * Converts a value of the field to the property's type.
+		 * @param value the value
+		 * @param context the {@link ConversionContext}
+		 * @return the converted value
+		 * @throws ConversionException on error
+		 */
+		public Object convert(Object value, ConversionContext context)
+			throws ConversionException {
+			return conversion.convert(value, context);
+		}
+
+		/**
+		 * @return the index of the property in the plan
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return the fieldName
+		 */
+		public String getFieldName() {
+			return fieldName;
+		}
+
+		/**
+		 * @return the type of the property
+		 */
+		public JavaType getType() {
+			return conversion.getTargetType();
+		}
+
+		/**
+		 * @return the property
+		 */
+		public PropertyDescriptor getProperty() {
+			return property;
+		}
+
+		/**
+		 * @return the accessor
+		 */
+		public PropertyAccessor getAccessor() {
+			return accessor;
+		}
+	}
+
+	/**
+	 * The constructor or static factory method of a plan and
+	 * the properties passed to it.
+	 */
+	private static final class Creator {
+
+		private final Constructor<?> constructor;
+		private final Method method;
+		private final int[] propertyIndexes;
+		private final Object[] defaults;
+		private final boolean[] passes;
+
+		/**
+		 * Creates the creator.
+		 * @param descriptor the descriptor declaring it
+		 * @param properties the properties of the plan
+		 */
+		private Creator(ObjectDescriptor descriptor, PropertyMapping[] properties) {
+			Member member = descriptor.getCreator();
+			Class<?>[] paramTypes;
+			if (Constructor.class.isInstance(member)) {
+				constructor = Constructor.class.cast(member);
+				method = null;
+				paramTypes = constructor.getParameterTypes();
+			} else {
+				constructor = null;
+				method = Method.class.cast(member);
+				paramTypes = method.getParameterTypes();
+			}
+			try {
+				AccessibleObject.class.cast(member).setAccessible(true);
+			} catch(SecurityException e) {
+				// called with access checks
+			}
+
+			// find the properties
+			String[] names = descriptor.getCreatorProperties();
+			propertyIndexes = new int[names.length];
+			defaults = new Object[names.length];
+			passes = new boolean[properties.length];
+			for (int i=0; i<names.length; i++) {
+				propertyIndexes[i] = -1;
+				for (PropertyMapping prop : properties) {
+					if (prop.property.getName().equalsIgnoreCase(names[i])) {
+						propertyIndexes[i] = prop.index;
+						break;
+					}
+				}
+				if (propertyIndexes[i]==-1) {
+					throw new MjormException(
+						"Creator property "+names[i]+" not found for "+descriptor.getType());
+				}
+				passes[propertyIndexes[i]] = true;
+				defaults[i] = defaultValue(paramTypes[i]);
+			}
+		}
+
+		/**
+		 * Creates the object.
+		 * @param values the converted values, indexed by property index
+		 * @return the object
+		 * @throws Exception on error
+		 */
+		private Object create(Object[] values)
+			throws Exception {
+			Object[] args = new Object[propertyIndexes.length];
+			for (int i=0; i<args.length; i++) {
+				args[i] = values[propertyIndexes[i]];
+				if (args[i]==null) {
+					args[i] = defaults[i];
+				}
+			}
+			return constructor!=null
+				? constructor.newInstance(args)
+				: method.invoke(null, args);
+		}
+
+		/**
+		 * Returns the value passed for a missing argument of the
+		 * given type, null unless it's primitive.
+		 * @param type the type
+		 * @return the value
+		 */
+		private static Object defaultValue(Class<?> type) {
+			if (!type.isPrimitive()) {
+				return null;
+			} else if (type==boolean.class) {
+				return Boolean.FALSE;
+			} else if (type==char.class) {
+				return Character.valueOf((char)0);
+			} else if (type==byte.class) {
+				return Byte.valueOf((byte)0);
+			} else if (type==short.class) {
+				return Short.valueOf((short)0);
+			} else if (type==int.class) {
+				return Integer.valueOf(0);
+			} else if (type==long.class) {
+				return Long.valueOf(0L);
+			} else if (type==float.class) {
+				return Float.valueOf(0f);
+			}
+			return Double.valueOf(0d);
+		}
+	}
+
+	/**
+	 * The generated lazy subclass of a plan's class.
+	 */
+	private static final class LazyClass {
+
+		private static final LazyClass NONE = new LazyClass(null, null);
+
+		private final Constructor<?> constructor;
+		private final boolean[] lazy;
+
+		private LazyClass(Constructor<?> constructor, boolean[] lazy) {
+			this.constructor	= constructor;
+			this.lazy			= lazy;
+		}
+
+		/**
+		 * Generates the lazy subclass for the given plan.
+		 * @param plan the plan
+		 * @return the {@link LazyClass}, or {@link #NONE}
+		 */
+		private static LazyClass create(MappingPlan plan) {
+			// instances of a lazy subclass can't come from an instantiator
+			if (plan.creator!=null || plan.instantiatorRegistered
+				|| !LazyEntityClassFactory.canSubclass(plan.type)) {
+				return NONE;
+			}
+
+			// figure out which properties can be lazy
+			PropertyMapping[] props = plan.properties;
+			Method[] getters = new Method[props.length];
+			Method[] setters = new Method[props.length];
+			boolean[] lazy = new boolean[props.length];
+			boolean anyLazy = false;
+			for (int i=0; i<props.length; i++) {
+				PropertyDescriptor prop = props[i].property;
+				Method getter = prop.getGetter();
+				Method setter = prop.getSetter();
+				lazy[i] = prop.getField()==null
+					&& getter!=null && LazyEntityClassFactory.canOverride(getter)
+					&& (setter==null || LazyEntityClassFactory.canOverride(setter));
+				if (lazy[i]) {
+					getters[i] = getter;
+					setters[i] = setter;
+					anyLazy = true;
+				}
+			}
+			if (!anyLazy) {
+				return NONE;
+			}
+
+			// generate it
+			Class<?> clazz = LazyEntityClassFactory.createLazyClass(plan.type, getters, setters);
+			if (clazz==null) {
+				return NONE;
+			}
+			try {
+				return new LazyClass(clazz.getConstructor(LazyLoader.class), lazy);
+			} catch(NoSuchMethodException e) {
+				return NONE;
+			}
+		}
+	}
+
+}
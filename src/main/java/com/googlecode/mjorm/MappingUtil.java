@@ -1,5 +1,10 @@
 package com.googlecode.mjorm;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mongodb.DBObject;
+
 /**
  * Various utilities for mapping.
  *
@@ -41,4 +46,44 @@ public class MappingUtil {
 		return parseDiscriminator(value, DiscriminatorType.valueOf(type.toUpperCase()));
 	}
 
+	/**
+	 * Converts the given {@link DBObject}s into java objects with
+	 * the given {@link ObjectMapper}, all at once if it's a
+	 * {@link BatchObjectMapper} or one at a time otherwise.
+	 * @param objectMapper the {@link ObjectMapper}
+	 * @param dbObjects the {@link DBObject}s
+	 * @param objectClass the {@link Class} of the objects to convert to
+	 * @return the java objects, in the same order
+	 */
+	public static <T> List<T> mapAll(
+		ObjectMapper objectMapper, List<? extends DBObject> dbObjects, Class<T> objectClass) {
+		if (BatchObjectMapper.class.isInstance(objectMapper)) {
+			return BatchObjectMapper.class.cast(objectMapper).mapAll(dbObjects, objectClass);
+		}
+		List<T> ret = new ArrayList<T>(dbObjects.size());
+		for (DBObject dbObject : dbObjects) {
+			ret.add(objectMapper.map(dbObject, objectClass));
+		}
+		return ret;
+	}
+
+	/**
+	 * Converts the given java objects into {@link DBObject}s with
+	 * the given {@link ObjectMapper}, all at once if it's a
+	 * {@link BatchObjectMapper} or one at a time otherwise.
+	 * @param objectMapper the {@link ObjectMapper}
+	 * @param objects the java objects
+	 * @return the {@link DBObject}s, in the same order
+	 */
+	public static List<DBObject> unmapAll(ObjectMapper objectMapper, List<?> objects) {
+		if (BatchObjectMapper.class.isInstance(objectMapper)) {
+			return BatchObjectMapper.class.cast(objectMapper).unmapAll(objects);
+		}
+		List<DBObject> ret = new ArrayList<DBObject>(objects.size());
+		for (Object object : objects) {
+			ret.add(objectMapper.unmap(object));
+		}
+		return ret;
+	}
+
 }
@@ -3,9 +3,16 @@ package com.googlecode.mjorm;
 import java.io.ByteArrayInputStream;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
+import com.googlecode.mjorm.bson.MappedDBObject;
+import com.googlecode.mjorm.bson.MappingDBEncoder;
 import com.googlecode.mjorm.mql.MqlException;
 import com.googlecode.mjorm.mql.Statement;
 import com.googlecode.mjorm.mql.StatementImpl;
@@ -25,10 +32,23 @@ import com.mongodb.WriteConcern;
  * Basic implementation of the {@link MongoDao} interface.
  */
 public class MongoDaoImpl
-	implements MongoDao {
+	implements BatchMongoDao {
+
+	/**
+	 * The default number of ids read by one query.
+	 */
+	public static final int DEFAULT_READ_CHUNK_SIZE = 1000;
 
 	private DB db;
 	private ObjectMapper objectMapper;
+	private boolean directDecoding;
+	private boolean directEncoding;
+	private boolean projectMappedFields;
+	private boolean dirtyTracking;
+	private boolean fastInsert;
+	private Executor readExecutor;
+	private int readChunkSize = DEFAULT_READ_CHUNK_SIZE;
+	private volatile DirtyTracker dirtyTracker;
 
 	/**
 	 * Creates the {@link MongoDaoImpl}.
@@ -65,7 +85,15 @@ public class MongoDaoImpl
 	public DaoQuery createQuery() {
 		return new DaoQuery()
 			.setDB(this.db)
-			.setObjectMapper(this.objectMapper);
+			.setObjectMapper(this.objectMapper)
+			.setProjectMappedFields(this.projectMappedFields);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public BulkInsert createBulkInsert(String collection) {
+		return new BulkInsert(getCollection(collection), objectMapper);
 	}
 
 	/**
@@ -78,13 +106,27 @@ public class MongoDaoImpl
 	/**
 	 * {@inheritDoc}
 	 */
-	@SuppressWarnings("unchecked")
 	public <T> T createObject(String collection, T object, WriteConcern concern) {
+		if (canEncode()) {
+			DBObject dbObject = encode(object);
+			try {
+				getCollection(collection).insert(
+					new DBObject[] { dbObject }, concern, MappingDBEncoder.FACTORY.create());
+			} catch (Exception e) {
+				throw new MjormException(e);
+			}
+			setIdentifiers(Collections.singletonList(object), Collections.singletonList(dbObject));
+			return object;
+		}
 		DBObject dbObject;
 		try {
 			dbObject = objectMapper.unmap(object);
 			getCollection(collection).insert(dbObject, concern);
-			return (T)objectMapper.map(dbObject, object.getClass());
+			if (fastInsert) {
+				setIdentifiers(Collections.singletonList(object), Collections.singletonList(dbObject));
+				return object;
+			}
+			return mapAll(Collections.singletonList(dbObject), Collections.singletonList(object)).get(0);
 		} catch (Exception e) {
 			throw new MjormException(e);
 		}
@@ -114,20 +156,30 @@ public class MongoDaoImpl
 	/**
 	 * {@inheritDoc}
 	 */
-	@SuppressWarnings("unchecked")
 	public <T> List<T> createObjects(String collection, Collection<T> objects, WriteConcern conern) {
-		List<DBObject> dbObjects = new ArrayList<DBObject>();
-		try {
-			List<T> ret = new ArrayList<T>();
-			for (T obj : objects) {
-				ret.add(obj);
-				dbObjects.add(objectMapper.unmap(obj));
+		if (canEncode()) {
+			List<T> ret = new ArrayList<T>(objects);
+			DBObject[] dbObjects = new DBObject[ret.size()];
+			for (int i=0; i<dbObjects.length; i++) {
+				dbObjects[i] = encode(ret.get(i));
 			}
-			getCollection(collection).insert(dbObjects, conern);
-			for (int i=0; i<ret.size(); i++) {
-				ret.set(i, (T)objectMapper.map(dbObjects.get(i), ret.get(i).getClass()));
+			try {
+				getCollection(collection).insert(dbObjects, conern, MappingDBEncoder.FACTORY.create());
+			} catch (Exception e) {
+				throw new MjormException(e);
 			}
+			setIdentifiers(ret, Arrays.asList(dbObjects));
 			return ret;
+		}
+		try {
+			List<T> ret = new ArrayList<T>(objects);
+			List<DBObject> dbObjects = MappingUtil.unmapAll(objectMapper, ret);
+			getCollection(collection).insert(dbObjects, conern);
+			if (fastInsert) {
+				setIdentifiers(ret, dbObjects);
+				return ret;
+			}
+			return mapAll(dbObjects, ret);
 		} catch (Exception e) {
 			throw new MjormException(e);
 		}
@@ -138,22 +190,90 @@ public class MongoDaoImpl
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> T[] createObjects(String collection, T[] objects, WriteConcern concern) {
-		DBObject[] dbObjects = new DBObject[objects.length];
-		try {
+		if (canEncode()) {
+			DBObject[] dbObjects = new DBObject[objects.length];
 			for (int i=0; i<objects.length; i++) {
-				dbObjects[i] = objectMapper.unmap(objects[i]);
+				dbObjects[i] = encode(objects[i]);
+			}
+			try {
+				getCollection(collection).insert(dbObjects, concern, MappingDBEncoder.FACTORY.create());
+			} catch (Exception e) {
+				throw new MjormException(e);
 			}
+			setIdentifiers(Arrays.asList(objects), Arrays.asList(dbObjects));
+			T[] ret = (T[])Array.newInstance(objects[0].getClass(), objects.length);
+			System.arraycopy(objects, 0, ret, 0, objects.length);
+			return ret;
+		}
+		try {
+			List<DBObject> dbObjects = MappingUtil.unmapAll(objectMapper, Arrays.asList(objects));
 			getCollection(collection).insert(dbObjects, concern);
 			T[] ret = (T[])Array.newInstance(objects[0].getClass(), objects.length);
-			for (int i=0; i<objects.length; i++) {
-				ret[i] = (T)objectMapper.map(dbObjects[i], objects[i].getClass());
+			if (fastInsert) {
+				setIdentifiers(Arrays.asList(objects), dbObjects);
+				System.arraycopy(objects, 0, ret, 0, objects.length);
+				return ret;
 			}
-			return ret;
+			return mapAll(dbObjects, Arrays.asList(objects)).toArray(ret);
 		} catch (Exception e) {
 			throw new MjormException(e);
 		}
 	}
 
+	/**
+	 * Sets the ids of the given inserted {@link DBObject}s on the
+	 * objects they were unmapped from, where they aren't set.
+	 * @param objects the objects
+	 * @param dbObjects the {@link DBObject}s
+	 */
+	private void setIdentifiers(List<?> objects, List<DBObject> dbObjects) {
+		if (!DescriptorObjectMapper.class.isInstance(objectMapper)) {
+			return;
+		}
+		DescriptorObjectMapper mapper = DescriptorObjectMapper.class.cast(objectMapper);
+		for (int i=0; i<objects.size(); i++) {
+			mapper.setIdentifier(objects.get(i), dbObjects.get(i).get("_id"));
+		}
+	}
+
+	/**
+	 * Maps the given inserted {@link DBObject}s back to objects of
+	 * the classes of the objects they were unmapped from.  Their
+	 * {@link LazyRef}s are stored as documents rather than read
+	 * from a {@link DB}, they're loaded from this dao's {@link DB}.
+	 * @param dbObjects the {@link DBObject}s
+	 * @param objects the objects they were unmapped from
+	 * @return the mapped objects
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> List<T> mapAll(List<DBObject> dbObjects, List<T> objects) {
+		LazyRefLoader loader = AbstractObjectMapper.class.isInstance(objectMapper)
+			? AbstractObjectMapper.class.cast(objectMapper).getLazyRefLoader()
+			: null;
+		LazyRefLoader.Batch previous = loader!=null ? loader.begin(db) : null;
+		try {
+			Class<T> clazz = objects.isEmpty() ? null : (Class<T>)objects.get(0).getClass();
+			for (T object : objects) {
+				if (object.getClass()!=clazz) {
+					clazz = null;
+					break;
+				}
+			}
+			if (clazz!=null) {
+				return MappingUtil.mapAll(objectMapper, dbObjects, clazz);
+			}
+			List<T> ret = new ArrayList<T>(objects.size());
+			for (int i=0; i<objects.size(); i++) {
+				ret.add((T)objectMapper.map(dbObjects.get(i), objects.get(i).getClass()));
+			}
+			return ret;
+		} finally {
+			if (loader!=null) {
+				loader.end(previous);
+			}
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -333,9 +453,9 @@ public class MongoDaoImpl
 	 * {@inheritDoc}
 	 */
 	public <T> T findObject(String collection, DBObject query, Class<T> clazz) {
-		DBObject dbObject = getCollection(collection).findOne(query);
+		DBObject dbObject = findOne(collection, query, clazz);
 		try {
-			return objectMapper.map(dbObject, clazz);
+			return track(objectMapper.map(dbObject, clazz));
 		} catch (Exception e) {
 			throw new MjormException(e);
 		}
@@ -346,8 +466,17 @@ public class MongoDaoImpl
 	 */
 	public <T> ObjectIterator<T> findObjects(
 		String collection, DBObject query, Class<T> clazz) {
-		DBCursor cursor = getCollection(collection).find(query);
-		return new ObjectIterator<T>(cursor, objectMapper, clazz);
+		DBCursor cursor = decode(getCollection(collection).find(query, project(clazz)), clazz);
+		final DirtyTracker tracker = getDirtyTracker();
+		if (tracker==null) {
+			return new ObjectIterator<T>(cursor, objectMapper, clazz);
+		}
+		return new ObjectIterator<T>(cursor, objectMapper, clazz) {
+			@Override
+			protected T mapped(T object) {
+				return tracker.track(object);
+			}
+		};
 	}
 
 	/**
@@ -368,10 +497,10 @@ public class MongoDaoImpl
 	 * {@inheritDoc}
 	 */
 	public <T> T readObject(String collection, Object id, Class<T> clazz) {
-		DBObject dbObject = getCollection(collection)
-			.findOne(new BasicDBObject("_id", objectMapper.unmapValue(id)));
+		DBObject dbObject = findOne(collection,
+			new BasicDBObject("_id", objectMapper.unmapValue(id)), clazz);
 		try {
-			return objectMapper.map(dbObject, clazz);
+			return track(objectMapper.map(dbObject, clazz));
 		} catch (Exception e) {
 			throw new MjormException(e);
 		}
@@ -379,26 +508,134 @@ public class MongoDaoImpl
 
 	/**
 	 * {@inheritDoc}
+	 * The objects are in the order of the given ids, each
+	 * object is returned once.
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> T[] readObjects(String collection, Object[] ids, Class<T> clazz) {
-		DBCursor cursor = getCollection(collection).find(
-			new BasicDBObject("_id", new BasicDBObject("$in", objectMapper.unmapValue(ids))));
-		try {
-			List<T> ret = new ArrayList<T>();
-			while (cursor.hasNext()) {
-				ret.add((T)objectMapper.map(cursor.next(), clazz));
+		return (T[])readObjects(collection, ids, clazz, null, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Large arrays of ids are read in chunks, see
+	 * {@link #setReadChunkSize(int)}.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T[] readObjects(String collection, Object[] ids, Class<T> clazz, DBObject fields) {
+		return (T[])readObjects(collection, ids, clazz, fields, false);
+	}
+
+	/**
+	 * Reads the objects with the given ids into slots in the order of
+	 * the ids, with one query per chunk of distinct ids.
+	 * @param collection the collection
+	 * @param ids the ids
+	 * @param clazz the class
+	 * @param fields the fields, or null for the default
+	 * @param compact whether to leave out the slots of missing
+	 * objects and duplicate ids
+	 * @return the objects
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> Object[] readObjects(
+		String collection, Object[] ids, final Class<T> clazz, DBObject fields, boolean compact) {
+
+		// index the slots by stored id, the slots
+		// of duplicate ids are chained
+		final Map<Object, Integer> slots = new HashMap<Object, Integer>(ids.length*4/3+1);
+		final int[] nextSlots = new int[ids.length];
+		final List<Object> distinctIds = new ArrayList<Object>(ids.length);
+		Object[] storedIds = new Object[ids.length];
+		for (int i=ids.length-1; i>=0; i--) {
+			storedIds[i] = objectMapper.unmapValue(ids[i]);
+			Integer next = slots.put(storedIds[i], i);
+			nextSlots[i] = next!=null ? next.intValue() : -1;
+			if (next==null) {
+				distinctIds.add(storedIds[i]);
 			}
-			return ret.toArray((T[])Array.newInstance(clazz, 0));
+		}
+
+		// read the chunks into the slots
+		final T[] ret = (T[])Array.newInstance(clazz, ids.length);
+		final DBCollection dbCollection = getCollection(collection);
+		final DBObject projection = fields!=null ? fields : project(clazz);
+		final List<T> unslotted = Collections.synchronizedList(new ArrayList<T>());
+		try {
+			ParallelBatch.run(readExecutor, readChunkSize, distinctIds.size(), new ParallelBatch.Task() {
+				public void run(int from, int to) {
+					DBCursor cursor = decode(dbCollection.find(
+						new BasicDBObject("_id", new BasicDBObject("$in", distinctIds.subList(from, to))),
+						projection), clazz);
+					List<DBObject> dbObjects = new ArrayList<DBObject>(to-from);
+					try {
+						while (cursor.hasNext()) {
+							dbObjects.add(cursor.next());
+						}
+					} finally {
+						cursor.close();
+					}
+					List<T> objects = MappingUtil.mapAll(objectMapper, dbObjects, clazz);
+					for (int i=0; i<objects.size(); i++) {
+						T object = track(objects.get(i));
+						Integer slot = slots.get(getStoredId(dbObjects.get(i), object));
+						if (slot==null) {
+							unslotted.add(object);
+						}
+						for (int j=slot!=null ? slot.intValue() : -1; j>=0; j=nextSlots[j]) {
+							ret[j] = object;
+						}
+					}
+				}
+			});
+		} catch (MjormException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new MjormException(e);
 		}
+		if (!compact) {
+			return ret;
+		}
+
+		// leave out missing objects and duplicates, objects whose
+		// id is of a different type than the one given come last
+		List<T> found = new ArrayList<T>(ret.length);
+		for (int i=0; i<ret.length; i++) {
+			if (ret[i]!=null && slots.get(storedIds[i]).intValue()==i) {
+				found.add(ret[i]);
+			}
+		}
+		found.addAll(unslotted);
+		return found.toArray((T[])Array.newInstance(clazz, found.size()));
+	}
+
+	/**
+	 * Returns the stored id of a read document.
+	 * @param dbObject the document
+	 * @param object the object it was mapped to
+	 * @return the id
+	 */
+	private Object getStoredId(DBObject dbObject, Object object) {
+		Object ret = dbObject.get("_id");
+		if (ret==null && MappedDBObject.class.isInstance(dbObject)
+			&& DescriptorObjectMapper.class.isInstance(objectMapper)) {
+			ret = DescriptorObjectMapper.class.cast(objectMapper).getIdentifier(object);
+		}
+		return ret;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public void updateObject(String collection, Object id, Object o, WriteConcern concern) {
+		if (updateDirtyFields(collection, id, o, concern)) {
+			return;
+		} else if (canEncode()) {
+			getCollection(collection).update(
+				new BasicDBObject("_id", objectMapper.unmapValue(id)), encode(o),
+				false, false, concern, MappingDBEncoder.FACTORY.create());
+			return;
+		}
 		DBObject dbObject;
 		try {
 			dbObject = objectMapper.unmap(o);
@@ -413,6 +650,10 @@ public class MongoDaoImpl
 	 * {@inheritDoc}
 	 */
 	public void updateObject(String collection, Object id, Object o) {
+		if (canEncode() || isTracked(o)) {
+			updateObject(collection, id, o, getCollection(collection).getWriteConcern());
+			return;
+		}
 		DBObject dbObject;
 		try {
 			dbObject = objectMapper.unmap(o);
@@ -585,6 +826,144 @@ public class MongoDaoImpl
 		update(collection, query, update, upsert, multi, null, null);
 	}
 
+	/**
+	 * Finds a single document, decoding it directly if
+	 * direct decoding is enabled.
+	 * @param collection the collection
+	 * @param query the query
+	 * @param clazz the class being read
+	 * @return the document, or null if there isn't one
+	 */
+	private DBObject findOne(String collection, DBObject query, Class<?> clazz) {
+		DBObject fields = project(clazz);
+		if (!canDecode()) {
+			return getCollection(collection).findOne(query, fields);
+		}
+		DBCursor cursor = decode(getCollection(collection).find(query, fields).limit(-1), clazz);
+		try {
+			return cursor.hasNext() ? cursor.next() : null;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Installs a decoder on the given cursor that decodes documents
+	 * directly to the given class if direct decoding is enabled.
+	 * @param cursor the cursor
+	 * @param clazz the class being read
+	 * @return the cursor
+	 */
+	private DBCursor decode(DBCursor cursor, Class<?> clazz) {
+		if (canDecode()) {
+			cursor.setDecoderFactory(
+				DescriptorObjectMapper.class.cast(objectMapper).createDecoderFactory(clazz));
+		}
+		return cursor;
+	}
+
+	/**
+	 * Updates only the fields of the given object that have changed
+	 * since it was read if it's tracked.  Nothing is written if
+	 * no fields have changed, the whole object is written if the
+	 * mapping of it's class changed since it was tracked.  The
+	 * state is only tracked once it has been written.
+	 * @param collection the collection
+	 * @param id the id of the object
+	 * @param o the object
+	 * @param concern the {@link WriteConcern}
+	 * @return true if the object was tracked, false if the
+	 * whole object needs to be written
+	 */
+	private boolean updateDirtyFields(String collection, Object id, Object o, WriteConcern concern) {
+		DirtyTracker tracker = getDirtyTracker();
+		if (tracker==null || !tracker.isTracked(o)) {
+			return false;
+		}
+		DBObject update;
+		ObjectSnapshot current;
+		try {
+			current = tracker.createSnapshot(o);
+			update = tracker.createUpdate(o, current);
+			if (update==null) {
+				update = objectMapper.unmap(o);
+			}
+		} catch (Exception e) {
+			throw new MjormException(e);
+		}
+		if (!update.keySet().isEmpty()) {
+			getCollection(collection).update(
+				new BasicDBObject("_id", objectMapper.unmapValue(id)), update, false, false, concern);
+		}
+		tracker.commit(o, current);
+		return true;
+	}
+
+	/**
+	 * Tracks the given object if dirty tracking is enabled.
+	 * @param object the object
+	 * @return the object
+	 */
+	private <T> T track(T object) {
+		DirtyTracker tracker = getDirtyTracker();
+		return tracker!=null ? tracker.track(object) : object;
+	}
+
+	/**
+	 * Indicates whether or not the given object is tracked.
+	 * @param object the object
+	 * @return true if it is
+	 */
+	private boolean isTracked(Object object) {
+		DirtyTracker tracker = getDirtyTracker();
+		return tracker!=null && tracker.isTracked(object);
+	}
+
+	/**
+	 * Creates the projection of the fields mapped to the given
+	 * class if projecting mapped fields is enabled.
+	 * @param clazz the class being read
+	 * @return the projection, or null to read all fields
+	 */
+	private DBObject project(Class<?> clazz) {
+		return projectMappedFields
+			&& DescriptorObjectMapper.class.isInstance(objectMapper)
+				? DescriptorObjectMapper.class.cast(objectMapper).createProjection(clazz)
+				: null;
+	}
+
+	/**
+	 * Indicates whether or not documents can be decoded directly.
+	 * @return true if they can
+	 */
+	private boolean canDecode() {
+		return directDecoding
+			&& DescriptorObjectMapper.class.isInstance(objectMapper);
+	}
+
+	/**
+	 * Creates the {@link DBObject} for writing the given object
+	 * with a {@link MappingDBEncoder}.
+	 * @param object the object
+	 * @return the {@link DBObject}
+	 */
+	private DBObject encode(Object object) {
+		try {
+			return DescriptorObjectMapper.class.cast(objectMapper).createUnmappedDBObject(object);
+		} catch (Exception e) {
+			throw new MjormException(e);
+		}
+	}
+
+	/**
+	 * Indicates whether or not objects can be encoded directly.
+	 * @return true if they can
+	 */
+	private boolean canEncode() {
+		return directEncoding
+			&& DescriptorObjectMapper.class.isInstance(objectMapper);
+	}
+
 	/**
 	 * Quick and easy check for primitives.
 	 * @param clazz the class
@@ -616,6 +995,137 @@ public class MongoDaoImpl
 	 */
 	public void setObjectMapper(ObjectMapper objectMapper) {
 		this.objectMapper = objectMapper;
+		this.dirtyTracker = null;
+		updateDirtyTracker();
+	}
+
+	/**
+	 * Enables or disables direct decoding.  When enabled, and the
+	 * {@link ObjectMapper} is a {@link DescriptorObjectMapper},
+	 * the objects read by {@link #findObject(String, DBObject, Class)},
+	 * {@link #findObjects(String, DBObject, Class)},
+	 * {@link #readObject(String, Object, Class)} and
+	 * {@link #readObjects(String, Object[], Class)} are decoded
+	 * straight from BSON without creating a {@link DBObject} first.
+	 * @param directDecoding the directDecoding to set
+	 */
+	public void setDirectDecoding(boolean directDecoding) {
+		this.directDecoding = directDecoding;
+	}
+
+	/**
+	 * Enables or disables direct encoding.  When enabled, and the
+	 * {@link ObjectMapper} is a {@link DescriptorObjectMapper},
+	 * the objects written by the {@code createObject},
+	 * {@code createObjects} and {@code updateObject} methods are
+	 * encoded straight to BSON by a {@link MappingDBEncoder}
+	 * without creating a {@link BasicDBObject} first.  The objects
+	 * returned by {@code createObject} and {@code createObjects}
+	 * are then the objects passed in (with any generated values
+	 * set on them) rather than copies mapped from the stored
+	 * documents.
+	 * @param directEncoding the directEncoding to set
+	 */
+	public void setDirectEncoding(boolean directEncoding) {
+		this.directEncoding = directEncoding;
+	}
+
+	/**
+	 * Enables or disables projecting mapped fields.  When enabled, and
+	 * the {@link ObjectMapper} is a {@link DescriptorObjectMapper},
+	 * {@link #findObject(String, DBObject, Class)},
+	 * {@link #findObjects(String, DBObject, Class)},
+	 * {@link #readObject(String, Object, Class)},
+	 * {@link #readObjects(String, Object[], Class)} and the queries
+	 * created by {@link #createQuery()} only fetch the fields that
+	 * are mapped to the class being read (and it's sub classes)
+	 * rather than whole documents.
+	 * @param projectMappedFields the projectMappedFields to set
+	 */
+	public void setProjectMappedFields(boolean projectMappedFields) {
+		this.projectMappedFields = projectMappedFields;
+	}
+
+	/**
+	 * Enables or disables dirty tracking.  When enabled, and the
+	 * {@link ObjectMapper} is a {@link DescriptorObjectMapper}, the
+	 * state of the objects read by
+	 * {@link #findObject(String, DBObject, Class)},
+	 * {@link #findObjects(String, DBObject, Class)},
+	 * {@link #readObject(String, Object, Class)} and
+	 * {@link #readObjects(String, Object[], Class)} is remembered
+	 * and {@code updateObject} only sets, unsets or pushes to the
+	 * fields that have changed since rather than replacing the
+	 * whole document.  Other objects may be tracked with
+	 * {@link #getDirtyTracker()}.
+	 * @param dirtyTracking the dirtyTracking to set
+	 */
+	public void setDirtyTracking(boolean dirtyTracking) {
+		this.dirtyTracking = dirtyTracking;
+		updateDirtyTracker();
+	}
+
+	/**
+	 * Enables or disables fast inserts.  When enabled
+	 * {@code createObject} and {@code createObjects} return the
+	 * given instances rather than mapping the inserted documents
+	 * to new ones, ids generated by the driver are set on them
+	 * if the {@link ObjectMapper} is a {@link DescriptorObjectMapper}.
+	 * @param fastInsert the fastInsert to set
+	 */
+	public void setFastInsert(boolean fastInsert) {
+		this.fastInsert = fastInsert;
+	}
+
+	/**
+	 * Sets the number of distinct ids that
+	 * {@link #readObjects(String, Object[], Class, DBObject)} reads
+	 * with one query.
+	 * @param readChunkSize the chunk size
+	 */
+	public void setReadChunkSize(int readChunkSize) {
+		if (readChunkSize<1) {
+			throw new IllegalArgumentException("readChunkSize must be positive");
+		}
+		this.readChunkSize = readChunkSize;
+	}
+
+	/**
+	 * Sets the {@link Executor} that the chunks read by
+	 * {@link #readObjects(String, Object[], Class, DBObject)} are
+	 * queried with concurrently.  By default they're queried
+	 * one after another by the calling thread.  It may be the
+	 * same bounded {@link Executor} that the {@link ObjectMapper}
+	 * maps batches with, the thread that waits for a batch runs
+	 * the parts of it that haven't been started rather than
+	 * waiting for them.
+	 * @param readExecutor the {@link Executor}, or null
+	 */
+	public void setReadExecutor(Executor readExecutor) {
+		this.readExecutor = readExecutor;
+	}
+
+	/**
+	 * Returns the {@link DirtyTracker} used when dirty tracking
+	 * is enabled.
+	 * @return the {@link DirtyTracker}, or null if dirty
+	 * tracking isn't enabled
+	 */
+	public DirtyTracker getDirtyTracker() {
+		return dirtyTracker;
+	}
+
+	/**
+	 * Creates or discards the {@link DirtyTracker} when dirty tracking
+	 * or the {@link ObjectMapper} changes, rather than when it's first
+	 * used, so that reading it doesn't need a lock.
+	 */
+	private void updateDirtyTracker() {
+		if (!dirtyTracking || !DescriptorObjectMapper.class.isInstance(objectMapper)) {
+			dirtyTracker = null;
+		} else if (dirtyTracker==null) {
+			dirtyTracker = new DirtyTracker(DescriptorObjectMapper.class.cast(objectMapper));
+		}
 	}
 
 }
@@ -1,5 +1,10 @@
 package com.googlecode.mjorm;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,6 +23,9 @@ public class ObjectDescriptor {
 	private Map<Object, ObjectDescriptor> subClassObjectDescriptors
 		= new HashMap<Object, ObjectDescriptor>();
 
+	private Member creator;
+	private String[] creatorProperties;
+
 	/**
 	 * @return the type
 	 */
@@ -60,6 +68,60 @@ public class ObjectDescriptor {
 		this.discriminatorType = discriminatorType;
 	}
 
+	/**
+	 * Sets the constructor or static factory method used to create
+	 * instances of the class.  The values of the named properties are
+	 * passed to it, in order, rather than set after the object is
+	 * created.  The properties may be declared by this descriptor or
+	 * by the descriptor of a super class.  The creator must create
+	 * instances of the descriptor's type, if it's been set.
+	 * @param creator a {@link Constructor} or static {@link Method}
+	 * @param propertyNames the names of the properties passed
+	 * @throws MjormException if the creator can't be used
+	 */
+	public void setCreator(Member creator, String... propertyNames) {
+		Class<?>[] paramTypes;
+		Class<?> createdType;
+		if (Constructor.class.isInstance(creator)) {
+			paramTypes = Constructor.class.cast(creator).getParameterTypes();
+			createdType = creator.getDeclaringClass();
+		} else if (Method.class.isInstance(creator)
+			&& Modifier.isStatic(creator.getModifiers())) {
+			paramTypes = Method.class.cast(creator).getParameterTypes();
+			createdType = Method.class.cast(creator).getReturnType();
+		} else {
+			throw new MjormException(
+				"Creator must be a constructor or a static method: "+creator);
+		}
+		if (type!=null && !type.isAssignableFrom(createdType)) {
+			throw new MjormException(
+				"Creator "+creator+" creates "+createdType.getName()
+				+", which isn't a "+type.getName());
+		}
+		if (paramTypes.length!=propertyNames.length) {
+			throw new MjormException(
+				"Creator "+creator+" takes "+paramTypes.length
+				+" arguments, "+propertyNames.length+" properties given");
+		}
+		this.creator			= creator;
+		this.creatorProperties	= propertyNames.clone();
+	}
+
+	/**
+	 * @return the constructor or static factory method used to
+	 * create instances, or null if the no-arg constructor is used
+	 */
+	public Member getCreator() {
+		return creator;
+	}
+
+	/**
+	 * @return the names of the properties passed to the creator
+	 */
+	public String[] getCreatorProperties() {
+		return creatorProperties!=null ? creatorProperties.clone() : null;
+	}
+
 	/**
 	 * Indicates whether or not this {@link ObjectDescriptor} has
 	 * sub classes that are mapped via a discriminator.
@@ -98,6 +160,14 @@ public class ObjectDescriptor {
 		return subClassObjectDescriptors.get(discriminator);
 	}
 
+	/**
+	 * Returns the sub class {@link ObjectDescriptor}s by discriminator.
+	 * @return the {@link ObjectDescriptor}s
+	 */
+	public Map<Object, ObjectDescriptor> getSubClassObjectDescriptors() {
+		return Collections.unmodifiableMap(subClassObjectDescriptors);
+	}
+
 	/**
 	 * Returns the {@link PropertyDescriptor} for the given
 	 * {@code propertyName}.
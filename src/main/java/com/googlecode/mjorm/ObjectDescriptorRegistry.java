@@ -6,6 +6,13 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.googlecode.mjorm.accessor.BytecodePropertyAccessorFactory;
+import com.googlecode.mjorm.accessor.PropertyAccessor;
+import com.googlecode.mjorm.accessor.PropertyAccessorFactory;
+import com.mongodb.DBObject;
 
 /**
  * A registry for {@link ObjectDescriptor}s.
@@ -14,6 +21,14 @@ public class ObjectDescriptorRegistry {
 
 	private Map<Class<?>, ObjectDescriptor> descriptors
 		= new HashMap<Class<?>, ObjectDescriptor>();
+	private PropertyAccessorFactory propertyAccessorFactory
+		= BytecodePropertyAccessorFactory.INSTANCE;
+	private ConcurrentMap<Class<?>, MappingPlan> mappingPlans
+		= new ConcurrentHashMap<Class<?>, MappingPlan>();
+	private ConcurrentMap<Class<?>, UnmappingPlan> unmappingPlans
+		= new ConcurrentHashMap<Class<?>, UnmappingPlan>();
+	private ConcurrentMap<Class<?>, Instantiator<?>> instantiators
+		= new ConcurrentHashMap<Class<?>, Instantiator<?>>();
 
 	/**
 	 * Registers an {@link ObjectDescriptor}.
@@ -24,7 +39,121 @@ public class ObjectDescriptorRegistry {
 			throw new IllegalStateException(
 				"ObjectDescriptor for "+descriptor.getType().getName()+" exists");
 		}
+		installAccessors(descriptor);
+		for (PropertyDescriptor prop : descriptor.getProperties()) {
+			prop.buildTypeConversionHints();
+		}
 		descriptors.put(descriptor.getType(), descriptor);
+		clearPlans();
+	}
+
+	/**
+	 * Registers an {@link Instantiator} to use for creating instances
+	 * of the given mapped class instead of it's constructors.
+	 * @param <T> the type
+	 * @param clazz the class
+	 * @param instantiator the {@link Instantiator}
+	 */
+	public <T> void registerInstantiator(Class<T> clazz, Instantiator<? extends T> instantiator) {
+		instantiators.put(clazz, instantiator);
+		clearPlans();
+	}
+
+	/**
+	 * Removes the {@link Instantiator} registered for the given class.
+	 * @param clazz the class
+	 */
+	public void removeInstantiator(Class<?> clazz) {
+		instantiators.remove(clazz);
+		clearPlans();
+	}
+
+	/**
+	 * Sets the {@link PropertyAccessorFactory} used to create the
+	 * {@link PropertyAccessor}s of registered {@link ObjectDescriptor}s,
+	 * the accessors of descriptors that are already registered are
+	 * re-created.
+	 * @param propertyAccessorFactory the factory
+	 */
+	public void setPropertyAccessorFactory(PropertyAccessorFactory propertyAccessorFactory) {
+		this.propertyAccessorFactory = propertyAccessorFactory;
+		for (ObjectDescriptor descriptor : descriptors.values()) {
+			installAccessors(descriptor);
+		}
+		clearPlans();
+	}
+
+	/**
+	 * Returns the {@link MappingPlan} for mapping {@link DBObject}s
+	 * to the given class, creating it if needed.
+	 * @param clazz the class
+	 * @return the plan, or null if the class isn't mapped
+	 */
+	public MappingPlan getMappingPlan(Class<?> clazz) {
+		MappingPlan plan = mappingPlans.get(clazz);
+		if (plan!=null) {
+			return plan;
+		}
+		LinkedList<ObjectDescriptor> descs = getDescriptorsForType(clazz);
+		if (descs.isEmpty()) {
+			return null;
+		}
+		plan = MappingPlan.create(descs, instantiators);
+		MappingPlan existing = mappingPlans.putIfAbsent(clazz, plan);
+		return existing!=null ? existing : plan;
+	}
+
+	/**
+	 * Returns the {@link UnmappingPlan} for unmapping instances of
+	 * the given class to {@link DBObject}s, creating it if needed.
+	 * @param clazz the class
+	 * @return the plan, or null if the class isn't mapped
+	 */
+	public UnmappingPlan getUnmappingPlan(Class<?> clazz) {
+		UnmappingPlan plan = unmappingPlans.get(clazz);
+		if (plan!=null) {
+			return plan;
+		}
+		LinkedList<ObjectDescriptor> descs = getDescriptorsForType(clazz);
+		if (descs.isEmpty()) {
+			return null;
+		}
+		plan = new UnmappingPlan(clazz, descs);
+		UnmappingPlan existing = unmappingPlans.putIfAbsent(clazz, plan);
+		return existing!=null ? existing : plan;
+	}
+
+	/**
+	 * Discards all of the {@link MappingPlan}s and {@link UnmappingPlan}s
+	 * created, they are
+	 * re-created as they are needed.  This must be called when
+	 * anything used by the plans (descriptors, accessors, instantiators
+	 * or type converters) changes.
+	 */
+	public void clearPlans() {
+		mappingPlans.clear();
+		unmappingPlans.clear();
+	}
+
+	/**
+	 * @return the propertyAccessorFactory
+	 */
+	public PropertyAccessorFactory getPropertyAccessorFactory() {
+		return propertyAccessorFactory;
+	}
+
+	/**
+	 * Creates and sets the {@link PropertyAccessor}s for the
+	 * properties of the given {@link ObjectDescriptor}.
+	 * @param descriptor the descriptor
+	 */
+	private void installAccessors(ObjectDescriptor descriptor) {
+		PropertyDescriptor[] props = descriptor.getProperties();
+		PropertyAccessor[] accessors = propertyAccessorFactory.createAccessors(
+			descriptor.getType(), props);
+		for (int i=0; i<props.length; i++) {
+			props[i].setAccessor(accessors[i]);
+		}
 	}
 
 	/**
@@ -32,7 +161,9 @@ public class ObjectDescriptorRegistry {
 	 * @return
 	 */
 	public boolean hasDescriptor(Class<?> clazz) {
-		return descriptors.containsKey(clazz);
+		return descriptors.containsKey(clazz)
+			|| (LazyEntity.class.isAssignableFrom(clazz)
+				&& descriptors.containsKey(clazz.getSuperclass()));
 	}
 
 	/**
@@ -3,6 +3,7 @@ package com.googlecode.mjorm;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
@@ -17,9 +18,29 @@ public class ObjectIterator<E>
 	implements Iterable<E>,
 	Iterator<E> {
 
+	/**
+	 * The default number of documents mapped at a time by
+	 * {@link #readAll(List)}.
+	 */
+	public static final int DEFAULT_MAPPING_BATCH_SIZE = 1000;
+
+	/**
+	 * The default number of documents mapped by one task
+	 * when pipelined.
+	 */
+	public static final int DEFAULT_PIPELINE_BATCH_SIZE = 100;
+
+	/**
+	 * The default number of batches read ahead when pipelined.
+	 */
+	public static final int DEFAULT_PIPELINE_CAPACITY = 8;
+
 	private DBCursor cursor;
 	private final ObjectMapper objectMapper;
 	private final Class<E> clazz;
+	private int mappingBatchSize = DEFAULT_MAPPING_BATCH_SIZE;
+	private MappingPipeline<E> pipeline;
+	private E current;
 
 	/**
 	 * Creates the {@link ObjectIterator}.
@@ -41,15 +62,98 @@ public class ObjectIterator<E>
 		return this;
 	}
 
+	/**
+	 * Sets the number of documents that {@link #readAll(List)}
+	 * reads from the cursor before mapping them together with
+	 * {@link MappingUtil#mapAll(ObjectMapper, List, Class)}.
+	 * @param mappingBatchSize the batch size
+	 */
+	public void setMappingBatchSize(int mappingBatchSize) {
+		if (mappingBatchSize<1) {
+			throw new IllegalArgumentException("mappingBatchSize must be positive");
+		}
+		this.mappingBatchSize = mappingBatchSize;
+	}
+
+	/**
+	 * Pipelines this iterator, see
+	 * {@link #pipeline(Executor, int, int)}.  The default
+	 * batch size and capacity are used.
+	 * @param executor the {@link Executor} to map with
+	 */
+	public void pipeline(Executor executor) {
+		pipeline(executor, DEFAULT_PIPELINE_BATCH_SIZE, DEFAULT_PIPELINE_CAPACITY);
+	}
+
+	/**
+	 * Pipelines this iterator: a reader thread reads the cursor
+	 * in batches that are mapped by the given {@link Executor}
+	 * while the previous ones are being consumed.  The objects are
+	 * returned in the order of the cursor.  The reader stops when
+	 * the given number of batches are waiting to be consumed.  It
+	 * must be called before iterating, and the iterator must be
+	 * closed if it isn't read to the end.  Objects can't be
+	 * removed from a pipelined iterator.
+	 * @param executor the {@link Executor} to map with
+	 * @param batchSize the number of documents mapped by one task
+	 * @param capacity the number of batches that are read ahead
+	 */
+	public void pipeline(Executor executor, int batchSize, int capacity) {
+		if (pipeline!=null) {
+			throw new IllegalStateException("Already pipelined");
+		}
+		pipeline = new MappingPipeline<E>(cursor, objectMapper, clazz, executor, batchSize, capacity);
+		pipeline.start();
+	}
+
+	/**
+	 * @return true if this iterator is pipelined
+	 */
+	public boolean isPipelined() {
+		return pipeline!=null;
+	}
+
+	/**
+	 * Closes the underlying cursor, for pipelined iterators
+	 * the reader is stopped as well.
+	 */
+	public void close() {
+		if (pipeline!=null) {
+			pipeline.close();
+		} else {
+			cursor.close();
+		}
+	}
+
 	/**
 	 * Reads all of the objects behind this cursor
-	 * and returns them in a {@link List}.
+	 * and returns them in a {@link List}.  The documents
+	 * are mapped in batches.
 	 * @param ret the list to read the objects into
 	 * @return the {@link List} of objects.
 	 */
 	public List<E> readAll(List<E> ret) {
+		if (pipeline!=null) {
+			while (hasNext()) {
+				ret.add(next());
+			}
+			return ret;
+		}
+		List<DBObject> batch = new ArrayList<DBObject>();
 		while (hasNext()) {
-			ret.add(next());
+			batch.clear();
+			while (batch.size()<mappingBatchSize && hasNext()) {
+				batch.add(cursor.next());
+			}
+			List<E> objects;
+			try {
+				objects = MappingUtil.mapAll(objectMapper, batch, clazz);
+			} catch (Exception e) {
+				throw new MjormException(e);
+			}
+			for (E object : objects) {
+				ret.add(mapped(object));
+			}
 		}
 		return ret;
 	}
@@ -67,24 +171,47 @@ public class ObjectIterator<E>
 	 * {@inheritDoc}
 	 */
 	public boolean hasNext() {
-		return cursor.hasNext();
+		return pipeline!=null
+			? pipeline.hasNext()
+			: cursor.hasNext();
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public E next() {
+		if (pipeline!=null) {
+			current = mapped(pipeline.next());
+			return current;
+		}
+		E ret;
 		try {
-			return objectMapper.map(cursor.next(), clazz);
+			ret = objectMapper.map(cursor.next(), clazz);
 		} catch (Exception e) {
 			throw new MjormException(e);
 		}
+		return mapped(ret);
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Called with each object that {@link #next()} and
+	 * {@link #readAll(List)} map, before it's returned.
+	 * @param object the object
+	 * @return the object to return
+	 */
+	protected E mapped(E object) {
+		return object;
+	}
+
+	/**
+	 * Returns the current object, for pipelined iterators
+	 * it's the object last returned by {@link #next()}.
+	 * @return the object
 	 */
 	public E current() {
+		if (pipeline!=null) {
+			return current;
+		}
 		try {
 			return objectMapper.map(cursor.curr(), clazz);
 		} catch (Exception e) {
@@ -96,6 +223,9 @@ public class ObjectIterator<E>
 	 * {@see DBCursor#remove()}.
 	 */
 	public void remove() {
+		if (pipeline!=null) {
+			throw new UnsupportedOperationException("Can't remove from a pipelined iterator");
+		}
 		cursor.remove();
 	}
 
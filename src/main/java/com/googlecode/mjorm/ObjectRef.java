@@ -53,7 +53,7 @@ public class ObjectRef
 	 */
 	public DBRef asDBRef(DB db) {
 		return new DBRef(
-			db, this.collection, new ObjectId(this.database));
+			db, this.collection, ObjectId.isValid(this.id) ? new ObjectId(this.id) : this.id);
 	}
 
 	/**
@@ -98,4 +98,30 @@ public class ObjectRef
 		this.database = database;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int hashCode() {
+		int ret = id!=null ? id.hashCode() : 0;
+		ret = ret*31 + (collection!=null ? collection.hashCode() : 0);
+		return ret*31 + (database!=null ? database.hashCode() : 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj==this) {
+			return true;
+		} else if (!ObjectRef.class.isInstance(obj)) {
+			return false;
+		}
+		ObjectRef other = ObjectRef.class.cast(obj);
+		return (id==null ? other.id==null : id.equals(other.id))
+			&& (collection==null ? other.collection==null : collection.equals(other.collection))
+			&& (database==null ? other.database==null : database.equals(other.database));
+	}
+
 }
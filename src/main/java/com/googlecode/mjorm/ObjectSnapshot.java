@@ -0,0 +1,210 @@
+package com.googlecode.mjorm;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import com.googlecode.mjorm.UnmappingPlan.PropertyUnmapping;
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * The stored values of the properties of an object at a point in
+ * time, usually when it was read.  Comparing a snapshot with one
+ * taken later gives the fields that have changed, see
+ * {@link #createUpdate(ObjectSnapshot)}.
+ * Snapshots are created by
+ * {@link DescriptorObjectMapper#createSnapshot(Object)}.
+ */
+public final class ObjectSnapshot {
+
+	private final UnmappingPlan plan;
+	private final Object[] values;
+
+	/**
+	 * Takes the snapshot.
+	 * @param object the object
+	 * @param plan the {@link UnmappingPlan} for the object's class
+	 * @param context the {@link ConversionContext}
+	 */
+	ObjectSnapshot(Object object, UnmappingPlan plan, ConversionContext context) {
+		this.plan = plan;
+		PropertyUnmapping[] props = plan.getProperties();
+		this.values = new Object[props.length];
+		for (int i=0; i<props.length; i++) {
+			try {
+				values[i] = copy(props[i].unmap(object, context));
+			} catch (Exception e) {
+				throw new MjormException(
+					"Error mapping property "+props[i].getProperty().getName()
+					+" of class "+props[i].getDeclaringType(), e);
+			}
+		}
+	}
+
+	/**
+	 * Copies the given stored value if it's mutable.  A stored value
+	 * can be the property's own object, such as a {@link Date} or
+	 * a {@link DBObject}, and the snapshot mustn't change with it.
+	 * @param value the value
+	 * @return the copy, or the value if it's immutable
+	 */
+	private static Object copy(Object value) {
+		if (value==null) {
+			return null;
+		} else if (Date.class.isInstance(value)) {
+			return Date.class.cast(value).clone();
+		} else if (BasicDBList.class.isInstance(value)) {
+			BasicDBList ret = new BasicDBList();
+			for (Object element : BasicDBList.class.cast(value)) {
+				ret.add(copy(element));
+			}
+			return ret;
+		} else if (DBObject.class.isInstance(value)) {
+			DBObject dbObject = DBObject.class.cast(value);
+			BasicDBObject ret = new BasicDBObject();
+			for (String key : dbObject.keySet()) {
+				ret.put(key, copy(dbObject.get(key)));
+			}
+			return ret;
+		} else if (value.getClass().isArray()) {
+			int length = Array.getLength(value);
+			Object ret = Array.newInstance(value.getClass().getComponentType(), length);
+			for (int i=0; i<length; i++) {
+				Array.set(ret, i, copy(Array.get(value, i)));
+			}
+			return ret;
+		}
+		return value;
+	}
+
+	/**
+	 * Creates the modifier document that changes the fields of a
+	 * document stored as this snapshot to those of the given snapshot
+	 * of the same object.  Changed fields are set, fields that became
+	 * null are unset and lists that were only appended to are pushed
+	 * to.  The id is never modified.  The snapshots hold stored values,
+	 * so they're put in the document as they are.
+	 * @param current the current snapshot
+	 * @return the modifier document, empty if no fields changed
+	 */
+	DBObject createUpdate(ObjectSnapshot current) {
+		if (!isComparableTo(current)) {
+			throw new IllegalArgumentException(
+				"Snapshots of "+plan.getType()+" and "+current.plan.getType()+" can't be compared");
+		}
+		DBObject ret = new BasicDBObject();
+		PropertyUnmapping[] props = plan.getProperties();
+		for (int i=0; i<props.length; i++) {
+			String fieldName = props[i].getFieldName();
+
+			// skip the id, unchanged values and fields
+			// whose stored value is from another property
+			if (fieldName.equals("_id")
+				|| plan.getFieldIndex(fieldName)!=i
+				|| valuesEqual(values[i], current.values[i])) {
+				continue;
+			}
+
+			// unset, push or set
+			Object value = current.values[i];
+			if (value==null) {
+				addModifier(ret, "$unset", fieldName, 1);
+			} else if (isAppended(values[i], value)) {
+				List<?> list = List.class.cast(value);
+				List<?> added = list.subList(List.class.cast(values[i]).size(), list.size());
+				if (added.size()==1) {
+					addModifier(ret, "$push", fieldName, added.get(0));
+				} else {
+					BasicDBList all = new BasicDBList();
+					all.addAll(added);
+					addModifier(ret, "$pushAll", fieldName, all);
+				}
+			} else {
+				addModifier(ret, "$set", fieldName, value);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Adds a field to a modifier of a modifier document.
+	 * @param update the modifier document
+	 * @param command the modifier, ie: $set
+	 * @param fieldName the field name
+	 * @param value the stored value
+	 */
+	private static void addModifier(DBObject update, String command, String fieldName, Object value) {
+		DBObject modifier = DBObject.class.cast(update.get(command));
+		if (modifier==null) {
+			modifier = new BasicDBObject();
+			update.put(command, modifier);
+		}
+		modifier.put(fieldName, value);
+	}
+
+	/**
+	 * Indicates whether or not this snapshot can be compared with the
+	 * given one, that is: they were taken with the same mapping.
+	 * @param other the other snapshot
+	 * @return true if they can
+	 */
+	boolean isComparableTo(ObjectSnapshot other) {
+		return other.plan==plan;
+	}
+
+	/**
+	 * Indicates whether or not the given list is the old list
+	 * with values appended to it.
+	 * @param oldValue the old value
+	 * @param newValue the new value
+	 * @return true if it is
+	 */
+	private static boolean isAppended(Object oldValue, Object newValue) {
+		if (!List.class.isInstance(oldValue) || !List.class.isInstance(newValue)) {
+			return false;
+		}
+		List<?> oldList = List.class.cast(oldValue);
+		List<?> newList = List.class.cast(newValue);
+		return newList.size()>oldList.size()
+			&& newList.subList(0, oldList.size()).equals(oldList);
+	}
+
+	/**
+	 * Compares two stored values.
+	 * @param a the first value
+	 * @param b the second value
+	 * @return true if they're equal
+	 */
+	private static boolean valuesEqual(Object a, Object b) {
+		if (a==b) {
+			return true;
+		} else if (a==null || b==null) {
+			return false;
+		} else if (a.getClass().isArray() && b.getClass().isArray()) {
+			return Arrays.deepEquals(new Object[] { a }, new Object[] { b });
+		}
+		return a.equals(b);
+	}
+
+	/**
+	 * @return the class of the object
+	 */
+	public Class<?> getType() {
+		return plan.getType();
+	}
+
+	/**
+	 * Returns the stored value of the given field.
+	 * @param fieldName the field name
+	 * @return the value, or null if the field isn't mapped
+	 */
+	public Object getValue(String fieldName) {
+		int index = plan.getFieldIndex(fieldName);
+		return index>=0 ? values[index] : null;
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.googlecode.mjorm;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a task over the parts of a batch, in parallel when
+ * there's an {@link Executor}.  A part is run by whichever
+ * thread claims it first, and the calling thread only waits
+ * for parts that other threads have started, so batches run
+ * by tasks on the same bounded {@link Executor} can't
+ * deadlock waiting for queued parts.
+ */
+final class ParallelBatch {
+
+	/**
+	 * Does the work for a part of a batch.
+	 */
+	interface Task {
+
+		/**
+		 * Does the work for the given part.
+		 * @param from the index of the first item, inclusive
+		 * @param to the index of the last item, exclusive
+		 */
+		void run(int from, int to);
+	}
+
+	private ParallelBatch() { }
+
+	/**
+	 * Runs the given task over a batch of the given size, splitting
+	 * it across the {@link Executor} if there is one and the batch
+	 * is larger than a part.  The calling thread runs the first part
+	 * and any parts the executor hasn't started yet, then waits for
+	 * the rest, the first error is rethrown.
+	 * @param executor the {@link Executor}, or null
+	 * @param partSize the maximum number of items in a part
+	 * @param size the size of the batch
+	 * @param task the task
+	 */
+	static void run(Executor executor, int partSize, int size, final Task task) {
+		if (executor==null || size<=partSize) {
+			task.run(0, size);
+			return;
+		}
+
+		// hand all but the first part to the executor
+		int parts = (size+partSize-1)/partSize;
+		final CountDownLatch latch = new CountDownLatch(parts-1);
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final AtomicBoolean[] claimed = new AtomicBoolean[parts];
+		Runnable[] runnables = new Runnable[parts];
+		for (int i=1; i<parts; i++) {
+			final int part = i;
+			final int from = i*partSize;
+			final int to = Math.min(from+partSize, size);
+			claimed[i] = new AtomicBoolean();
+			runnables[i] = new Runnable() {
+				public void run() {
+					if (!claimed[part].compareAndSet(false, true)) {
+						return;
+					}
+					try {
+						if (error.get()==null) {
+							task.run(from, to);
+						}
+					} catch (Throwable t) {
+						error.compareAndSet(null, t);
+					} finally {
+						latch.countDown();
+					}
+				}
+			};
+			try {
+				executor.execute(runnables[i]);
+			} catch (RejectedExecutionException ree) {
+				runnables[i].run();
+			}
+		}
+
+		// run the first part and the parts that haven't
+		// been started, then wait for the rest
+		try {
+			task.run(0, partSize);
+		} catch (Throwable t) {
+			error.compareAndSet(null, t);
+		}
+		for (int i=1; i<parts; i++) {
+			runnables[i].run();
+		}
+		try {
+			latch.await();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new MjormException("Interrupted while waiting for a batch", ie);
+		}
+
+		// rethrow the first error
+		Throwable t = error.get();
+		if (RuntimeException.class.isInstance(t)) {
+			throw RuntimeException.class.cast(t);
+		} else if (Error.class.isInstance(t)) {
+			throw Error.class.cast(t);
+		} else if (t!=null) {
+			throw new MjormException(t);
+		}
+	}
+
+}
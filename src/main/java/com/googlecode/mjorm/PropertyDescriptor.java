@@ -1,12 +1,19 @@
 package com.googlecode.mjorm;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.googlecode.mjorm.accessor.PropertyAccessor;
+import com.googlecode.mjorm.accessor.FieldPropertyAccessor;
+import com.googlecode.mjorm.accessor.ReflectionPropertyAccessor;
+import com.googlecode.mjorm.accessor.ReflectionPropertyAccessorFactory;
 import com.googlecode.mjorm.convert.JavaType;
+import com.googlecode.mjorm.convert.TypeConversionHints;
 
 
 /**
@@ -22,9 +29,12 @@ public class PropertyDescriptor {
 	private Type[] genericParameterTypes;
 	private Method setter;
 	private Method getter;
+	private Field field;
 	private boolean isIdentifier;
 	private boolean isAutoGenerated;
 	private ValueGenerator<?> valueGenerator;
+	private PropertyAccessor accessor;
+	private volatile TypeConversionHints typeConversionHints;
 
 	/**
 	 * Sets the value on the given target.
@@ -36,8 +46,7 @@ public class PropertyDescriptor {
 	public void set(Object target, Object value)
 		throws IllegalAccessException,
 		InvocationTargetException {
-		setter.setAccessible(true);
-		setter.invoke(target, value);
+		getAccessor().set(target, value);
 	}
 
 	/**
@@ -50,8 +59,28 @@ public class PropertyDescriptor {
 	public Object get(Object target)
 		throws IllegalAccessException,
 		InvocationTargetException {
-		getter.setAccessible(true);
-		return getter.invoke(target);
+		return getAccessor().get(target);
+	}
+
+	/**
+	 * Returns the {@link PropertyAccessor} used to get and set
+	 * this property, a {@link FieldPropertyAccessor} or
+	 * {@link ReflectionPropertyAccessor} is created if one hasn't
+	 * been set.
+	 * @return the accessor
+	 */
+	public PropertyAccessor getAccessor() {
+		if (accessor==null) {
+			accessor = ReflectionPropertyAccessorFactory.INSTANCE.createAccessor(this);
+		}
+		return accessor;
+	}
+
+	/**
+	 * @param accessor the accessor to set
+	 */
+	public void setAccessor(PropertyAccessor accessor) {
+		this.accessor = accessor;
 	}
 
 	/**
@@ -69,17 +98,54 @@ public class PropertyDescriptor {
 	}
 
 	/**
-	 * @return the conversionHints
+	 * @return the conversionHints, they can't be modified
+	 * (see {@link #setConversionHints(Map)})
 	 */
 	public Map<String, Object> getConversionHints() {
-		return conversionHints;
+		return Collections.unmodifiableMap(conversionHints);
 	}
 
 	/**
+	 * Sets the conversion hints, they're copied so that later
+	 * changes to the given map don't affect the hints in use.
 	 * @param conversionHints the conversionHints to set
 	 */
 	public void setConversionHints(Map<String, Object> conversionHints) {
-		this.conversionHints = conversionHints;
+		this.conversionHints = conversionHints!=null
+			? new HashMap<String, Object>(conversionHints)
+			: new HashMap<String, Object>();
+		this.typeConversionHints = null;
+	}
+
+	/**
+	 * Returns the immutable {@link TypeConversionHints} used to
+	 * convert values of this property, made up of the conversion
+	 * hints and the generic parameter types.  They're built when
+	 * the descriptor is registered, or on first use otherwise.
+	 * @return the hints
+	 */
+	public TypeConversionHints getTypeConversionHints() {
+		TypeConversionHints ret = typeConversionHints;
+		if (ret==null) {
+			ret = buildTypeConversionHints();
+		}
+		return ret;
+	}
+
+	/**
+	 * Builds the {@link TypeConversionHints} from the current
+	 * conversion hints and generic parameter types.
+	 * @return the hints
+	 */
+	TypeConversionHints buildTypeConversionHints() {
+		Map<String, Object> hints = new HashMap<String, Object>();
+		hints.putAll(conversionHints);
+		if (genericParameterTypes!=null && genericParameterTypes.length>0) {
+			hints.put(TypeConversionHints.HINT_GENERIC_TYPE_PARAMETERS, genericParameterTypes);
+		}
+		TypeConversionHints ret = TypeConversionHints.immutable(hints);
+		typeConversionHints = ret;
+		return ret;
 	}
 
 	/**
@@ -122,6 +188,7 @@ public class PropertyDescriptor {
 	 */
 	public void setSetter(Method setter) {
 		this.setter = setter;
+		this.accessor = null;
 	}
 
 	/**
@@ -136,6 +203,25 @@ public class PropertyDescriptor {
 	 */
 	public void setGetter(Method getter) {
 		this.getter = getter;
+		this.accessor = null;
+	}
+
+	/**
+	 * @return the field, or null if the property is accessed
+	 * with it's getter and setter
+	 */
+	public Field getField() {
+		return field;
+	}
+
+	/**
+	 * Sets the field that the property is read from and written
+	 * to directly, rather than with it's getter and setter.
+	 * @param field the field to set
+	 */
+	public void setField(Field field) {
+		this.field = field;
+		this.accessor = null;
 	}
 
 	/**
@@ -192,6 +278,7 @@ public class PropertyDescriptor {
 	 */
 	public void setGenericParameterTypes(Type[] genericParameterTypes) {
 		this.genericParameterTypes = genericParameterTypes;
+		this.typeConversionHints = null;
 	}
 
 	/**
@@ -6,6 +6,10 @@ import java.beans.PropertyDescriptor;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Utilities for reflection related things.
@@ -18,8 +22,38 @@ public final class ReflectionUtil {
 	private ReflectionUtil() { }
 	static { new ReflectionUtil(); }
 
+	private static final Object[] NO_ARGS = new Object[0];
+	private static final Class<?>[] NO_TYPES = new Class<?>[0];
+
+	private static final ConcurrentMap<Class<?>, Instantiator<?>> NO_ARG_INSTANTIATORS
+		= new ConcurrentHashMap<Class<?>, Instantiator<?>>();
+	private static final ConcurrentMap<Signature, Instantiator<?>> INSTANTIATORS
+		= new ConcurrentHashMap<Signature, Instantiator<?>>();
+
+	/**
+	 * Discards the constructors resolved by {@link #instantiate(Class, Object...)}.
+	 * A class always resolves to the same constructor, so this only
+	 * frees memory.
+	 */
+	public static void clearInstantiatorCache() {
+		NO_ARG_INSTANTIATORS.clear();
+		INSTANTIATORS.clear();
+	}
+
 	/**
-	 * Creates an instance of the given class.
+	 * @return the number of resolved {@link Instantiator}s cached
+	 */
+	static int getInstantiatorCacheSize() {
+		return NO_ARG_INSTANTIATORS.size()+INSTANTIATORS.size();
+	}
+
+	/**
+	 * Creates an instance of the given class.  The constructor used is resolved once for each class and the
+	 * classes of the arguments when the class is loaded by the class
+	 * loader of this class (or one of it's parents), constructors of
+	 * other classes aren't cached so that their class loaders can be
+	 * discarded.  See {@link #findInstantiator(Class, Class...)} to
+	 * hold on to the constructor of such a class.
 	 * @param <T> the type
 	 * @param clazz the class
 	 * @param args the arguments to pass to the constructor
@@ -28,38 +62,249 @@ public final class ReflectionUtil {
 	 * @throws IllegalAccessException on error
 	 * @throws InvocationTargetException on error
 	 */
-	@SuppressWarnings("unchecked")
 	public static <T> T instantiate(Class<T> clazz, Object... args)
 		throws InstantiationException,
 		IllegalAccessException,
 		InvocationTargetException {
-		if (args.length==0) {
-			return clazz.newInstance();
+
+		// find the instantiator
+		Instantiator<?> instantiator;
+		if (args==null || args.length==0) {
+			args = NO_ARGS;
+			instantiator = NO_ARG_INSTANTIATORS.get(clazz);
+			if (instantiator==null) {
+				instantiator = resolveInstantiator(clazz, NO_TYPES);
+				if (isCacheSafe(clazz)) {
+					NO_ARG_INSTANTIATORS.put(clazz, instantiator);
+				}
+			}
+		} else {
+			Class<?>[] types = new Class<?>[args.length];
+			for (int i=0; i<args.length; i++) {
+				types[i] = args[i]!=null ? args[i].getClass() : null;
+			}
+			Signature signature = new Signature(clazz, types);
+			instantiator = INSTANTIATORS.get(signature);
+			if (instantiator==null) {
+				instantiator = resolveInstantiator(clazz, types);
+				if (isCacheSafe(clazz) && isCacheSafe(types)) {
+					INSTANTIATORS.put(signature, instantiator);
+				}
+			}
 		}
-		Class<?>[] types = new Class<?>[args.length];
-		for (int i=0; i<args.length; i++) {
-			types[i] = args.getClass();
+
+		// create it
+		return instantiate(instantiator, args);
+	}
+
+	/**
+	 * Returns the {@link Instantiator} that {@link #instantiate(Class, Object...)}
+	 * uses to create instances of the given class from arguments of
+	 * the given classes, it isn't cached.
+	 * @param <T> the type
+	 * @param clazz the class
+	 * @param types the classes of the arguments, null for null arguments
+	 * @return the instantiator
+	 * @throws InstantiationException if the class can't be instantiated
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Instantiator<T> findInstantiator(Class<T> clazz, Class<?>... types)
+		throws InstantiationException {
+		return (Instantiator<T>)resolveInstantiator(clazz, types!=null ? types : NO_TYPES);
+	}
+
+	/**
+	 * Creates an instance with the given {@link Instantiator},
+	 * rethrowing it's exceptions as those thrown by a constructor.
+	 * @param <T> the type
+	 * @param instantiator the {@link Instantiator}
+	 * @param args the arguments
+	 * @return the instance
+	 * @throws InstantiationException on error
+	 * @throws IllegalAccessException on error
+	 * @throws InvocationTargetException on error
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T instantiate(Instantiator<?> instantiator, Object... args)
+		throws InstantiationException,
+		IllegalAccessException,
+		InvocationTargetException {
+		try {
+			return (T)instantiator.instantiate(args!=null ? args : NO_ARGS);
+		} catch(InstantiationException e) {
+			throw e;
+		} catch(IllegalAccessException e) {
+			throw e;
+		} catch(InvocationTargetException e) {
+			throw e;
+		} catch(RuntimeException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new InvocationTargetException(e);
 		}
+	}
+
+	/**
+	 * Indicates whether or not the given classes are loaded by the
+	 * class loader of this class or one of it's parents, in which
+	 * case caching them doesn't keep any other class loader alive.
+	 * @param classes the classes, null elements are ignored
+	 * @return true if they are
+	 */
+	private static boolean isCacheSafe(Class<?>... classes) {
+		ClassLoader ours = ReflectionUtil.class.getClassLoader();
+		for (Class<?> clazz : classes) {
+			if (clazz==null) {
+				continue;
+			}
+			ClassLoader loader = clazz.getClassLoader();
+			if (loader==null) {
+				continue;
+			}
+			boolean found = false;
+			for (ClassLoader l = ours; l!=null && !found; l = l.getParent()) {
+				found = (l==loader);
+			}
+			if (!found) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Resolves the {@link Instantiator} for the given class and
+	 * argument classes.
+	 * @param clazz the class
+	 * @param types the classes of the arguments, null for null arguments
+	 * @return the instantiator
+	 * @throws InstantiationException if the class can't be instantiated
+	 */
+	private static Instantiator<?> resolveInstantiator(Class<?> clazz, Class<?>[] types)
+		throws InstantiationException {
+
+		// can't be created
+		if (clazz.isInterface() || Modifier.isAbstract(clazz.getModifiers())) {
+			throw new InstantiationException(clazz.getName());
+		}
+
+		// no-arg constructor, it doesn't have to be public
+		if (types.length==0) {
+			try {
+				return new ConstructorInstantiator(clazz.getDeclaredConstructor());
+			} catch(NoSuchMethodException e) {
+				throw new InstantiationException(clazz.getName());
+			}
+		}
+
+		// find a constructor
 		for (Constructor<?> c : clazz.getConstructors()) {
 			Class<?>[] paramTypes = c.getParameterTypes();
-			if (paramTypes.length!=args.length) {
+			if (paramTypes.length!=types.length) {
 				continue;
 			}
 			boolean foundCtr = true;
 			for (int i=0; i<paramTypes.length; i++) {
-				if (!paramTypes[i].isAssignableFrom(types[i])) {
+				if (types[i]==null
+					? paramTypes[i].isPrimitive()
+					: !wrap(paramTypes[i]).isAssignableFrom(types[i])) {
 					foundCtr = false;
 					break;
 				}
 			}
 			if (foundCtr) {
-				return (T)c.newInstance(args);
+				return new ConstructorInstantiator(c);
 			}
 		}
 		throw new IllegalArgumentException(
 			"Unable to find suitable constructor for "+clazz.getName());
 	}
 
+	/**
+	 * Returns the wrapper class for a primitive type, the
+	 * class itself otherwise.
+	 * @param clazz the class
+	 * @return the wrapper
+	 */
+	private static Class<?> wrap(Class<?> clazz) {
+		if (!clazz.isPrimitive()) {
+			return clazz;
+		} else if (clazz==boolean.class) {
+			return Boolean.class;
+		} else if (clazz==char.class) {
+			return Character.class;
+		} else if (clazz==byte.class) {
+			return Byte.class;
+		} else if (clazz==short.class) {
+			return Short.class;
+		} else if (clazz==int.class) {
+			return Integer.class;
+		} else if (clazz==long.class) {
+			return Long.class;
+		} else if (clazz==float.class) {
+			return Float.class;
+		}
+		return Double.class;
+	}
+
+	/**
+	 * An {@link Instantiator} that calls a constructor.  Access checks
+	 * are suppressed once, when it's created, rather than on every call.
+	 */
+	private static final class ConstructorInstantiator
+		implements Instantiator<Object> {
+
+		private final Constructor<?> constructor;
+
+		private ConstructorInstantiator(Constructor<?> constructor) {
+			this.constructor = constructor;
+			try {
+				constructor.setAccessible(true);
+			} catch(SecurityException e) {
+				// called with access checks
+			}
+		}
+
+		public Object instantiate(Object[] args)
+			throws InstantiationException,
+			IllegalAccessException,
+			InvocationTargetException {
+			return constructor.newInstance(args);
+		}
+	}
+
+	/**
+	 * A class and the classes of the arguments passed to it's constructor.
+	 */
+	private static final class Signature {
+
+		private final Class<?> clazz;
+		private final Class<?>[] types;
+		private final int hashCode;
+
+		private Signature(Class<?> clazz, Class<?>[] types) {
+			this.clazz		= clazz;
+			this.types		= types;
+			this.hashCode	= 31 * clazz.hashCode() + Arrays.hashCode(types);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this==obj) {
+				return true;
+			} else if (!(obj instanceof Signature)) {
+				return false;
+			}
+			Signature other = (Signature)obj;
+			return clazz==other.clazz && Arrays.equals(types, other.types);
+		}
+	}
+
 	/**
 	 * Get {@link BeanInfo}.
 	 * @param clazz the class
@@ -0,0 +1,328 @@
+package com.googlecode.mjorm;
+
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.googlecode.mjorm.accessor.PropertyAccessor;
+import com.googlecode.mjorm.convert.Conversion;
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.ConversionException;
+import com.googlecode.mjorm.convert.JavaType;
+import com.googlecode.mjorm.convert.TypeConversionHints;
+import com.mongodb.BasicDBObject;
+
+/**
+ * A precomputed plan for unmapping instances of a class to
+ * {@link BasicDBObject}s.  The plan is a flat list of the
+ * properties of the class and it's mapped super classes, each
+ * with it's field name, accessor and storage conversion.  The
+ * storage type of a property is resolved once unless the
+ * declared type of the property is polymorphic, in which case
+ * it is resolved from the class of each value.  Plans are created
+ * and cached by the {@link ObjectDescriptorRegistry}.
+ */
+public class UnmappingPlan {
+
+	private final Class<?> type;
+	private final PropertyUnmapping[] properties;
+	private final Map<String, Integer> fieldIndexes;
+	private final Set<String> fieldNames;
+	private final int initialCapacity;
+
+	/**
+	 * Creates the plan.
+	 * @param type the class unmapped
+	 * @param descriptors the descriptors of the class hierarchy
+	 * in superclass to subclass order
+	 */
+	UnmappingPlan(Class<?> type, List<ObjectDescriptor> descriptors) {
+		this.type = type;
+
+		// flatten the properties
+		int count = 0;
+		for (ObjectDescriptor desc : descriptors) {
+			count += desc.getProperties().length;
+		}
+		this.properties = new PropertyUnmapping[count];
+		this.fieldIndexes = new HashMap<String, Integer>();
+		Set<String> names = new LinkedHashSet<String>();
+		int i = 0;
+		for (ObjectDescriptor desc : descriptors) {
+			for (PropertyDescriptor prop : desc.getProperties()) {
+				properties[i] = new PropertyUnmapping(desc.getType(), prop);
+				fieldIndexes.put(properties[i].fieldName, i);
+				names.add(properties[i].fieldName);
+				i++;
+			}
+		}
+		this.fieldNames = Collections.unmodifiableSet(names);
+
+		// big enough that the DBObject never resizes
+		this.initialCapacity = (int)(count/0.75f)+1;
+	}
+
+	/**
+	 * Unmaps the given object.
+	 * @param source the object
+	 * @param context the {@link ConversionContext}
+	 * @return the {@link BasicDBObject}
+	 */
+	public BasicDBObject unmap(Object source, ConversionContext context) {
+		BasicDBObject ret = new BasicDBObject(initialCapacity);
+		for (PropertyUnmapping prop : properties) {
+			try {
+				ret.put(prop.fieldName, prop.unmap(source, context));
+			} catch (Exception e) {
+				throw new MjormException(
+					"Error mapping property "+prop.property.getName()
+					+" of class "+prop.declaringType, e);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the index of the property stored in the given field.
+	 * If more than one property is stored in the field the index
+	 * of the last one is returned, as that is the value that
+	 * {@link #unmap(Object, ConversionContext)} stores.
+	 * @param fieldName the field name
+	 * @return the index, or -1 if the field isn't mapped
+	 */
+	public int getFieldIndex(String fieldName) {
+		Integer ret = fieldIndexes.get(fieldName);
+		return ret!=null ? ret.intValue() : -1;
+	}
+
+	/**
+	 * @return the names of the fields stored, in order
+	 */
+	public Set<String> getFieldNames() {
+		return fieldNames;
+	}
+
+	/**
+	 * @return the class that this plan unmaps
+	 */
+	public Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * @return the properties
+	 */
+	public PropertyUnmapping[] getProperties() {
+		return properties;
+	}
+
+	/**
+	 * A single unmapped property of an {@link UnmappingPlan}.
+	 */
+	public static final class PropertyUnmapping {
+
+		private final Class<?> declaringType;
+		private final String fieldName;
+		private final PropertyDescriptor property;
+		private final PropertyAccessor accessor;
+		private final boolean staticStorageType;
+		private final Conversion generatedValueConversion;
+		private volatile StorageConversion storageConversion;
+
+		/**
+		 * Creates the unmapping for a property.
+		 * @param declaringType the class of the descriptor declaring the property
+		 * @param prop the property
+		 */
+		private PropertyUnmapping(Class<?> declaringType, PropertyDescriptor prop) {
+			this.declaringType	= declaringType;
+			this.fieldName		= prop.isIdentifier() ? "_id" : prop.getFieldName();
+			this.property		= prop;
+			this.accessor		= prop.getAccessor();
+			this.staticStorageType = prop.getStorageType()!=null
+				|| hasStaticStorageType(prop.getType().asClass());
+			this.generatedValueConversion = prop.isAutoGenerated()
+				? new Conversion(prop.getType(), TypeConversionHints.NO_HINTS)
+				: null;
+		}
+
+		/**
+		 * Indicates whether or not every value of a property declared
+		 * as the given class is of that class, and so has the same
+		 * storage type.  Values of other properties may be of a sub
+		 * class with a storage class of it's own.
+		 * @param clazz the declared class
+		 * @return true if it does
+		 */
+		private static boolean hasStaticStorageType(Class<?> clazz) {
+			return clazz.isPrimitive()
+				|| clazz.isEnum()
+				|| Modifier.isFinal(clazz.getModifiers());
+		}
+
+		/**
+		 * Gets the value of the property from the given object and
+		 * converts it to it's storage type, generating the value
+		 * first if needed.
+		 * @param source the object
+		 * @param context the {@link ConversionContext}
+		 * @return the stored value
+		 * @throws Exception on error
+		 */
+		public Object unmap(Object source, ConversionContext context)
+			throws Exception {
+			return toStorage(getValue(source, context), context);
+		}
+
+		/**
+		 * Gets the value of the property from the given object,
+		 * generating it first if needed.
+		 * @param source the object
+		 * @param context the {@link ConversionContext}
+		 * @return the value
+		 * @throws Exception on error
+		 */
+		public Object getValue(Object source, ConversionContext context)
+			throws Exception {
+
+			// get it
+			Object value = accessor.get(source);
+
+			// auto generate value
+			if (value==null && generatedValueConversion!=null) {
+				value = property.getValueGenerator()!=null
+					? property.getValueGenerator().generate()
+					: ObjectIdValueGenerator.INSTANCE.generate();
+				accessor.set(source, generatedValueConversion.convert(value, context));
+			}
+			return value;
+		}
+
+		/**
+		 * Converts a value of the property to it's storage type.
+		 * @param value the value
+		 * @param context the {@link ConversionContext}
+		 * @return the stored value
+		 * @throws ConversionException on error
+		 */
+		public Object toStorage(Object value, ConversionContext context)
+			throws ConversionException {
+			return value!=null
+				? getStorageConversion(value, context).convert(value, context)
+				: null;
+		}
+
+		/**
+		 * Returns the storage type of the given value of the property.
+		 * @param value the value
+		 * @param context the {@link ConversionContext}
+		 * @return the storage type
+		 * @throws ConversionException on error
+		 */
+		public JavaType getStorageType(Object value, ConversionContext context)
+			throws ConversionException {
+			return getStorageConversion(value, context).getTargetType();
+		}
+
+		/**
+		 * Returns the {@link Conversion} of the given value to it's
+		 * storage type, resolving it for the given context if needed.
+		 * Unless the storage type is static it's that of the value's
+		 * class, the conversion is kept while it stays the same.
+		 * @param value the value
+		 * @param context the {@link ConversionContext}
+		 * @return the {@link Conversion}
+		 * @throws ConversionException on error
+		 */
+		private Conversion getStorageConversion(Object value, ConversionContext context)
+			throws ConversionException {
+			JavaType storageType = property.getStorageType();
+			if (storageType==null && !staticStorageType) {
+				storageType = context.getStorageType(value.getClass());
+			}
+			StorageConversion ret = storageConversion;
+			if (ret==null || ret.context!=context
+				|| (storageType!=null && !storageType.equals(ret.conversion.getTargetType()))) {
+				if (storageType==null) {
+					storageType = context.getStorageType(wrap(property.getType().asClass()));
+				}
+				ret = new StorageConversion(context,
+					new Conversion(storageType, TypeConversionHints.NO_HINTS));
+				storageConversion = ret;
+			}
+			return ret.conversion;
+		}
+
+		/**
+		 * @return the fieldName
+		 */
+		public String getFieldName() {
+			return fieldName;
+		}
+
+		/**
+		 * @return the class of the descriptor declaring the property
+		 */
+		public Class<?> getDeclaringType() {
+			return declaringType;
+		}
+
+		/**
+		 * @return the property
+		 */
+		public PropertyDescriptor getProperty() {
+			return property;
+		}
+
+		/**
+		 * @return whether or not the storage type is resolved once
+		 */
+		public boolean isStaticStorageType() {
+			return staticStorageType;
+		}
+	}
+
+	/**
+	 * Returns the wrapper class for a primitive type, the
+	 * class itself otherwise.
+	 * @param clazz the class
+	 * @return the wrapper
+	 */
+	private static Class<?> wrap(Class<?> clazz) {
+		if (!clazz.isPrimitive()) {
+			return clazz;
+		} else if (clazz==boolean.class) {
+			return Boolean.class;
+		} else if (clazz==char.class) {
+			return Character.class;
+		} else if (clazz==byte.class) {
+			return Byte.class;
+		} else if (clazz==short.class) {
+			return Short.class;
+		} else if (clazz==int.class) {
+			return Integer.class;
+		} else if (clazz==long.class) {
+			return Long.class;
+		} else if (clazz==float.class) {
+			return Float.class;
+		}
+		return Double.class;
+	}
+
+	/**
+	 * A storage {@link Conversion} and the context it was resolved for.
+	 */
+	private static final class StorageConversion {
+		private final ConversionContext context;
+		private final Conversion conversion;
+		private StorageConversion(ConversionContext context, Conversion conversion) {
+			this.context	= context;
+			this.conversion	= conversion;
+		}
+	}
+
+}
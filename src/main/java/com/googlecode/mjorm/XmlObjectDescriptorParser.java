@@ -5,12 +5,18 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -23,6 +29,7 @@ import javax.xml.xpath.XPathFactory;
 import org.bson.types.ObjectId;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
@@ -112,6 +119,24 @@ public class XmlObjectDescriptorParser {
 		return ret;
 	}
 
+	/**
+	 * Finds the discriminator type of the given descriptor element
+	 * or, if it doesn't have one, of it's closest ancestor.
+	 * @param descriptorEl the descriptor element
+	 * @return the discriminator type
+	 */
+	private String findDiscriminatorType(Element descriptorEl) {
+		Node node = descriptorEl;
+		while (Element.class.isInstance(node)) {
+			Element el = Element.class.cast(node);
+			if (el.hasAttribute("discriminator-type")) {
+				return el.getAttribute("discriminator-type");
+			}
+			node = node.getParentNode();
+		}
+		return null;
+	}
+
 	/**
 	 * Parses an object descriptor element.
 	 * @param descriptorEl
@@ -139,6 +164,16 @@ public class XmlObjectDescriptorParser {
 		descriptor.setDiscriminatorName(discriminatorName);
 		descriptor.setDiscriminatorType(discriminatorType);
 
+		// get the creator
+		Element creatorEl = (Element)xpath.evaluate(
+			"./creator", descriptorEl, XPathConstants.NODE);
+		Set<String> creatorProps = new HashSet<String>();
+		if (creatorEl!=null) {
+			for (String name : parseCreatorProperties(creatorEl)) {
+				creatorProps.add(name.toLowerCase());
+			}
+		}
+
 		// get properties
 		NodeList propertyEls = (NodeList)xpath.evaluate(
 			"./property", descriptorEl, XPathConstants.NODESET);
@@ -190,7 +225,8 @@ public class XmlObjectDescriptorParser {
 			// find the getter and setter.
 			Method propSetter = ReflectionUtil.findSetter(objClass, propName);
 			Method propGetter = ReflectionUtil.findGetter(objClass, propName);
-			if (propGetter==null || propSetter==null) {
+			if (propGetter==null
+				|| (propSetter==null && !creatorProps.contains(propName.toLowerCase()))) {
 				throw new IllegalArgumentException(
 					"Unable to find getter or setter named "+propName+" for: "+objClass);
 			}
@@ -253,6 +289,13 @@ public class XmlObjectDescriptorParser {
 			descriptor.addPropertyDescriptor(prop);
 		}
 
+		// set the creator
+		if (creatorEl!=null) {
+			descriptor.setCreator(
+				findCreator(objClass, creatorEl, descriptor, descriptors),
+				parseCreatorProperties(creatorEl));
+		}
+
 		// parse subclasses
 		NodeList subClassEls = (NodeList)xpath.evaluate(
 			"./subclass", descriptorEl, XPathConstants.NODESET);
@@ -261,9 +304,11 @@ public class XmlObjectDescriptorParser {
 			// get element
 			Element subClassEl = (Element)subClassEls.item(i);
 
-			// get discriminator value
+			// get discriminator value, sub classes of sub classes
+			// use the discriminator type of the closest ancestor
 			Object discriminatorValue = MappingUtil.parseDiscriminator(
-				subClassEl.getAttribute("discriminator-value"), discriminatorType);
+				subClassEl.getAttribute("discriminator-value"),
+				findDiscriminatorType(descriptorEl));
 
 			// parse sub class
 			ObjectDescriptor subClass = parseDescriptor(subClassEl, descriptors);
@@ -277,4 +322,97 @@ public class XmlObjectDescriptorParser {
 		return descriptor;
 	}
 
+	/**
+	 * Returns the names of the properties passed to a creator.
+	 * @param creatorEl the creator element
+	 * @return the names
+	 */
+	private String[] parseCreatorProperties(Element creatorEl) {
+		List<String> ret = new ArrayList<String>();
+		for (String name : creatorEl.getAttribute("properties").split(",")) {
+			if (name.trim().length()>0) {
+				ret.add(name.trim());
+			}
+		}
+		return ret.toArray(new String[0]);
+	}
+
+	/**
+	 * Finds the constructor, or the static method named by the
+	 * creator element's {@code method} attribute, whose parameters
+	 * accept the types of the creator's properties.
+	 * @param objClass the class
+	 * @param creatorEl the creator element
+	 * @param descriptor the descriptor being parsed
+	 * @param descriptors the descriptors parsed so far
+	 * @return the creator
+	 */
+	private Member findCreator(
+		Class<?> objClass, Element creatorEl, ObjectDescriptor descriptor,
+		List<ObjectDescriptor> descriptors) {
+
+		// get the property types
+		String[] names = parseCreatorProperties(creatorEl);
+		Class<?>[] types = new Class<?>[names.length];
+		for (int i=0; i<names.length; i++) {
+			PropertyDescriptor prop = descriptor.getPropertyDescriptor(names[i]);
+			for (int j=descriptors.size()-1; prop==null && j>=0; j--) {
+				if (descriptors.get(j).getType().isAssignableFrom(objClass)) {
+					prop = descriptors.get(j).getPropertyDescriptor(names[i]);
+				}
+			}
+			if (prop==null) {
+				throw new IllegalArgumentException(
+					"Creator property "+names[i]+" not found for: "+objClass);
+			}
+			types[i] = prop.getType().asClass();
+		}
+
+		// find it
+		String methodName = creatorEl.hasAttribute("method")
+			? creatorEl.getAttribute("method") : null;
+		List<Member> candidates = new ArrayList<Member>();
+		if (methodName==null) {
+			for (Constructor<?> ctr : objClass.getDeclaredConstructors()) {
+				if (accepts(ctr.getParameterTypes(), types)) {
+					candidates.add(ctr);
+				}
+			}
+		} else {
+			for (Method method : objClass.getDeclaredMethods()) {
+				if (method.getName().equals(methodName)
+					&& Modifier.isStatic(method.getModifiers())
+					&& accepts(method.getParameterTypes(), types)) {
+					candidates.add(method);
+				}
+			}
+		}
+		if (candidates.size()!=1) {
+			throw new IllegalArgumentException(
+				(candidates.isEmpty() ? "Unable to find" : "Ambiguous")
+				+" creator "+(methodName!=null ? methodName : "constructor")
+				+" for properties "+Arrays.toString(names)+" of: "+objClass);
+		}
+		return candidates.get(0);
+	}
+
+	/**
+	 * Indicates whether or not parameters of the given types
+	 * accept values of the given property types.
+	 * @param paramTypes the parameter types
+	 * @param types the property types
+	 * @return true if they do
+	 */
+	private boolean accepts(Class<?>[] paramTypes, Class<?>[] types) {
+		if (paramTypes.length!=types.length) {
+			return false;
+		}
+		for (int i=0; i<paramTypes.length; i++) {
+			if (!paramTypes[i].isAssignableFrom(types[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 }
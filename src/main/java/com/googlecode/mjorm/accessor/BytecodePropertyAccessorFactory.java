@@ -0,0 +1,323 @@
+package com.googlecode.mjorm.accessor;
+
+import static com.googlecode.mjorm.accessor.ClassFileWriter.*;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.googlecode.mjorm.PropertyDescriptor;
+
+/**
+ * {@link PropertyAccessorFactory} that generates an accessor class
+ * for each mapped class.  The generated class calls the getters
+ * and setters (or reads and writes the fields) of the mapped class
+ * directly rather than through reflection.  Properties that can't
+ * be accessed by generated code (non public classes, methods or
+ * fields, and final fields) fall back to a {@link ReflectionPropertyAccessor}
+ * or {@link FieldPropertyAccessor}, as do all of the properties
+ * of a class if the accessor class can't be generated or loaded.
+ */
+public class BytecodePropertyAccessorFactory
+	implements PropertyAccessorFactory {
+
+	public static final BytecodePropertyAccessorFactory INSTANCE
+		= new BytecodePropertyAccessorFactory();
+
+	private static final String OBJECT = "java/lang/Object";
+	private static final String ACCESSOR = internalName(PropertyAccessor.class);
+	private static final String ILLEGAL_STATE = "java/lang/IllegalStateException";
+	private static final String INDEX_FIELD = "index";
+
+	private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public PropertyAccessor[] createAccessors(Class<?> clazz, PropertyDescriptor[] properties) {
+		PropertyAccessor[] ret = new PropertyAccessor[properties.length];
+
+		// figure out which properties we can generate code for
+		boolean[] generate = new boolean[properties.length];
+		boolean generateAny = false;
+		if (isAccessible(clazz) && !clazz.isInterface()) {
+			for (int i=0; i<properties.length; i++) {
+				generate[i] = canGenerate(properties[i]);
+				generateAny |= generate[i];
+			}
+		}
+
+		// generate the accessor class
+		if (generateAny) {
+			try {
+				Class<?> accessorClass = generateAccessorClass(clazz, properties, generate);
+				Constructor<?> ctr = accessorClass.getConstructor(int.class);
+				for (int i=0; i<properties.length; i++) {
+					if (generate[i]) {
+						ret[i] = PropertyAccessor.class.cast(ctr.newInstance(i));
+					}
+				}
+			} catch(Exception e) {
+				ret = new PropertyAccessor[properties.length];
+			} catch(LinkageError e) {
+				ret = new PropertyAccessor[properties.length];
+			}
+		}
+
+		// fall back to reflection for the rest
+		for (int i=0; i<properties.length; i++) {
+			if (ret[i]==null) {
+				ret[i] = ReflectionPropertyAccessorFactory.INSTANCE.createAccessor(properties[i]);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Indicates whether or not generated code is able to access
+	 * the getter and setter of the given property.
+	 * @param prop the property
+	 * @return true if it can
+	 */
+	private boolean canGenerate(PropertyDescriptor prop) {
+		Field field = prop.getField();
+		if (field!=null) {
+			int mod = field.getModifiers();
+			return Modifier.isPublic(mod)
+				&& !Modifier.isStatic(mod)
+				&& !Modifier.isFinal(mod)
+				&& isAccessible(field.getDeclaringClass())
+				&& isAccessible(field.getType());
+		}
+		Method getter = prop.getGetter();
+		Method setter = prop.getSetter();
+		if (getter==null && setter==null) {
+			return false;
+		} else if (getter!=null && (!isAccessible(getter) || getter.getParameterTypes().length!=0)) {
+			return false;
+		} else if (setter!=null && (!isAccessible(setter) || setter.getParameterTypes().length!=1)) {
+			return false;
+		}
+		return (getter==null || isAccessible(getter.getReturnType()))
+			&& (setter==null || isAccessible(setter.getParameterTypes()[0]));
+	}
+
+	/**
+	 * Indicates whether or not a public, non static method is
+	 * accessible from another class loader.
+	 * @param method the method
+	 * @return true if it is
+	 */
+	static boolean isAccessible(Method method) {
+		int mod = method.getModifiers();
+		return Modifier.isPublic(mod)
+			&& !Modifier.isStatic(mod)
+			&& isAccessible(method.getDeclaringClass());
+	}
+
+	/**
+	 * Indicates whether or not the given class is accessible
+	 * from another class loader.
+	 * @param clazz the class
+	 * @return true if it is
+	 */
+	static boolean isAccessible(Class<?> clazz) {
+		while (clazz.isArray()) {
+			clazz = clazz.getComponentType();
+		}
+		return clazz.isPrimitive() || Modifier.isPublic(clazz.getModifiers());
+	}
+
+	/**
+	 * Generates and loads the accessor class for the given class.
+	 * @param clazz the class
+	 * @param properties the properties
+	 * @param generate which properties to generate code for
+	 * @return the accessor class
+	 */
+	private Class<?> generateAccessorClass(
+		Class<?> clazz, PropertyDescriptor[] properties, boolean[] generate) {
+
+		// create class
+		String className = "com/googlecode/mjorm/accessor/generated/"
+			+clazz.getSimpleName()+"$$PropertyAccessor$"+CLASS_COUNTER.incrementAndGet();
+		ClassFileWriter cw = new ClassFileWriter(className, OBJECT, ACCESSOR);
+		cw.addField(ACC_PRIVATE | ACC_FINAL, INDEX_FIELD, "I");
+		int indexField = cw.fieldRef(className, INDEX_FIELD, "I");
+		String target = internalName(clazz);
+
+		// constructor
+		ClassFileWriter.Code code = new ClassFileWriter.Code();
+		code.u1(ALOAD_0)
+			.u1(INVOKESPECIAL).u2(cw.methodRef(OBJECT, "<init>", "()V"))
+			.u1(ALOAD_0)
+			.u1(ILOAD_1)
+			.u1(PUTFIELD).u2(indexField)
+			.u1(RETURN);
+		cw.addMethod(ACC_PUBLIC, "<init>", "(I)V", 2, 2, code);
+
+		// get
+		code = new ClassFileWriter.Code();
+		code.u1(ALOAD_0).u1(GETFIELD).u2(indexField);
+		int tableSwitch = code.tableSwitch(properties.length);
+		boolean[] handled = new boolean[properties.length];
+		for (int i=0; i<properties.length; i++) {
+			Field field = properties[i].getField();
+			Method getter = properties[i].getGetter();
+			if (!generate[i] || (field==null && getter==null)) {
+				continue;
+			}
+			handled[i] = true;
+			code.setSwitchCase(tableSwitch, i, code.length());
+			code.u1(ALOAD_1)
+				.u1(CHECKCAST).u2(cw.classRef(target));
+			if (field!=null) {
+				code.u1(GETFIELD).u2(cw.fieldRef(
+					internalName(field.getDeclaringClass()), field.getName(), descriptor(field.getType())));
+				box(cw, code, field.getType());
+			} else {
+				code.u1(INVOKEVIRTUAL).u2(cw.methodRef(target, getter.getName(), descriptor(getter)));
+				box(cw, code, getter.getReturnType());
+			}
+			code.u1(ARETURN);
+		}
+		fillSwitch(cw, code, tableSwitch, handled, "Property doesn't have a getter");
+		cw.addMethod(ACC_PUBLIC, "get", descriptor(Object.class, Object.class), 4, 2, code);
+
+		// set
+		code = new ClassFileWriter.Code();
+		code.u1(ALOAD_0).u1(GETFIELD).u2(indexField);
+		tableSwitch = code.tableSwitch(properties.length);
+		handled = new boolean[properties.length];
+		for (int i=0; i<properties.length; i++) {
+			Field field = properties[i].getField();
+			Method setter = properties[i].getSetter();
+			if (!generate[i] || (field==null && setter==null)) {
+				continue;
+			}
+			handled[i] = true;
+			code.setSwitchCase(tableSwitch, i, code.length());
+			code.u1(ALOAD_1)
+				.u1(CHECKCAST).u2(cw.classRef(target))
+				.u1(ALOAD_2);
+			if (field!=null) {
+				unbox(cw, code, field.getType());
+				code.u1(PUTFIELD).u2(cw.fieldRef(
+					internalName(field.getDeclaringClass()), field.getName(), descriptor(field.getType())));
+			} else {
+				unbox(cw, code, setter.getParameterTypes()[0]);
+				code.u1(INVOKEVIRTUAL).u2(cw.methodRef(target, setter.getName(), descriptor(setter)));
+				pop(code, setter.getReturnType());
+			}
+			code.u1(RETURN);
+		}
+		fillSwitch(cw, code, tableSwitch, handled, "Property doesn't have a setter");
+		cw.addMethod(ACC_PUBLIC, "set", descriptor(void.class, Object.class, Object.class), 4, 3, code);
+
+		// load it
+		return new GeneratedClassLoader(clazz.getClassLoader())
+			.define(className.replace('/', '.'), cw.toByteArray());
+	}
+
+	/**
+	 * Points all of the unhandled cases of a tableswitch (and it's
+	 * default) at code that throws an {@link IllegalStateException}.
+	 * @param cw the class writer
+	 * @param code the code
+	 * @param tableSwitch the position of the tableswitch
+	 * @param handled which cases have already been pointed elsewhere
+	 * @param message the exception message
+	 */
+	private void fillSwitch(
+		ClassFileWriter cw, ClassFileWriter.Code code, int tableSwitch, boolean[] handled, String message) {
+		int pos = code.length();
+		code.u1(NEW).u2(cw.classRef(ILLEGAL_STATE))
+			.u1(DUP)
+			.u1(LDC_W).u2(cw.string(message))
+			.u1(INVOKESPECIAL).u2(cw.methodRef(ILLEGAL_STATE, "<init>", "(Ljava/lang/String;)V"))
+			.u1(ATHROW);
+		code.setSwitchDefault(tableSwitch, pos);
+		for (int i=0; i<handled.length; i++) {
+			if (!handled[i]) {
+				code.setSwitchCase(tableSwitch, i, pos);
+			}
+		}
+	}
+
+	/**
+	 * Boxes the primitive on top of the stack, if it is one.
+	 * @param cw the class writer
+	 * @param code the code
+	 * @param type the type on top of the stack
+	 */
+	private void box(ClassFileWriter cw, ClassFileWriter.Code code, Class<?> type) {
+		if (!type.isPrimitive()) {
+			return;
+		}
+		Class<?> wrapper = wrapperFor(type);
+		code.u1(INVOKESTATIC).u2(cw.methodRef(
+			internalName(wrapper), "valueOf", descriptor(wrapper, type)));
+	}
+
+	/**
+	 * Casts (and unboxes, if needed) the object on top of the
+	 * stack to the given type.
+	 * @param cw the class writer
+	 * @param code the code
+	 * @param type the type needed
+	 */
+	private void unbox(ClassFileWriter cw, ClassFileWriter.Code code, Class<?> type) {
+		if (type.equals(Object.class)) {
+			return;
+		} else if (!type.isPrimitive()) {
+			code.u1(CHECKCAST).u2(cw.classRef(internalName(type)));
+			return;
+		}
+		Class<?> owner = (type==boolean.class || type==char.class)
+			? wrapperFor(type)
+			: Number.class;
+		code.u1(CHECKCAST).u2(cw.classRef(internalName(owner)))
+			.u1(INVOKEVIRTUAL).u2(cw.methodRef(
+				internalName(owner), type.getName()+"Value", descriptor(type, new Class<?>[0])));
+	}
+
+	/**
+	 * Pops an unused return value off of the stack.
+	 * @param code the code
+	 * @param type the type of the return value
+	 */
+	private void pop(ClassFileWriter.Code code, Class<?> type) {
+		if (type==long.class || type==double.class) {
+			code.u1(POP2);
+		} else if (type!=void.class) {
+			code.u1(POP);
+		}
+	}
+
+	/**
+	 * Returns the wrapper class for a primitive type.
+	 * @param type the primitive type
+	 * @return the wrapper
+	 */
+	private static Class<?> wrapperFor(Class<?> type) {
+		if (type==boolean.class) {
+			return Boolean.class;
+		} else if (type==char.class) {
+			return Character.class;
+		} else if (type==byte.class) {
+			return Byte.class;
+		} else if (type==short.class) {
+			return Short.class;
+		} else if (type==int.class) {
+			return Integer.class;
+		} else if (type==long.class) {
+			return Long.class;
+		} else if (type==float.class) {
+			return Float.class;
+		}
+		return Double.class;
+	}
+
+}
@@ -0,0 +1,485 @@
+package com.googlecode.mjorm.accessor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal writer for java class files.  It only supports what
+ * is needed to generate simple accessor and lazy entity classes:
+ * a constant pool, fields without attributes and methods with a
+ * single Code attribute.  Classes are written as version 49 (java 5) class
+ * files so that no stack map frames need to be computed.
+ */
+final class ClassFileWriter {
+
+	public static final int ACC_PUBLIC		= 0x0001;
+	public static final int ACC_PRIVATE		= 0x0002;
+	public static final int ACC_FINAL		= 0x0010;
+	public static final int ACC_SUPER		= 0x0020;
+
+	public static final int ALOAD_0			= 0x2a;
+	public static final int ALOAD_1			= 0x2b;
+	public static final int ALOAD_2			= 0x2c;
+	public static final int ILOAD_1			= 0x1b;
+	public static final int LLOAD_1			= 0x1f;
+	public static final int FLOAD_1			= 0x23;
+	public static final int DLOAD_1			= 0x27;
+	public static final int SIPUSH			= 0x11;
+	public static final int LDC_W			= 0x13;
+	public static final int POP				= 0x57;
+	public static final int POP2			= 0x58;
+	public static final int DUP				= 0x59;
+	public static final int TABLESWITCH		= 0xaa;
+	public static final int IRETURN			= 0xac;
+	public static final int LRETURN			= 0xad;
+	public static final int FRETURN			= 0xae;
+	public static final int DRETURN			= 0xaf;
+	public static final int ARETURN			= 0xb0;
+	public static final int RETURN			= 0xb1;
+	public static final int GETFIELD		= 0xb4;
+	public static final int PUTFIELD		= 0xb5;
+	public static final int INVOKEVIRTUAL	= 0xb6;
+	public static final int INVOKESPECIAL	= 0xb7;
+	public static final int INVOKESTATIC	= 0xb8;
+	public static final int NEW				= 0xbb;
+	public static final int ATHROW			= 0xbf;
+	public static final int CHECKCAST		= 0xc0;
+	public static final int IFNULL			= 0xc6;
+
+	private static final int CONSTANT_UTF8			= 1;
+	private static final int CONSTANT_CLASS			= 7;
+	private static final int CONSTANT_STRING		= 8;
+	private static final int CONSTANT_FIELDREF		= 9;
+	private static final int CONSTANT_METHODREF		= 10;
+	private static final int CONSTANT_NAMEANDTYPE	= 12;
+
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(poolBytes);
+	private final Map<String, Integer> poolIndexes = new HashMap<String, Integer>();
+	private int poolCount = 1;
+
+	private final List<byte[]> fields = new ArrayList<byte[]>();
+	private final List<byte[]> methods = new ArrayList<byte[]>();
+
+	private final int thisClass;
+	private final int superClass;
+	private final int[] interfaces;
+
+	/**
+	 * Creates the writer.
+	 * @param className the internal name of the class to write
+	 * @param superName the internal name of the super class
+	 * @param interfaceNames the internal names of the implemented interfaces
+	 */
+	ClassFileWriter(String className, String superName, String... interfaceNames) {
+		this.thisClass	= classRef(className);
+		this.superClass	= classRef(superName);
+		this.interfaces	= new int[interfaceNames.length];
+		for (int i=0; i<interfaceNames.length; i++) {
+			interfaces[i] = classRef(interfaceNames[i]);
+		}
+	}
+
+	/**
+	 * Returns the internal name of a class, as used by
+	 * CONSTANT_Class entries.
+	 * @param clazz the class
+	 * @return the internal name
+	 */
+	static String internalName(Class<?> clazz) {
+		return clazz.isArray()
+			? descriptor(clazz)
+			: clazz.getName().replace('.', '/');
+	}
+
+	/**
+	 * Returns the field descriptor of a class.
+	 * @param clazz the class
+	 * @return the descriptor
+	 */
+	static String descriptor(Class<?> clazz) {
+		if (clazz.isArray()) {
+			return clazz.getName().replace('.', '/');
+		} else if (!clazz.isPrimitive()) {
+			return "L"+clazz.getName().replace('.', '/')+";";
+		} else if (clazz==boolean.class) {
+			return "Z";
+		} else if (clazz==char.class) {
+			return "C";
+		} else if (clazz==byte.class) {
+			return "B";
+		} else if (clazz==short.class) {
+			return "S";
+		} else if (clazz==int.class) {
+			return "I";
+		} else if (clazz==long.class) {
+			return "J";
+		} else if (clazz==float.class) {
+			return "F";
+		} else if (clazz==double.class) {
+			return "D";
+		}
+		return "V";
+	}
+
+	/**
+	 * Returns the method descriptor of a method.
+	 * @param method the method
+	 * @return the descriptor
+	 */
+	static String descriptor(Method method) {
+		return descriptor(method.getReturnType(), method.getParameterTypes());
+	}
+
+	/**
+	 * Returns a method descriptor.
+	 * @param returnType the return type
+	 * @param parameterTypes the parameter types
+	 * @return the descriptor
+	 */
+	static String descriptor(Class<?> returnType, Class<?>... parameterTypes) {
+		StringBuilder ret = new StringBuilder("(");
+		for (Class<?> type : parameterTypes) {
+			ret.append(descriptor(type));
+		}
+		return ret.append(")").append(descriptor(returnType)).toString();
+	}
+
+	/**
+	 * Returns the index of a CONSTANT_Utf8 entry.
+	 * @param value the value
+	 * @return the index
+	 */
+	int utf8(String value) {
+		Integer ret = poolIndexes.get("U"+value);
+		if (ret==null) {
+			try {
+				pool.writeByte(CONSTANT_UTF8);
+				pool.writeUTF(value);
+			} catch(IOException e) {
+				throw new IllegalStateException(e);
+			}
+			ret = addEntry("U"+value);
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the index of a CONSTANT_Class entry.
+	 * @param internalName the internal name of the class
+	 * @return the index
+	 */
+	int classRef(String internalName) {
+		return ref("C"+internalName, CONSTANT_CLASS, utf8(internalName), -1);
+	}
+
+	/**
+	 * Returns the index of a CONSTANT_String entry.
+	 * @param value the value
+	 * @return the index
+	 */
+	int string(String value) {
+		return ref("S"+value, CONSTANT_STRING, utf8(value), -1);
+	}
+
+	/**
+	 * Returns the index of a CONSTANT_Fieldref entry.
+	 * @param owner the internal name of the owner
+	 * @param name the field name
+	 * @param descriptor the field descriptor
+	 * @return the index
+	 */
+	int fieldRef(String owner, String name, String descriptor) {
+		return ref("F"+owner+"."+name+":"+descriptor, CONSTANT_FIELDREF,
+			classRef(owner), nameAndType(name, descriptor));
+	}
+
+	/**
+	 * Returns the index of a CONSTANT_Methodref entry.
+	 * @param owner the internal name of the owner
+	 * @param name the method name
+	 * @param descriptor the method descriptor
+	 * @return the index
+	 */
+	int methodRef(String owner, String name, String descriptor) {
+		return ref("M"+owner+"."+name+descriptor, CONSTANT_METHODREF,
+			classRef(owner), nameAndType(name, descriptor));
+	}
+
+	/**
+	 * Returns the index of a CONSTANT_NameAndType entry.
+	 * @param name the name
+	 * @param descriptor the descriptor
+	 * @return the index
+	 */
+	private int nameAndType(String name, String descriptor) {
+		return ref("N"+name+":"+descriptor, CONSTANT_NAMEANDTYPE,
+			utf8(name), utf8(descriptor));
+	}
+
+	/**
+	 * Adds a constant pool entry that refers to one or two other entries.
+	 * @param key the dedupe key
+	 * @param tag the tag
+	 * @param first the first index
+	 * @param second the second index, or -1
+	 * @return the index
+	 */
+	private int ref(String key, int tag, int first, int second) {
+		Integer ret = poolIndexes.get(key);
+		if (ret==null) {
+			try {
+				pool.writeByte(tag);
+				pool.writeShort(first);
+				if (second>=0) {
+					pool.writeShort(second);
+				}
+			} catch(IOException e) {
+				throw new IllegalStateException(e);
+			}
+			ret = addEntry(key);
+		}
+		return ret;
+	}
+
+	/**
+	 * Records a constant pool entry.
+	 * @param key the key
+	 * @return the index
+	 */
+	private int addEntry(String key) {
+		int ret = poolCount++;
+		poolIndexes.put(key, ret);
+		return ret;
+	}
+
+	/**
+	 * Adds a field.
+	 * @param access the access flags
+	 * @param name the name
+	 * @param descriptor the descriptor
+	 */
+	void addField(int access, String name, String descriptor) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeShort(access);
+			out.writeShort(utf8(name));
+			out.writeShort(utf8(descriptor));
+			out.writeShort(0);
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+		fields.add(bytes.toByteArray());
+	}
+
+	/**
+	 * Adds a method.
+	 * @param access the access flags
+	 * @param name the name
+	 * @param descriptor the descriptor
+	 * @param maxStack the maximum operand stack depth
+	 * @param maxLocals the number of local variable slots
+	 * @param code the code
+	 */
+	void addMethod(int access, String name, String descriptor, int maxStack, int maxLocals, Code code) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeShort(access);
+			out.writeShort(utf8(name));
+			out.writeShort(utf8(descriptor));
+			out.writeShort(1);
+			out.writeShort(utf8("Code"));
+			out.writeInt(12+code.length());
+			out.writeShort(maxStack);
+			out.writeShort(maxLocals);
+			out.writeInt(code.length());
+			out.write(code.bytes(), 0, code.length());
+			out.writeShort(0);
+			out.writeShort(0);
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+		methods.add(bytes.toByteArray());
+	}
+
+	/**
+	 * Returns the class file.
+	 * @return the bytes
+	 */
+	byte[] toByteArray() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(49);
+			out.writeShort(poolCount);
+			pool.flush();
+			poolBytes.writeTo(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(interfaces.length);
+			for (int i : interfaces) {
+				out.writeShort(i);
+			}
+			out.writeShort(fields.size());
+			for (byte[] field : fields) {
+				out.write(field);
+			}
+			out.writeShort(methods.size());
+			for (byte[] method : methods) {
+				out.write(method);
+			}
+			out.writeShort(0);
+		} catch(IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * A growable buffer of byte code.
+	 */
+	static final class Code {
+
+		private byte[] bytes = new byte[64];
+		private int length;
+
+		/**
+		 * @return the current length (and the position
+		 * of the next instruction)
+		 */
+		int length() {
+			return length;
+		}
+
+		/**
+		 * @return the underlying bytes
+		 */
+		byte[] bytes() {
+			return bytes;
+		}
+
+		/**
+		 * Appends a single byte.
+		 * @param b the byte
+		 * @return this
+		 */
+		Code u1(int b) {
+			if (length==bytes.length) {
+				byte[] grown = new byte[bytes.length*2];
+				System.arraycopy(bytes, 0, grown, 0, length);
+				bytes = grown;
+			}
+			bytes[length++] = (byte)b;
+			return this;
+		}
+
+		/**
+		 * Appends two bytes.
+		 * @param s the value
+		 * @return this
+		 */
+		Code u2(int s) {
+			return u1(s >>> 8).u1(s);
+		}
+
+		/**
+		 * Appends four bytes.
+		 * @param i the value
+		 * @return this
+		 */
+		Code u4(int i) {
+			return u1(i >>> 24).u1(i >>> 16).u1(i >>> 8).u1(i);
+		}
+
+		/**
+		 * Overwrites two bytes at the given position.
+		 * @param pos the position
+		 * @param s the value
+		 */
+		void set2(int pos, int s) {
+			bytes[pos]		= (byte)(s >>> 8);
+			bytes[pos+1]	= (byte)s;
+		}
+
+		/**
+		 * Overwrites four bytes at the given position.
+		 * @param pos the position
+		 * @param i the value
+		 */
+		void set4(int pos, int i) {
+			bytes[pos]		= (byte)(i >>> 24);
+			bytes[pos+1]	= (byte)(i >>> 16);
+			bytes[pos+2]	= (byte)(i >>> 8);
+			bytes[pos+3]	= (byte)i;
+		}
+
+		/**
+		 * Appends a tableswitch instruction for the keys
+		 * {@code 0..count-1} with all of it's jump offsets
+		 * unset.
+		 * @param count the number of cases
+		 * @return the position of the instruction
+		 */
+		int tableSwitch(int count) {
+			int ret = length;
+			u1(TABLESWITCH);
+			while (length%4!=0) {
+				u1(0);
+			}
+			u4(0);
+			u4(0);
+			u4(count-1);
+			for (int i=0; i<count; i++) {
+				u4(0);
+			}
+			return ret;
+		}
+
+		/**
+		 * Points the default of the given tableswitch instruction
+		 * at the given position.
+		 * @param switchPos the position of the tableswitch
+		 * @param target the jump target
+		 */
+		void setSwitchDefault(int switchPos, int target) {
+			set4(switchOperands(switchPos), target-switchPos);
+		}
+
+		/**
+		 * Points a case of the given tableswitch instruction
+		 * at the given position.
+		 * @param switchPos the position of the tableswitch
+		 * @param key the case key
+		 * @param target the jump target
+		 */
+		void setSwitchCase(int switchPos, int key, int target) {
+			set4(switchOperands(switchPos)+12+(key*4), target-switchPos);
+		}
+
+		/**
+		 * Returns the position of the first (aligned) operand
+		 * of the tableswitch at the given position.
+		 * @param switchPos the position
+		 * @return the operand position
+		 */
+		private int switchOperands(int switchPos) {
+			int ret = switchPos+1;
+			while (ret%4!=0) {
+				ret++;
+			}
+			return ret;
+		}
+	}
+
+}
@@ -0,0 +1,39 @@
+package com.googlecode.mjorm.accessor;
+
+import java.lang.reflect.Field;
+
+/**
+ * {@link PropertyAccessor} that uses reflection to read
+ * and write a property's field directly.
+ */
+public class FieldPropertyAccessor
+	implements PropertyAccessor {
+
+	private final Field field;
+
+	/**
+	 * Creates the {@link FieldPropertyAccessor}.
+	 * @param field the field
+	 */
+	public FieldPropertyAccessor(Field field) {
+		this.field = field;
+		field.setAccessible(true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Object get(Object target)
+		throws IllegalAccessException {
+		return field.get(target);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void set(Object target, Object value)
+		throws IllegalAccessException {
+		field.set(target, value);
+	}
+
+}
@@ -0,0 +1,28 @@
+package com.googlecode.mjorm.accessor;
+
+/**
+ * Loads generated classes.  The parent is the loader of the
+ * mapped class so that the generated class can see it.
+ */
+class GeneratedClassLoader
+	extends ClassLoader {
+
+	/**
+	 * Creates the class loader.
+	 * @param parent the parent
+	 */
+	GeneratedClassLoader(ClassLoader parent) {
+		super(parent!=null ? parent : GeneratedClassLoader.class.getClassLoader());
+	}
+
+	/**
+	 * Defines the class.
+	 * @param name the name of the class
+	 * @param bytes the class file
+	 * @return the class
+	 */
+	Class<?> define(String name, byte[] bytes) {
+		return defineClass(name, bytes, 0, bytes.length);
+	}
+
+}
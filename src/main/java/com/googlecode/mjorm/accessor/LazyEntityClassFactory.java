@@ -0,0 +1,257 @@
+package com.googlecode.mjorm.accessor;
+
+import static com.googlecode.mjorm.accessor.ClassFileWriter.*;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.googlecode.mjorm.LazyEntity;
+import com.googlecode.mjorm.LazyLoader;
+
+/**
+ * Generates the subclasses used for lazily mapped objects.  The
+ * generated class implements {@link LazyEntity}, it overrides the
+ * getter of each lazy property to have the {@link LazyLoader} load
+ * the property first and it's setter to mark the property as loaded.
+ */
+public final class LazyEntityClassFactory {
+
+	private static final String LAZY_ENTITY = internalName(LazyEntity.class);
+	private static final String LAZY_LOADER = internalName(LazyLoader.class);
+	private static final String LOADER_FIELD = "lazyLoader";
+
+	private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+
+	/**
+	 * Does nothing.
+	 */
+	private LazyEntityClassFactory() { }
+
+	/**
+	 * Indicates whether or not a lazy subclass can be generated
+	 * for the given class: it must be public, not final or abstract,
+	 * and have a public or protected no-arg constructor.
+	 * @param clazz the class
+	 * @return true if it can
+	 */
+	public static boolean canSubclass(Class<?> clazz) {
+		int mod = clazz.getModifiers();
+		if (!Modifier.isPublic(mod) || Modifier.isFinal(mod) || Modifier.isAbstract(mod)
+			|| clazz.isInterface() || clazz.isArray() || clazz.isPrimitive()
+			|| (clazz.getEnclosingClass()!=null && !Modifier.isStatic(mod))) {
+			return false;
+		}
+		try {
+			Constructor<?> ctr = clazz.getDeclaredConstructor();
+			return Modifier.isPublic(ctr.getModifiers())
+				|| Modifier.isProtected(ctr.getModifiers());
+		} catch(NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Indicates whether or not the generated class can override
+	 * the given getter or setter.
+	 * @param method the method
+	 * @return true if it can
+	 */
+	public static boolean canOverride(Method method) {
+		if (!BytecodePropertyAccessorFactory.isAccessible(method)
+			|| Modifier.isFinal(method.getModifiers())
+			|| !BytecodePropertyAccessorFactory.isAccessible(method.getReturnType())) {
+			return false;
+		}
+		for (Class<?> type : method.getParameterTypes()) {
+			if (!BytecodePropertyAccessorFactory.isAccessible(type)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Generates and loads the lazy subclass of the given class.  It
+	 * has a single public constructor that takes the {@link LazyLoader},
+	 * the index passed to the loader for a property is it's index in
+	 * the given arrays.
+	 * @param clazz the class
+	 * @param getters the getters to override, null for properties
+	 * that aren't lazy
+	 * @param setters the setters to override, may contain nulls
+	 * @return the class, or null if it couldn't be generated
+	 */
+	public static Class<?> createLazyClass(Class<?> clazz, Method[] getters, Method[] setters) {
+		if (!canSubclass(clazz)) {
+			return null;
+		}
+		try {
+			return generateLazyClass(clazz, getters, setters);
+		} catch(Exception e) {
+			return null;
+		} catch(LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Generates and loads the lazy subclass.
+	 * @param clazz the class
+	 * @param getters the getters
+	 * @param setters the setters
+	 * @return the class
+	 */
+	private static Class<?> generateLazyClass(Class<?> clazz, Method[] getters, Method[] setters) {
+
+		// create class
+		String className = "com/googlecode/mjorm/accessor/generated/"
+			+clazz.getSimpleName()+"$$Lazy$"+CLASS_COUNTER.incrementAndGet();
+		String superName = internalName(clazz);
+		ClassFileWriter cw = new ClassFileWriter(className, superName, LAZY_ENTITY);
+		String loaderDesc = "L"+LAZY_LOADER+";";
+		cw.addField(ACC_PRIVATE | ACC_FINAL, LOADER_FIELD, loaderDesc);
+		int loaderField = cw.fieldRef(className, LOADER_FIELD, loaderDesc);
+
+		// constructor
+		ClassFileWriter.Code code = new ClassFileWriter.Code();
+		code.u1(ALOAD_0)
+			.u1(INVOKESPECIAL).u2(cw.methodRef(superName, "<init>", "()V"))
+			.u1(ALOAD_0)
+			.u1(ALOAD_1)
+			.u1(PUTFIELD).u2(loaderField)
+			.u1(RETURN);
+		cw.addMethod(ACC_PUBLIC, "<init>", "("+loaderDesc+")V", 2, 2, code);
+
+		// getLazyLoader
+		code = new ClassFileWriter.Code();
+		code.u1(ALOAD_0)
+			.u1(GETFIELD).u2(loaderField)
+			.u1(ARETURN);
+		cw.addMethod(ACC_PUBLIC, "getLazyLoader", "()"+loaderDesc, 1, 1, code);
+
+		// getters load first
+		int load = cw.methodRef(LAZY_LOADER, "load", descriptor(void.class, Object.class, int.class));
+		for (int i=0; i<getters.length; i++) {
+			Method getter = getters[i];
+			if (getter==null) {
+				continue;
+			}
+			code = new ClassFileWriter.Code();
+			int skip = ifNoLoader(code, loaderField);
+			code.u1(ALOAD_0)
+				.u1(GETFIELD).u2(loaderField)
+				.u1(ALOAD_0)
+				.u1(SIPUSH).u2(i)
+				.u1(INVOKEVIRTUAL).u2(load);
+			jumpHere(code, skip);
+			code.u1(ALOAD_0)
+				.u1(INVOKESPECIAL).u2(cw.methodRef(superName, getter.getName(), descriptor(getter)));
+			code.u1(returnOp(getter.getReturnType()));
+			cw.addMethod(ACC_PUBLIC, getter.getName(), descriptor(getter), 3, 1, code);
+		}
+
+		// setters mark as loaded
+		int loaded = cw.methodRef(LAZY_LOADER, "loaded", descriptor(void.class, int.class));
+		for (int i=0; i<setters.length; i++) {
+			Method setter = setters[i];
+			if (setter==null || getters[i]==null) {
+				continue;
+			}
+			Class<?> type = setter.getParameterTypes()[0];
+			code = new ClassFileWriter.Code();
+			int skip = ifNoLoader(code, loaderField);
+			code.u1(ALOAD_0)
+				.u1(GETFIELD).u2(loaderField)
+				.u1(SIPUSH).u2(i)
+				.u1(INVOKEVIRTUAL).u2(loaded);
+			jumpHere(code, skip);
+			code.u1(ALOAD_0)
+				.u1(loadOp(type))
+				.u1(INVOKESPECIAL).u2(cw.methodRef(superName, setter.getName(), descriptor(setter)));
+			code.u1(returnOp(setter.getReturnType()));
+			cw.addMethod(ACC_PUBLIC, setter.getName(), descriptor(setter), 3, 1+size(type), code);
+		}
+
+		// load it
+		return new GeneratedClassLoader(clazz.getClassLoader())
+			.define(className.replace('/', '.'), cw.toByteArray());
+	}
+
+	/**
+	 * Appends a jump, taken when the loader hasn't been set, to a
+	 * position that's set later with {@link #jumpHere(ClassFileWriter.Code, int)}.
+	 * The loader is set after the super constructor returns, so
+	 * getters and setters called by the constructor aren't lazy.
+	 * @param code the code
+	 * @param loaderField the loader field
+	 * @return the position of the jump
+	 */
+	private static int ifNoLoader(ClassFileWriter.Code code, int loaderField) {
+		code.u1(ALOAD_0)
+			.u1(GETFIELD).u2(loaderField);
+		int ret = code.length();
+		code.u1(IFNULL).u2(0);
+		return ret;
+	}
+
+	/**
+	 * Points the given jump at the next instruction.
+	 * @param code the code
+	 * @param jump the position of the jump
+	 */
+	private static void jumpHere(ClassFileWriter.Code code, int jump) {
+		code.set2(jump+1, code.length()-jump);
+	}
+
+	/**
+	 * Returns the instruction that loads the first parameter
+	 * of the given type.
+	 * @param type the type
+	 * @return the instruction
+	 */
+	private static int loadOp(Class<?> type) {
+		if (!type.isPrimitive()) {
+			return ALOAD_1;
+		} else if (type==long.class) {
+			return LLOAD_1;
+		} else if (type==float.class) {
+			return FLOAD_1;
+		} else if (type==double.class) {
+			return DLOAD_1;
+		}
+		return ILOAD_1;
+	}
+
+	/**
+	 * Returns the instruction that returns a value of the given type.
+	 * @param type the type
+	 * @return the instruction
+	 */
+	private static int returnOp(Class<?> type) {
+		if (type==void.class) {
+			return RETURN;
+		} else if (!type.isPrimitive()) {
+			return ARETURN;
+		} else if (type==long.class) {
+			return LRETURN;
+		} else if (type==float.class) {
+			return FRETURN;
+		} else if (type==double.class) {
+			return DRETURN;
+		}
+		return IRETURN;
+	}
+
+	/**
+	 * Returns the number of local variable slots used by a value
+	 * of the given type.
+	 * @param type the type
+	 * @return the size
+	 */
+	private static int size(Class<?> type) {
+		return (type==long.class || type==double.class) ? 2 : 1;
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.googlecode.mjorm.accessor;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Reads and writes a single property of an object.
+ */
+public interface PropertyAccessor {
+
+	/**
+	 * Gets the value of the property on the given target.
+	 * @param target the target
+	 * @return the value
+	 * @throws IllegalAccessException on error
+	 * @throws InvocationTargetException on error
+	 */
+	Object get(Object target)
+		throws IllegalAccessException,
+		InvocationTargetException;
+
+	/**
+	 * Sets the value of the property on the given target.
+	 * @param target the target
+	 * @param value the value
+	 * @throws IllegalAccessException on error
+	 * @throws InvocationTargetException on error
+	 */
+	void set(Object target, Object value)
+		throws IllegalAccessException,
+		InvocationTargetException;
+
+}
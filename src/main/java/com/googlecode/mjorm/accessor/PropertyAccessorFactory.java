@@ -0,0 +1,21 @@
+package com.googlecode.mjorm.accessor;
+
+import com.googlecode.mjorm.PropertyDescriptor;
+
+/**
+ * Creates {@link PropertyAccessor}s for the properties
+ * of a mapped class.
+ */
+public interface PropertyAccessorFactory {
+
+	/**
+	 * Creates a {@link PropertyAccessor} for each of the given
+	 * {@link PropertyDescriptor}s.  The returned array is in the
+	 * same order as the {@code properties} array.
+	 * @param clazz the class that the properties belong to
+	 * @param properties the properties
+	 * @return the {@link PropertyAccessor}s
+	 */
+	PropertyAccessor[] createAccessors(Class<?> clazz, PropertyDescriptor[] properties);
+
+}
@@ -0,0 +1,56 @@
+package com.googlecode.mjorm.accessor;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * {@link PropertyAccessor} that uses reflection to invoke
+ * a property's getter and setter.
+ */
+public class ReflectionPropertyAccessor
+	implements PropertyAccessor {
+
+	private final Method getter;
+	private final Method setter;
+
+	/**
+	 * Creates the {@link ReflectionPropertyAccessor}.
+	 * @param getter the getter, may be null
+	 * @param setter the setter, may be null
+	 */
+	public ReflectionPropertyAccessor(Method getter, Method setter) {
+		this.getter	= getter;
+		this.setter	= setter;
+		if (getter!=null) {
+			getter.setAccessible(true);
+		}
+		if (setter!=null) {
+			setter.setAccessible(true);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Object get(Object target)
+		throws IllegalAccessException,
+		InvocationTargetException {
+		if (getter==null) {
+			throw new IllegalStateException("Property doesn't have a getter");
+		}
+		return getter.invoke(target);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void set(Object target, Object value)
+		throws IllegalAccessException,
+		InvocationTargetException {
+		if (setter==null) {
+			throw new IllegalStateException("Property doesn't have a setter");
+		}
+		setter.invoke(target, value);
+	}
+
+}
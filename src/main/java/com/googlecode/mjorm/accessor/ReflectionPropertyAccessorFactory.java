@@ -0,0 +1,38 @@
+package com.googlecode.mjorm.accessor;
+
+import com.googlecode.mjorm.PropertyDescriptor;
+
+/**
+ * {@link PropertyAccessorFactory} that creates
+ * {@link ReflectionPropertyAccessor}s, or {@link FieldPropertyAccessor}s
+ * for properties that are accessed by field.
+ */
+public class ReflectionPropertyAccessorFactory
+	implements PropertyAccessorFactory {
+
+	public static final ReflectionPropertyAccessorFactory INSTANCE
+		= new ReflectionPropertyAccessorFactory();
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public PropertyAccessor[] createAccessors(Class<?> clazz, PropertyDescriptor[] properties) {
+		PropertyAccessor[] ret = new PropertyAccessor[properties.length];
+		for (int i=0; i<properties.length; i++) {
+			ret[i] = createAccessor(properties[i]);
+		}
+		return ret;
+	}
+
+	/**
+	 * Creates the reflective {@link PropertyAccessor} for a property.
+	 * @param property the property
+	 * @return the accessor
+	 */
+	public PropertyAccessor createAccessor(PropertyDescriptor property) {
+		return property.getField()!=null
+			? new FieldPropertyAccessor(property.getField())
+			: new ReflectionPropertyAccessor(property.getGetter(), property.getSetter());
+	}
+
+}
@@ -1,7 +1,11 @@
 package com.googlecode.mjorm.annotations;
 
 import java.beans.BeanInfo;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -103,67 +107,66 @@ public class AnnotationsObjectDescriptorParser {
 					method.getName()+" is not not a valid bean method.");
 			}
 
-			// "parse" data
-			String propField = !property.field().equals("")
-				? property.field()
-				: pd.getName();
-			Type propType = !property.type().equals(void.class)
-				? property.type()
-				: pd.getReadMethod().getGenericReturnType();
-			Type storageType = !property.storageType().equals(void.class)
-				? property.storageType()
-				: null;
-			Class<?> valueGeneratorClass = !property.valueGeneratorClass().equals(void.class)
-				? property.valueGeneratorClass()
-				: null;
-			Type[] genericParameterTypes = property.genericParameterTypes().length>0
-				? property.genericParameterTypes()
-				: new Type[0];
-			boolean propIsIdentifier = (id!=null);
-			boolean propIsAutoGen = (id!=null && id.autoGenerated());
-
-			// get the hints
-			Map<String, Object> hints = new HashMap<String, Object>();
-			if (property.typeConversionHints()!=null) {
-				for (TypeConversionHint hint : property.typeConversionHints()) {
-					hints.put(hint.name(), hint.stringValue());
-				}
-			}
-
 			// create the PropertyDescriptor
-			PropertyDescriptor prop = new PropertyDescriptor();
-			prop.setName(pd.getName());
-			prop.setFieldName(propField);
+			PropertyDescriptor prop = createPropertyDescriptor(
+				pd.getName(), pd.getReadMethod().getGenericReturnType(), property, id);
 			prop.setGetter(pd.getReadMethod());
 			prop.setSetter(pd.getWriteMethod());
-			prop.setIdentifier(propIsIdentifier);
-			prop.setType(JavaType.fromType(propType));
-			prop.setAutoGenerated(propIsAutoGen);
-			prop.setConversionHints(hints);
-			prop.setGenericParameterTypes(genericParameterTypes);
-			if (propIsAutoGen) {
-				ValueGenerator<?> valueGenerator = null;
-				if (valueGeneratorClass==null) {
-					valueGenerator = ObjectIdValueGenerator.INSTANCE;
-					storageType =  ObjectId.class;
-				} else {
-					try {
-						valueGenerator = ValueGenerator.class.cast(valueGeneratorClass.newInstance());
-					} catch(Exception e) {
-						throw new IllegalArgumentException(
-							"Unable to create ValueGenerator for "+valueGeneratorClass.getName(), e);
-					}
+
+			// add to descriptor
+			desc.addPropertyDescriptor(prop);
+		}
+
+		// get all of the fields
+		for (Class<?> c=clazz; c!=null && !c.equals(Object.class); c=c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+
+				// look for the annotations
+				Property property = field.getAnnotation(Property.class);
+				Id id = field.getAnnotation(Id.class);
+				if (property==null) {
+					continue;
 				}
-				prop.setValueGenerator(valueGenerator);
-			}
+				if (Modifier.isStatic(field.getModifiers())) {
+					throw new MjormException(
+						field.getName()+" is a static field.");
+				}
+
+				// create the PropertyDescriptor
+				PropertyDescriptor prop = createPropertyDescriptor(
+					field.getName(), field.getGenericType(), property, id);
+				prop.setField(field);
 
-			// set the storage type
-			if (storageType!=null) {
-				prop.setStorageType(JavaType.fromType(storageType));
+				// add to descriptor
+				desc.addPropertyDescriptor(prop);
 			}
+		}
 
-			// add to descriptor
-			desc.addPropertyDescriptor(prop);
+		// find the creator
+		Member creatorMember = null;
+		Creator creator = null;
+		for (Constructor<?> ctr : clazz.getDeclaredConstructors()) {
+			if (ctr.getAnnotation(Creator.class)!=null) {
+				if (creatorMember!=null) {
+					throw new MjormException(
+						clazz.getName()+" has more than one "+Creator.class.getName());
+				}
+				creatorMember = ctr;
+				creator = ctr.getAnnotation(Creator.class);
+			}
+		}
+		for (Method method : clazz.getDeclaredMethods()) {
+			if (method.getAnnotation(Creator.class)!=null) {
+				if (creatorMember!=null) {
+					throw new MjormException(
+						clazz.getName()+" has more than one "+Creator.class.getName());
+				}
+				creatorMember = method;
+				creator = method.getAnnotation(Creator.class);
+			}
+		}
+		if (creatorMember!=null) {
+			desc.setCreator(creatorMember, creator.properties());
 		}
 
 		// parse subclasses
@@ -185,4 +188,76 @@ public class AnnotationsObjectDescriptorParser {
 		return desc;
 	}
 
+	/**
+	 * Creates a {@link PropertyDescriptor} from a {@link Property}
+	 * annotation, the caller sets how the property is accessed.
+	 * @param name the name of the property
+	 * @param genericType the declared type of the property
+	 * @param property the {@link Property} annotation
+	 * @param id the {@link Id} annotation, may be null
+	 * @return the {@link PropertyDescriptor}
+	 */
+	private PropertyDescriptor createPropertyDescriptor(
+		String name, Type genericType, Property property, Id id) {
+
+		// "parse" data
+		String propField = !property.field().equals("")
+			? property.field()
+			: name;
+		Type propType = !property.type().equals(void.class)
+			? property.type()
+			: genericType;
+		Type storageType = !property.storageType().equals(void.class)
+			? property.storageType()
+			: null;
+		Class<?> valueGeneratorClass = !property.valueGeneratorClass().equals(void.class)
+			? property.valueGeneratorClass()
+			: null;
+		Type[] genericParameterTypes = property.genericParameterTypes().length>0
+			? property.genericParameterTypes()
+			: new Type[0];
+		boolean propIsIdentifier = (id!=null);
+		boolean propIsAutoGen = (id!=null && id.autoGenerated());
+
+		// get the hints
+		Map<String, Object> hints = new HashMap<String, Object>();
+		if (property.typeConversionHints()!=null) {
+			for (TypeConversionHint hint : property.typeConversionHints()) {
+				hints.put(hint.name(), hint.stringValue());
+			}
+		}
+
+		// create the PropertyDescriptor
+		PropertyDescriptor prop = new PropertyDescriptor();
+		prop.setName(name);
+		prop.setFieldName(propField);
+		prop.setIdentifier(propIsIdentifier);
+		prop.setType(JavaType.fromType(propType));
+		prop.setAutoGenerated(propIsAutoGen);
+		prop.setConversionHints(hints);
+		prop.setGenericParameterTypes(genericParameterTypes);
+		if (propIsAutoGen) {
+			ValueGenerator<?> valueGenerator = null;
+			if (valueGeneratorClass==null) {
+				valueGenerator = ObjectIdValueGenerator.INSTANCE;
+				storageType =  ObjectId.class;
+			} else {
+				try {
+					valueGenerator = ValueGenerator.class.cast(valueGeneratorClass.newInstance());
+				} catch(Exception e) {
+					throw new IllegalArgumentException(
+						"Unable to create ValueGenerator for "+valueGeneratorClass.getName(), e);
+				}
+			}
+			prop.setValueGenerator(valueGenerator);
+		}
+
+		// set the storage type
+		if (storageType!=null) {
+			prop.setStorageType(JavaType.fromType(storageType));
+		}
+
+		return prop;
+	}
+
 }
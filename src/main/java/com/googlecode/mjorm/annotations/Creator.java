@@ -0,0 +1,27 @@
+package com.googlecode.mjorm.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the constructor or static factory method used to
+ * create instances of an {@link Entity}.  The values of the
+ * named properties are passed to it, in order, so they don't
+ * need setters.  There may only be one creator per {@link Entity}.
+ */
+@Target({ElementType.CONSTRUCTOR, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Creator {
+
+	/**
+	 * The names of the properties passed to the creator,
+	 * in the order of it's parameters.
+	 * @return the property names
+	 */
+	String[] properties();
+
+}
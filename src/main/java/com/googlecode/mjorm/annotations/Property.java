@@ -11,10 +11,13 @@ import java.lang.annotation.Target;
  * to a field on a document.  All of this annotations
  * parameters are optional.  This annotation must
  * be used on property getter methods, methods that
- * start with "{@link is}" or "{@link get}".
+ * start with "{@link is}" or "{@link get}", or on
+ * non static fields, in which case the field is read
+ * and written directly and the property doesn't need
+ * a getter or setter.
  *
  */
-@Target({ElementType.METHOD})
+@Target({ElementType.METHOD, ElementType.FIELD})
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
 public @interface Property {
@@ -0,0 +1,44 @@
+package com.googlecode.mjorm.bson;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * A {@link DBObject} returned by the {@link MappingDBDecoder} for
+ * a document that was decoded directly into a java object.  The
+ * java object is available via {@link #getObject()}, the fields
+ * of the document that weren't mapped to a property of the object
+ * are available as the fields of this {@link DBObject}.
+ */
+public class MappedDBObject
+	extends BasicDBObject {
+
+	private static final long serialVersionUID = 1L;
+
+	private Object object;
+
+	/**
+	 * Creates the {@link MappedDBObject}.
+	 * @param object the java object
+	 */
+	public MappedDBObject(Object object) {
+		this.object = object;
+	}
+
+	/**
+	 * Sets the java object, for objects that can only be
+	 * created once all of their fields have been read.
+	 * @param object the java object
+	 */
+	void setObject(Object object) {
+		this.object = object;
+	}
+
+	/**
+	 * @return the java object
+	 */
+	public Object getObject() {
+		return object;
+	}
+
+}
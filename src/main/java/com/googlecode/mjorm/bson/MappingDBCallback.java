@@ -0,0 +1,224 @@
+package com.googlecode.mjorm.bson;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.BSON;
+import org.bson.BSONObject;
+
+import com.googlecode.mjorm.MappingPlan;
+import com.googlecode.mjorm.MappingPlan.PropertyMapping;
+import com.googlecode.mjorm.ObjectDescriptorRegistry;
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.converters.MongoToPojoTypeConverter;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DefaultDBCallback;
+
+/**
+ * A {@link DefaultDBCallback} that sets the fields of a document
+ * on the properties of a java object as they're read.  Embedded
+ * documents that are mapped to a class are decoded the same way,
+ * all other embedded documents and arrays are decoded normally
+ * and converted once they've been read.  Objects that are
+ * created by a creator are created once all of their fields
+ * have been read.
+ */
+class MappingDBCallback
+	extends DefaultDBCallback {
+
+	private final DBCollection collection;
+	private final MappingPlan plan;
+	private final ObjectDescriptorRegistry registry;
+	private final ConversionContext context;
+
+	private final List<Frame> frames = new ArrayList<Frame>();
+	private final Map<PropertyMapping, MappingPlan> embeddedPlans
+		= new IdentityHashMap<PropertyMapping, MappingPlan>();
+
+	/**
+	 * Creates the callback.
+	 * @param collection the collection
+	 * @param plan the {@link MappingPlan} for the documents, may be null
+	 * @param registry the {@link ObjectDescriptorRegistry}
+	 * @param context the {@link ConversionContext}
+	 */
+	MappingDBCallback(
+		DBCollection collection, MappingPlan plan,
+		ObjectDescriptorRegistry registry, ConversionContext context) {
+		super(collection);
+		this.collection	= collection;
+		this.plan		= plan;
+		this.registry	= registry;
+		this.context	= context;
+	}
+
+	/**
+	 * @return the collection
+	 */
+	DBCollection getCollection() {
+		return collection;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reset() {
+		super.reset();
+
+		// called by the super constructor
+		if (frames!=null) {
+			frames.clear();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public BSONObject create(boolean array, List<String> path) {
+		MappingPlan objectPlan = null;
+		if (!array && (path==null || path.isEmpty())) {
+			objectPlan = (plan!=null && plan.canMapFields()) ? plan : null;
+		} else if (!array) {
+			Frame parent = frames.isEmpty() ? null : frames.get(frames.size()-1);
+			PropertyMapping prop = parent!=null
+				? parent.plan.getProperty(path.get(path.size()-1))
+				: null;
+			objectPlan = prop!=null ? getEmbeddedPlan(prop) : null;
+		}
+
+		// decode normally
+		if (objectPlan==null) {
+			frames.add(null);
+			return super.create(array, path);
+		}
+
+		// decode to an object
+		Frame frame = new Frame(objectPlan);
+		frames.add(frame);
+		return frame.dbObject;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object objectDone() {
+		String name = curName();
+		Frame frame = frames.remove(frames.size()-1);
+		if (frame!=null) {
+			frame.done();
+		}
+		Object ret = super.objectDone();
+
+		// set embedded value on the parent object
+		Frame parent = frames.isEmpty() ? null : frames.get(frames.size()-1);
+		if (parent!=null && name!=null) {
+			PropertyMapping prop = parent.plan.getProperty(name);
+			if (prop!=null) {
+				Object value = cur().removeField(name);
+				if (frame!=null && value==frame.dbObject) {
+					value = frame.dbObject.getObject();
+				}
+				parent.convertAndSet(prop, value);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void _put(String name, Object value) {
+		Frame frame = frames.isEmpty() ? null : frames.get(frames.size()-1);
+		PropertyMapping prop = frame!=null ? frame.plan.getProperty(name) : null;
+		if (prop==null) {
+			super._put(name, value);
+			return;
+		}
+		frame.convertAndSet(prop, BSON.hasDecodeHooks() ? BSON.applyDecodingHooks(value) : value);
+	}
+
+	/**
+	 * Returns the {@link MappingPlan} for decoding an embedded
+	 * document directly to the class of the given property, or
+	 * null if it has to be decoded normally.
+	 * @param prop the property
+	 * @return the plan
+	 */
+	private MappingPlan getEmbeddedPlan(PropertyMapping prop) {
+		if (embeddedPlans.containsKey(prop)) {
+			return embeddedPlans.get(prop);
+		}
+		Class<?> clazz = prop.getType().asClass();
+		MappingPlan ret = registry.getMappingPlan(clazz);
+		if (ret!=null && (!ret.canMapFields()
+			|| !MongoToPojoTypeConverter.class.isInstance(
+				context.getConverter(BasicDBObject.class, clazz)))) {
+			ret = null;
+		}
+		embeddedPlans.put(prop, ret);
+		return ret;
+	}
+
+	/**
+	 * An object being decoded.
+	 */
+	private class Frame {
+
+		private final MappingPlan plan;
+		private final MappedDBObject dbObject;
+		private final boolean[] set;
+		private final Object[] values;
+
+		/**
+		 * Creates the frame.
+		 * @param plan the plan
+		 */
+		private Frame(MappingPlan plan) {
+			this.plan		= plan;
+			this.values		= plan.hasCreator() ? new Object[plan.getProperties().length] : null;
+			this.dbObject	= new MappedDBObject(values==null ? plan.newInstance() : null);
+			this.set		= new boolean[plan.getProperties().length];
+		}
+
+		/**
+		 * Converts and sets a property, or keeps the converted
+		 * value until the object is created.
+		 * @param prop the property
+		 * @param value the field value
+		 */
+		private void convertAndSet(PropertyMapping prop, Object value) {
+			if (values!=null) {
+				values[prop.getIndex()] = plan.convertProperty(prop, value, context);
+			} else {
+				plan.setProperty(dbObject.getObject(), prop, value, context);
+			}
+			set[prop.getIndex()] = true;
+		}
+
+		/**
+		 * Sets the properties whose fields weren't in the document
+		 * to null, the same as mapping a {@link com.mongodb.DBObject}
+		 * would, or creates the object if it has a creator.
+		 */
+		private void done() {
+			if (values!=null) {
+				dbObject.setObject(plan.instantiate(values));
+				return;
+			}
+			PropertyMapping[] props = plan.getProperties();
+			for (int i=0; i<props.length; i++) {
+				if (!set[i]) {
+					plan.setProperty(dbObject.getObject(), props[i], null, context);
+				}
+			}
+		}
+	}
+
+}
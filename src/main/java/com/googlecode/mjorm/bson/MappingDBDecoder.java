@@ -0,0 +1,50 @@
+package com.googlecode.mjorm.bson;
+
+import com.googlecode.mjorm.ObjectDescriptorRegistry;
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.mongodb.DBCallback;
+import com.mongodb.DBCollection;
+import com.mongodb.DefaultDBDecoder;
+
+/**
+ * A {@link DefaultDBDecoder} that decodes documents directly into
+ * instances of a mapped class as the BSON is read, rather than
+ * creating a {@link com.mongodb.DBObject} first and mapping it.
+ * The documents are returned as {@link MappedDBObject}s.  If the
+ * class can't be mapped a field at a time (it's mapped with a
+ * discriminator for instance) documents are decoded normally.
+ */
+public class MappingDBDecoder
+	extends DefaultDBDecoder {
+
+	private final Class<?> clazz;
+	private final ObjectDescriptorRegistry registry;
+	private final ConversionContext context;
+	private MappingDBCallback callback;
+
+	/**
+	 * Creates the decoder.
+	 * @param clazz the class that documents are decoded to
+	 * @param registry the {@link ObjectDescriptorRegistry}
+	 * @param context the {@link ConversionContext}
+	 */
+	public MappingDBDecoder(
+		Class<?> clazz, ObjectDescriptorRegistry registry, ConversionContext context) {
+		this.clazz		= clazz;
+		this.registry	= registry;
+		this.context	= context;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public DBCallback getDBCallback(DBCollection collection) {
+		if (callback==null || callback.getCollection()!=collection) {
+			callback = new MappingDBCallback(
+				collection, registry.getMappingPlan(clazz), registry, context);
+		}
+		return callback;
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.googlecode.mjorm.bson;
+
+import com.googlecode.mjorm.ObjectDescriptorRegistry;
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.mongodb.DBDecoder;
+import com.mongodb.DBDecoderFactory;
+
+/**
+ * {@link DBDecoderFactory} for {@link MappingDBDecoder}s.
+ */
+public class MappingDBDecoderFactory
+	implements DBDecoderFactory {
+
+	private final Class<?> clazz;
+	private final ObjectDescriptorRegistry registry;
+	private final ConversionContext context;
+
+	/**
+	 * Creates the factory.
+	 * @param clazz the class that documents are decoded to
+	 * @param registry the {@link ObjectDescriptorRegistry}
+	 * @param context the {@link ConversionContext}
+	 */
+	public MappingDBDecoderFactory(
+		Class<?> clazz, ObjectDescriptorRegistry registry, ConversionContext context) {
+		this.clazz		= clazz;
+		this.registry	= registry;
+		this.context	= context;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public DBDecoder create() {
+		return new MappingDBDecoder(clazz, registry, context);
+	}
+
+}
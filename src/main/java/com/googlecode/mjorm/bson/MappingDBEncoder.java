@@ -0,0 +1,91 @@
+package com.googlecode.mjorm.bson;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.bson.BSON;
+import org.bson.BSONObject;
+
+import com.googlecode.mjorm.UnmappingPlan;
+import com.googlecode.mjorm.UnmappingPlan.PropertyUnmapping;
+import com.mongodb.DBEncoder;
+import com.mongodb.DBEncoderFactory;
+import com.mongodb.DefaultDBEncoder;
+
+/**
+ * A {@link DefaultDBEncoder} that writes {@link UnmappedDBObject}s
+ * straight from their unmapped values in the order of their
+ * {@link UnmappingPlan}s.  All other objects are written as
+ * the {@link DefaultDBEncoder} would.
+ */
+public class MappingDBEncoder
+	extends DefaultDBEncoder {
+
+	public static final DBEncoderFactory FACTORY = new DBEncoderFactory() {
+		public DBEncoder create() {
+			return new MappingDBEncoder();
+		}
+	};
+
+	private static final String ID = "_id";
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected int putObject(String name, BSONObject o) {
+		if (!UnmappedDBObject.class.isInstance(o)) {
+			return super.putObject(name, o);
+		}
+		UnmappedDBObject obj = UnmappedDBObject.class.cast(o);
+		Object[] values = obj.getValues();
+		Map<String, Object> extraFields = obj.getExtraFields();
+		PropertyUnmapping[] props = obj.getPlan().getProperties();
+
+		// start the document
+		int start = _buf.getPosition();
+		if (name!=null) {
+			_put(BSON.OBJECT, name);
+		}
+		int sizePos = _buf.getPosition();
+		_buf.writeInt(0);
+
+		// the id goes first at the top level
+		boolean idFirst = name==null;
+		if (idFirst) {
+			int idIndex = obj.getPlan().getFieldIndex(ID);
+			if (idIndex!=-1) {
+				_putObjectField(ID, values[idIndex]);
+			} else if (extraFields!=null && extraFields.containsKey(ID)) {
+				_putObjectField(ID, extraFields.get(ID));
+			}
+		}
+
+		// mapped fields, only the last property of
+		// fields that are mapped more than once
+		for (int i=0; i<props.length; i++) {
+			String fieldName = props[i].getFieldName();
+			if ((idFirst && ID.equals(fieldName))
+				|| obj.getPlan().getFieldIndex(fieldName)!=i) {
+				continue;
+			}
+			_putObjectField(fieldName, values[i]);
+		}
+
+		// other fields
+		if (extraFields!=null) {
+			for (Entry<String, Object> entry : extraFields.entrySet()) {
+				if (idFirst && ID.equals(entry.getKey())) {
+					continue;
+				}
+				_putObjectField(entry.getKey(), entry.getValue());
+			}
+		}
+
+		// finish the document
+		_buf.write(BSON.EOO);
+		_buf.writeInt(sizePos, _buf.getPosition()-sizePos);
+		return _buf.getPosition()-start;
+	}
+
+}
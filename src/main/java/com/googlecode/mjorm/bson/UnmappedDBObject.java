@@ -0,0 +1,253 @@
+package com.googlecode.mjorm.bson;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.BSONObject;
+
+import com.googlecode.mjorm.MjormException;
+import com.googlecode.mjorm.ObjectDescriptorRegistry;
+import com.googlecode.mjorm.UnmappingPlan;
+import com.googlecode.mjorm.UnmappingPlan.PropertyUnmapping;
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.converters.PojoToMongoTypeConverter;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * A {@link DBObject} view of a java object.  The fields are
+ * unmapped from the object the first time any of them are read
+ * and are kept in an array rather than a map.  Embedded objects
+ * of mapped classes are themselves {@link UnmappedDBObject}s.
+ * The {@link MappingDBEncoder} writes them straight to BSON.
+ * Fields that are put that aren't mapped (an {@code _id} added
+ * by the driver for instance) are kept separately.
+ */
+public class UnmappedDBObject
+	implements DBObject {
+
+	private final Object object;
+	private final UnmappingPlan plan;
+	private final ObjectDescriptorRegistry registry;
+	private final ConversionContext context;
+	private Object[] values;
+	private Map<String, Object> extraFields;
+	private boolean partialObject;
+
+	/**
+	 * Creates the {@link UnmappedDBObject}.
+	 * @param object the java object
+	 * @param plan the {@link UnmappingPlan} for the object's class
+	 * @param registry the {@link ObjectDescriptorRegistry}
+	 * @param context the {@link ConversionContext}
+	 */
+	public UnmappedDBObject(
+		Object object, UnmappingPlan plan,
+		ObjectDescriptorRegistry registry, ConversionContext context) {
+		this.object		= object;
+		this.plan		= plan;
+		this.registry	= registry;
+		this.context	= context;
+	}
+
+	/**
+	 * @return the java object
+	 */
+	public Object getObject() {
+		return object;
+	}
+
+	/**
+	 * Returns the unmapped field values, in the order of
+	 * the {@link UnmappingPlan}'s properties.
+	 * @return the values
+	 */
+	Object[] getValues() {
+		if (values==null) {
+			values = unmap();
+		}
+		return values;
+	}
+
+	/**
+	 * @return the fields that aren't mapped, may be null
+	 */
+	Map<String, Object> getExtraFields() {
+		return extraFields;
+	}
+
+	/**
+	 * @return the {@link UnmappingPlan}
+	 */
+	UnmappingPlan getPlan() {
+		return plan;
+	}
+
+	/**
+	 * Unmaps the values of the object.
+	 * @return the values
+	 */
+	private Object[] unmap() {
+		PropertyUnmapping[] props = plan.getProperties();
+		Object[] ret = new Object[props.length];
+		for (int i=0; i<props.length; i++) {
+			try {
+				Object value = props[i].getValue(object, context);
+				UnmappingPlan embedded = value!=null
+					? getEmbeddedPlan(props[i], value)
+					: null;
+				ret[i] = embedded!=null
+					? new UnmappedDBObject(value, embedded, registry, context)
+					: props[i].toStorage(value, context);
+			} catch (Exception e) {
+				throw new MjormException(
+					"Error mapping property "+props[i].getProperty().getName()
+					+" of class "+props[i].getDeclaringType(), e);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns the {@link UnmappingPlan} for the given value if it
+	 * would be unmapped to a {@link BasicDBObject} by a
+	 * {@link PojoToMongoTypeConverter}.
+	 * @param prop the property
+	 * @param value the value
+	 * @return the plan, or null
+	 * @throws Exception on error
+	 */
+	private UnmappingPlan getEmbeddedPlan(PropertyUnmapping prop, Object value)
+		throws Exception {
+		Class<?> clazz = value.getClass();
+		if (!BasicDBObject.class.equals(prop.getStorageType(value, context).asClass())
+			|| !PojoToMongoTypeConverter.class.isInstance(
+				context.getConverter(clazz, BasicDBObject.class))) {
+			return null;
+		}
+		return registry.getUnmappingPlan(clazz);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Object get(String key) {
+		int index = plan.getFieldIndex(key);
+		if (index!=-1) {
+			return getValues()[index];
+		}
+		return extraFields!=null ? extraFields.get(key) : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Object put(String key, Object v) {
+		int index = plan.getFieldIndex(key);
+		if (index!=-1) {
+			Object[] vals = getValues();
+			Object ret = vals[index];
+			vals[index] = v;
+			return ret;
+		}
+		if (extraFields==null) {
+			extraFields = new LinkedHashMap<String, Object>();
+		}
+		return extraFields.put(key, v);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void putAll(BSONObject o) {
+		for (String key : o.keySet()) {
+			put(key, o.get(key));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("rawtypes")
+	public void putAll(Map m) {
+		for (Object entry : m.entrySet()) {
+			put(String.valueOf(((Map.Entry)entry).getKey()), ((Map.Entry)entry).getValue());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Object removeField(String key) {
+		if (plan.getFieldIndex(key)!=-1) {
+			throw new UnsupportedOperationException(
+				"Mapped fields can't be removed from an UnmappedDBObject");
+		}
+		return extraFields!=null ? extraFields.remove(key) : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Deprecated
+	public boolean containsKey(String s) {
+		return containsField(s);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsField(String s) {
+		return plan.getFieldIndex(s)!=-1
+			|| (extraFields!=null && extraFields.containsKey(s));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Set<String> keySet() {
+		if (extraFields==null || extraFields.isEmpty()) {
+			return plan.getFieldNames();
+		}
+		Set<String> ret = new LinkedHashSet<String>(plan.getFieldNames());
+		ret.addAll(extraFields.keySet());
+		return ret;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("rawtypes")
+	public Map toMap() {
+		Map<String, Object> ret = new LinkedHashMap<String, Object>();
+		for (String key : keySet()) {
+			ret.put(key, get(key));
+		}
+		return ret;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void markAsPartialObject() {
+		partialObject = true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isPartialObject() {
+		return partialObject;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return toMap().toString();
+	}
+
+}
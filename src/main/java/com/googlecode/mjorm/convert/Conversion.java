@@ -0,0 +1,96 @@
+package com.googlecode.mjorm.convert;
+
+/**
+ * A conversion to a fixed target type with fixed hints.  The
+ * {@link TypeConverter} found for the last source class converted
+ * is remembered so that converting values of the same class with
+ * the same {@link ConversionContext} again doesn't need to look it
+ * up.  A {@code Conversion} should be discarded when converters are
+ * registered with the context.
+ */
+public final class Conversion {
+
+	private final JavaType targetType;
+	private final TypeConversionHints hints;
+	private volatile Resolved resolved;
+
+	/**
+	 * Creates the {@link Conversion}.
+	 * @param targetType the target type
+	 * @param hints the hints
+	 */
+	public Conversion(JavaType targetType, TypeConversionHints hints) {
+		if (targetType==null) {
+			throw new IllegalArgumentException(
+				"Must have a targetType and it must be instantiable");
+		}
+		this.targetType	= targetType;
+		this.hints		= hints!=null ? hints : TypeConversionHints.NO_HINTS;
+	}
+
+	/**
+	 * Converts the given value.
+	 * @param source the value
+	 * @param context the {@link ConversionContext}
+	 * @return the converted value
+	 * @throws ConversionException on error
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Object convert(Object source, ConversionContext context)
+		throws ConversionException {
+
+		// pass nulls through
+		if (source==null) { return null; }
+
+		// no conversion needed
+		Class<?> sourceClass = source.getClass();
+		if (sourceClass.equals(targetType.asClass())) {
+			return source;
+		}
+
+		// find a converter
+		Resolved res = resolved;
+		if (res==null || res.sourceClass!=sourceClass || res.context!=context) {
+			TypeConverter<?, ?> conv = context.getConverter(sourceClass, targetType.asClass());
+			if (conv==null) {
+				throw new ConversionException(
+					"Unable to map "+sourceClass+" to "+targetType);
+			}
+			res = new Resolved(context, sourceClass, conv);
+			resolved = res;
+		}
+
+		// do the conversion
+		return ((TypeConverter)res.converter).convert(source, targetType, context, hints);
+	}
+
+	/**
+	 * @return the targetType
+	 */
+	public JavaType getTargetType() {
+		return targetType;
+	}
+
+	/**
+	 * @return the hints
+	 */
+	public TypeConversionHints getHints() {
+		return hints;
+	}
+
+	/**
+	 * A source class and it's {@link TypeConverter}.
+	 */
+	private static final class Resolved {
+		private final ConversionContext context;
+		private final Class<?> sourceClass;
+		private final TypeConverter<?, ?> converter;
+		private Resolved(
+			ConversionContext context, Class<?> sourceClass, TypeConverter<?, ?> converter) {
+			this.context		= context;
+			this.sourceClass	= sourceClass;
+			this.converter		= converter;
+		}
+	}
+
+}
@@ -2,10 +2,10 @@ package com.googlecode.mjorm.convert;
 
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.bson.types.ObjectId;
 
@@ -14,21 +14,60 @@ import com.mongodb.BasicDBObject;
 
 public class ConversionContext {
 
-	private Collection<TypeConverter<?, ?>> typeConverters
-		= new LinkedList<TypeConverter<?, ?>>();
-	private Map<String, TypeConverter<?, ?>> typeConverterCache
-		= new HashMap<String, TypeConverter<?, ?>>();
-	private Map<Class<?>, Class<?>> storageClasses
-		= new HashMap<Class<?>, Class<?>>();
+	private static final Object NO_CONVERTER = new Object();
+
+	private volatile Converters converters = new Converters(new TypeConverter<?, ?>[0]);
+	private final ConcurrentMap<Class<?>, Class<?>> storageClasses
+		= new ConcurrentHashMap<Class<?>, Class<?>>();
+	private volatile ConcurrentMap<Class<?>, JavaType> storageTypeCache
+		= new ConcurrentHashMap<Class<?>, JavaType>();
 
 	/**
-	 * Returns the storage class for the given class.
+	 * Returns the storage class for the given class.  The storage
+	 * type of each class is resolved once and cached until a
+	 * converter or storage class is registered or the cache is
+	 * cleared.
 	 * @param clazz the class
 	 * @return the default storage class
 	 * @throws ConversionException on error
 	 */
 	public JavaType getStorageType(Class<?> clazz)
 		throws ConversionException {
+		ConcurrentMap<Class<?>, JavaType> cache = storageTypeCache;
+		JavaType ret = cache.get(clazz);
+		if (ret==null) {
+			ret = JavaType.fromType(resolveStorageClass(clazz));
+			cache.put(clazz, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Registers the storage class to use for values of the
+	 * given class, overriding the default.  The class must
+	 * match exactly, subclasses aren't affected.
+	 * @param clazz the class
+	 * @param storageClass the storage class
+	 */
+	public void registerStorageClass(Class<?> clazz, Class<?> storageClass) {
+		storageClasses.put(clazz, storageClass);
+		clearStorageTypeCache();
+	}
+
+	/**
+	 * Discards the cached storage types, this should be called
+	 * when anything that they're resolved from changes.
+	 */
+	public void clearStorageTypeCache() {
+		storageTypeCache = new ConcurrentHashMap<Class<?>, JavaType>();
+	}
+
+	/**
+	 * Resolves the storage class for the given class.
+	 * @param clazz the class
+	 * @return the storage class
+	 */
+	private Class<?> resolveStorageClass(Class<?> clazz) {
 		Class<?> ret = storageClasses.get(clazz);
 		if (ret==null) {
 			if (clazz.isPrimitive()) {
@@ -59,7 +98,7 @@ public class ConversionContext {
 				ret = BasicDBObject.class;
 			}
 		}
-		return JavaType.fromType(ret);
+		return ret;
 	}
 
 	public <S, T> T convert(S source, JavaType targetType)
@@ -108,23 +147,42 @@ public class ConversionContext {
 
 	/**
 	 * Returns a TypeConverter capable of converting source to target.
+	 * Lookups are cached per source and target class, including those
+	 * that find no converter, and the cache is discarded whenever a
+	 * converter is registered or {@link #clearConverterCache()} is
+	 * called.
 	 * @param sourceClass
 	 * @param targetClass
 	 * @return
 	 */
 	@SuppressWarnings("unchecked")
 	public <S, T> TypeConverter<S, T> getConverter(Class<?> sourceClass, Class<?> targetClass) {
-		String cacheKey = sourceClass.getName()+"_"+targetClass.getName();
-		if (typeConverterCache.containsKey(cacheKey)) {
-			return (TypeConverter<S, T>)typeConverterCache.get(cacheKey);
+		Converters convs = converters;
+
+		// check the cache
+		ConcurrentMap<Class<?>, Object> targets = convs.cache.get(sourceClass);
+		if (targets==null) {
+			targets = new ConcurrentHashMap<Class<?>, Object>();
+			ConcurrentMap<Class<?>, Object> existing = convs.cache.putIfAbsent(sourceClass, targets);
+			if (existing!=null) {
+				targets = existing;
+			}
+		}
+		Object ret = targets.get(targetClass);
+		if (ret!=null) {
+			return ret!=NO_CONVERTER ? (TypeConverter<S, T>)ret : null;
 		}
-		for (TypeConverter<?, ?> conv : typeConverters) {
+
+		// find it
+		ret = NO_CONVERTER;
+		for (TypeConverter<?, ?> conv : convs.typeConverters) {
 			if (conv.canConvert(sourceClass, targetClass)) {
-				typeConverterCache.put(cacheKey, conv);
-				return (TypeConverter<S, T>) conv;
+				ret = conv;
+				break;
 			}
 		}
-		return null;
+		targets.put(targetClass, ret);
+		return ret!=NO_CONVERTER ? (TypeConverter<S, T>)ret : null;
 	}
 
 
@@ -132,9 +190,38 @@ public class ConversionContext {
 	 * Registers a new {@link TypeConverter}.
 	 * @param typeConverter the converter
 	 */
-	public void registerTypeConverter(TypeConverter<?, ?> typeConverter) {
-		typeConverterCache.clear();
-		typeConverters.add(typeConverter);
+	public synchronized void registerTypeConverter(TypeConverter<?, ?> typeConverter) {
+		TypeConverter<?, ?>[] current = converters.typeConverters;
+		TypeConverter<?, ?>[] updated = new TypeConverter<?, ?>[current.length+1];
+		System.arraycopy(current, 0, updated, 0, current.length);
+		updated[current.length] = typeConverter;
+		converters = new Converters(updated);
+		clearStorageTypeCache();
+	}
+
+	/**
+	 * Discards the cached converter lookups, this should be called
+	 * when anything that the converters' {@code canConvert} depends
+	 * on changes, a mapped class being registered for instance.
+	 */
+	public synchronized void clearConverterCache() {
+		converters = new Converters(converters.typeConverters);
+	}
+
+	/**
+	 * The registered {@link TypeConverter}s and the converters
+	 * found for them.  It's replaced, never modified, when a
+	 * converter is registered so that a lookup running at the
+	 * same time can't cache a result in the new cache that was
+	 * found with the old converters.
+	 */
+	private static final class Converters {
+		private final TypeConverter<?, ?>[] typeConverters;
+		private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, Object>> cache
+			= new ConcurrentHashMap<Class<?>, ConcurrentMap<Class<?>, Object>>();
+		private Converters(TypeConverter<?, ?>[] typeConverters) {
+			this.typeConverters = typeConverters;
+		}
 	}
 
 }
@@ -2,15 +2,14 @@ package com.googlecode.mjorm.convert;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Utility class for working with java types.
  */
 public class JavaType {
 
-	private static final Map<Type, JavaType> CACHE = new HashMap<Type, JavaType>();
+	private static volatile JavaTypeCache CACHE
+		= new JavaTypeCache(JavaTypeCache.DEFAULT_MAXIMUM_SIZE, false);
 
 	private Type type;
 	private ParameterizedType parameterizedType;
@@ -37,17 +36,59 @@ public class JavaType {
 		if (type==null) {
 			throw new IllegalArgumentException("Type can't be null");
 		}
-		if (!CACHE.containsKey(type)) {
-			CACHE.put(type, new JavaType(type));
-		}
 		return CACHE.get(type);
 	}
 
 	/**
-	 * Creates the type, it's private so you must use fromType.
+	 * Replaces the cache of {@link JavaType}s with an empty one.
+	 * Holding types weakly allows the classes of a discarded class
+	 * loader (a redeployed web application for instance) to be
+	 * unloaded.  Either way the cache is cleared whenever it grows
+	 * beyond the maximum size.
+	 * @param maximumSize the maximum number of types cached
+	 * @param weakKeys whether or not to hold the types weakly
+	 */
+	public static void configureCache(int maximumSize, boolean weakKeys) {
+		CACHE = new JavaTypeCache(maximumSize, weakKeys);
+	}
+
+	/**
+	 * Empties the cache of {@link JavaType}s, keeping it's settings
+	 * and resetting it's counters.
+	 */
+	public static void clearCache() {
+		JavaTypeCache cache = CACHE;
+		configureCache(cache.getMaximumSize(), cache.isWeakKeys());
+	}
+
+	/**
+	 * @return the number of {@link JavaType}s cached
+	 */
+	public static int getCacheSize() {
+		return CACHE.size();
+	}
+
+	/**
+	 * @return the number of calls to {@link #fromType(Type)} that
+	 * found a cached {@link JavaType}
+	 */
+	public static long getCacheHits() {
+		return CACHE.getHits();
+	}
+
+	/**
+	 * @return the number of calls to {@link #fromType(Type)} that
+	 * created a {@link JavaType}
+	 */
+	public static long getCacheMisses() {
+		return CACHE.getMisses();
+	}
+
+	/**
+	 * Creates the type, use fromType to get an instance.
 	 * @param type
 	 */
-	private JavaType(Type type) {
+	JavaType(Type type) {
 
 		// the type
 		this.type = type;
@@ -0,0 +1,185 @@
+package com.googlecode.mjorm.convert;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Type;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The cache used to intern {@link JavaType}s.  By default the
+ * {@link Type}s are held strongly in a concurrent map, optionally
+ * they can be held weakly so that classes of a discarded
+ * class loader can be unloaded.  Weakly held types are split
+ * by hash code over a number of separately locked maps.  Either
+ * way the cache is bounded, when it (or one of it's maps) grows
+ * beyond it's maximum size it's cleared and refilled as types
+ * are used again.  Hits and misses are counted in cells picked
+ * by thread so that threads don't contend on one counter.
+ */
+final class JavaTypeCache {
+
+	public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+	private static final int MAXIMUM_STRIPES = 16;
+
+	// a cell is a hit and a miss counter padded
+	// out to it's own cache line
+	private static final int COUNTER_CELLS = 16;
+	private static final int COUNTER_CELL_SIZE = 8;
+
+	private final int maximumSize;
+	private final ConcurrentMap<Type, JavaType> strongCache;
+	private final WeakStripe[] weakCaches;
+	private final int maximumStripeSize;
+	private final AtomicLongArray counters
+		= new AtomicLongArray(COUNTER_CELLS*COUNTER_CELL_SIZE);
+
+	/**
+	 * A separately locked map of weakly held types.
+	 */
+	private static final class WeakStripe
+		extends WeakHashMap<Type, WeakReference<JavaType>> {
+	}
+
+	/**
+	 * Creates the cache.
+	 * @param maximumSize the maximum number of types held
+	 * @param weakKeys whether or not to hold the types weakly
+	 */
+	JavaTypeCache(int maximumSize, boolean weakKeys) {
+		if (maximumSize<1) {
+			throw new IllegalArgumentException("maximumSize must be greater than 0");
+		}
+		this.maximumSize = maximumSize;
+		if (weakKeys) {
+			int stripes = Math.min(MAXIMUM_STRIPES, maximumSize);
+			this.strongCache = null;
+			this.weakCaches = new WeakStripe[stripes];
+			for (int i=0; i<stripes; i++) {
+				weakCaches[i] = new WeakStripe();
+			}
+			this.maximumStripeSize = maximumSize/stripes;
+		} else {
+			this.strongCache = new ConcurrentHashMap<Type, JavaType>();
+			this.weakCaches = null;
+			this.maximumStripeSize = 0;
+		}
+	}
+
+	/**
+	 * Returns the {@link JavaType} for the given {@link Type},
+	 * creating it if it isn't cached.
+	 * @param type the type
+	 * @return the {@link JavaType}
+	 */
+	JavaType get(Type type) {
+		return (strongCache!=null) ? getStrong(type) : getWeak(type);
+	}
+
+	private JavaType getStrong(Type type) {
+		JavaType ret = strongCache.get(type);
+		if (ret!=null) {
+			count(0);
+			return ret;
+		}
+		count(1);
+		if (strongCache.size()>=maximumSize) {
+			strongCache.clear();
+		}
+		ret = new JavaType(type);
+		JavaType existing = strongCache.putIfAbsent(type, ret);
+		return existing!=null ? existing : ret;
+	}
+
+	private JavaType getWeak(Type type) {
+		int hash = type.hashCode();
+		hash ^= (hash>>>16);
+		WeakStripe weakCache = weakCaches[(hash & 0x7fffffff) % weakCaches.length];
+		synchronized (weakCache) {
+			WeakReference<JavaType> ref = weakCache.get(type);
+			JavaType ret = ref!=null ? ref.get() : null;
+			if (ret!=null) {
+				count(0);
+				return ret;
+			}
+			count(1);
+			if (weakCache.size()>=maximumStripeSize) {
+				weakCache.clear();
+			}
+
+			// the value references the key, so it must be weak too
+			ret = new JavaType(type);
+			weakCache.put(type, new WeakReference<JavaType>(ret));
+			return ret;
+		}
+	}
+
+	/**
+	 * Increments a counter in the calling thread's cell.
+	 * @param counter 0 for hits, 1 for misses
+	 */
+	private void count(int counter) {
+		int cell = (int)(Thread.currentThread().getId() % COUNTER_CELLS);
+		counters.incrementAndGet(cell*COUNTER_CELL_SIZE+counter);
+	}
+
+	/**
+	 * Sums a counter over the cells.
+	 * @param counter 0 for hits, 1 for misses
+	 * @return the sum
+	 */
+	private long sum(int counter) {
+		long ret = 0;
+		for (int i=0; i<COUNTER_CELLS; i++) {
+			ret += counters.get(i*COUNTER_CELL_SIZE+counter);
+		}
+		return ret;
+	}
+
+	/**
+	 * @return the number of lookups that found a cached type
+	 */
+	long getHits() {
+		return sum(0);
+	}
+
+	/**
+	 * @return the number of lookups that created a type
+	 */
+	long getMisses() {
+		return sum(1);
+	}
+
+	/**
+	 * @return the number of types cached
+	 */
+	int size() {
+		if (strongCache!=null) {
+			return strongCache.size();
+		}
+		int ret = 0;
+		for (WeakStripe weakCache : weakCaches) {
+			synchronized (weakCache) {
+				ret += weakCache.size();
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @return whether or not types are held weakly
+	 */
+	boolean isWeakKeys() {
+		return weakCaches!=null;
+	}
+
+	/**
+	 * @return the maximum number of types held
+	 */
+	int getMaximumSize() {
+		return maximumSize;
+	}
+
+}
@@ -1,5 +1,6 @@
 package com.googlecode.mjorm.convert;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -21,6 +22,18 @@ public class TypeConversionHints {
 
 	private Map<String, Object> other = new HashMap<String, Object>();
 
+	/**
+	 * Creates an immutable {@link TypeConversionHints} with the
+	 * given hints that can be shared by any number of conversions.
+	 * @param hints the hints
+	 * @return the {@link TypeConversionHints}
+	 */
+	public static TypeConversionHints immutable(Map<String, Object> hints) {
+		return (hints==null || hints.isEmpty())
+			? NO_HINTS
+			: new ImmutableTypeConversionHints(hints);
+	}
+
 	/**
 	 * Sets other hints.
 	 * @param key hint key
@@ -40,4 +53,28 @@ public class TypeConversionHints {
 		return (T)other.get(key);
 	}
 
+	/**
+	 * {@link TypeConversionHints} that can't be changed.
+	 */
+	private static final class ImmutableTypeConversionHints
+		extends TypeConversionHints {
+
+		private final Map<String, Object> hints;
+
+		private ImmutableTypeConversionHints(Map<String, Object> hints) {
+			this.hints = Collections.unmodifiableMap(new HashMap<String, Object>(hints));
+		}
+
+		@Override
+		public void set(String key, Object value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> T get(String key) {
+			return (T)hints.get(key);
+		}
+	}
+
 }
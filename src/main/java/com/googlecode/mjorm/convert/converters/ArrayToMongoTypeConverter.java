@@ -13,7 +13,8 @@ public class ArrayToMongoTypeConverter
 	public boolean canConvert(Class<?> sourceClass, Class<?> targetClass) {
 		return !BasicDBList.class.isAssignableFrom(sourceClass)
 			&& BasicDBList.class.equals(targetClass)
-			&& sourceClass.isArray();
+			&& sourceClass.isArray()
+			&& !sourceClass.getComponentType().isPrimitive();
 	}
 
 	public BasicDBList convert(
@@ -22,15 +23,12 @@ public class ArrayToMongoTypeConverter
 
 		// create array
 		BasicDBList ret = new BasicDBList();
+		ret.ensureCapacity(source.length);
 
 		// iterate and convert
+		ElementConversion conversion = new ElementConversion(context, null);
 		for (int i=0; i<source.length; i++) {
-			Object value = source[i];
-			if (value!=null) {
-				JavaType storageType = context.getStorageType(value.getClass());
-				value = context.convert(value, storageType);
-			}
-			ret.add(value);
+			ret.add(conversion.convert(source[i]));
 		}
 
 		// return it
@@ -26,16 +26,10 @@ public class CollectionToMongoTypeConverter
 
 		// convert
 		BasicDBList ret = new BasicDBList();
+		ret.ensureCapacity(source.size());
+		ElementConversion conversion = new ElementConversion(context, null);
 		for (Object value : source) {
-			if (value!=null) {
-
-				// get storage type
-				JavaType storageType = context.getStorageType(value.getClass());
-
-				// convert
-				value = context.convert(value, storageType);
-			}
-			ret.add(value);
+			ret.add(conversion.convert(value));
 		}
 		return ret;
 	}
@@ -0,0 +1,72 @@
+package com.googlecode.mjorm.convert.converters;
+
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.ConversionException;
+import com.googlecode.mjorm.convert.JavaType;
+import com.googlecode.mjorm.convert.TypeConversionHints;
+import com.googlecode.mjorm.convert.TypeConverter;
+
+/**
+ * Converts the elements of an array, collection or map the same as
+ * {@link ConversionContext#convert(Object, JavaType)} does, but only
+ * looks the {@link TypeConverter} up when the class of an element
+ * differs from that of the previous one.  Elements are almost
+ * always all of the same class, so a whole array is usually
+ * converted with a single lookup.
+ */
+final class ElementConversion {
+
+	private final ConversionContext context;
+	private final JavaType targetType;
+	private Class<?> lastClass;
+	private JavaType lastTargetType;
+	private TypeConverter<Object, Object> lastConverter;
+
+	/**
+	 * Creates the conversion.
+	 * @param context the {@link ConversionContext}
+	 * @param targetType the type to convert to, or null to
+	 * convert each element to it's storage type
+	 */
+	ElementConversion(ConversionContext context, JavaType targetType) {
+		this.context	= context;
+		this.targetType	= targetType;
+	}
+
+	/**
+	 * Converts an element.
+	 * @param value the element
+	 * @return the converted element
+	 * @throws ConversionException on error
+	 */
+	Object convert(Object value)
+		throws ConversionException {
+		if (value==null) {
+			return null;
+		}
+
+		// look up the converter for a new class
+		Class<?> clazz = value.getClass();
+		if (clazz!=lastClass) {
+			JavaType type = targetType!=null ? targetType : context.getStorageType(clazz);
+			TypeConverter<Object, Object> conv = null;
+			if (!clazz.equals(type.asClass())) {
+				conv = context.getConverter(clazz, type.asClass());
+				if (conv==null) {
+					throw new ConversionException(
+						"Unable to map "+clazz+" to "+type);
+				}
+			}
+			lastClass		= clazz;
+			lastTargetType	= type;
+			lastConverter	= conv;
+		}
+
+		// no conversion needed
+		if (lastConverter==null) {
+			return value;
+		}
+		return lastConverter.convert(value, lastTargetType, context, TypeConversionHints.NO_HINTS);
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.googlecode.mjorm.convert.converters;
+
+import com.googlecode.mjorm.LazyRef;
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.ConversionException;
+import com.googlecode.mjorm.convert.JavaType;
+import com.googlecode.mjorm.convert.TypeConversionHints;
+import com.googlecode.mjorm.convert.TypeConverter;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBRef;
+
+/**
+ * Stores {@link LazyRef}s as a {@link DBRef}, which the driver
+ * writes as a {@code {$ref, $id}} document.  References to another
+ * database are stored as a {@code {$ref, $id, $db}} document, as
+ * the driver's {@link DBRef} has no database.
+ */
+public class LazyRefToMongoTypeConverter
+	implements TypeConverter<LazyRef<?>, Object> {
+
+	public boolean canConvert(Class<?> sourceClass, Class<?> targetClass) {
+		return LazyRef.class.equals(sourceClass)
+			&& BasicDBObject.class.equals(targetClass);
+	}
+
+	public Object convert(
+		LazyRef<?> source, JavaType targetType, ConversionContext context, TypeConversionHints hints)
+		throws ConversionException {
+		if (source.getDatabase()==null) {
+			return new DBRef(null, source.getCollection(), source.getId());
+		}
+		return new BasicDBObject("$ref", source.getCollection())
+			.append("$id", source.getId())
+			.append("$db", source.getDatabase());
+	}
+
+}
@@ -24,20 +24,11 @@ public class MapToMongoTypeConverter
 		throws ConversionException {
 
 		// convert
-		BasicDBObject ret = new BasicDBObject();
+		BasicDBObject ret = new BasicDBObject(
+			MongoToCollectionTypeConverter.capacity(source.size()));
+		ElementConversion conversion = new ElementConversion(context, null);
 		for (Entry<String, Object> entry : source.entrySet()) {
-			Object value = entry.getValue();
-			
-			if (value!=null) {
-
-				// get storage type
-				JavaType storageType = context.getStorageType(value.getClass());
-
-				// convert
-				value = context.convert(entry.getValue(), storageType);
-			}
-			
-			ret.put(entry.getKey(), value);
+			ret.put(entry.getKey(), conversion.convert(entry.getValue()));
 		}
 		return ret;
 	}
@@ -15,7 +15,8 @@ public class MongoToArrayTypeConverter
 
 	public boolean canConvert(Class<?> dbClass, Class<?> targetClass) {
 		return BasicDBList.class.equals(dbClass)
-			&& targetClass.isArray();
+			&& targetClass.isArray()
+			&& !targetClass.getComponentType().isPrimitive();
 	}
 
 	public Object[] convert(
@@ -39,19 +40,17 @@ public class MongoToArrayTypeConverter
 		}
 
 		// create array
-		Object ret = Array.newInstance(componentType.asClass(), source.size());
+		Object[] ret = Object[].class.cast(
+			Array.newInstance(componentType.asClass(), source.size()));
 
 		// iterate and convert
-		for (int i=0; i<source.size(); i++) {
-			Object value = source.get(i);
-			if (value!=null) {
-				value = context.convert(value, componentType);
-			}
-			Array.set(ret, i, value);
+		ElementConversion conversion = new ElementConversion(context, componentType);
+		for (int i=0; i<ret.length; i++) {
+			ret[i] = conversion.convert(source.get(i));
 		}
 
 		// return it
-		return Object[].class.cast(ret);
+		return ret;
 	}
 
 }
@@ -2,11 +2,15 @@ package com.googlecode.mjorm.convert.converters;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -24,6 +28,18 @@ public class MongoToCollectionTypeConverter
 
 	public static final String HINT_COMPARATOR_CLASS = "comparatorClass";
 
+	/**
+	 * Hint naming the class of collection to create when the
+	 * target type is an interface, the class or it's name.
+	 */
+	public static final String HINT_IMPLEMENTATION_CLASS = "implementationClass";
+
+	/**
+	 * Hint that, when "true", creates an unmodifiable collection.
+	 * Lists are then backed by an exactly sized array.
+	 */
+	public static final String HINT_UNMODIFIABLE = "unmodifiable";
+
 	public boolean canConvert(Class<?> sourceClass, Class<?> targetClass) {
 		return Collection.class.isAssignableFrom(targetClass)
 			&& BasicDBList.class.equals(sourceClass);
@@ -52,15 +68,27 @@ public class MongoToCollectionTypeConverter
 
 		// get target class
 		Class<?> targetClass = targetType.asClass();
+		ElementConversion conversion = new ElementConversion(context, parameterType);
+		int size = source.size();
+
+		// unmodifiable lists are backed by an array
+		boolean unmodifiable = isUnmodifiable(hints);
+		if (unmodifiable && targetClass.isInterface()
+			&& targetClass.isAssignableFrom(List.class)) {
+			Object[] values = new Object[size];
+			for (int i=0; i<size; i++) {
+				values[i] = conversion.convert(source.get(i));
+			}
+			return Collections.unmodifiableList(Arrays.asList(values));
+		}
 
 		// create collection
 		Collection ret;
-		if (!targetClass.isInterface()) {
-			try {
-				ret = Collection.class.cast(ReflectionUtil.instantiate(targetClass));
-			} catch (Exception e) {
-				throw new ConversionException("Couldn't instantiate "+targetClass.getName(), e);
-			}
+		Class<?> implementationClass = getImplementationClass(hints, targetClass);
+		if (implementationClass!=null) {
+			ret = newCollection(implementationClass, size);
+		} else if (!targetClass.isInterface()) {
+			ret = newCollection(targetClass, size);
 		} else if (SortedSet.class.isAssignableFrom(targetClass)) {
 
 			// get comparator hint
@@ -83,30 +111,107 @@ public class MongoToCollectionTypeConverter
 				: new TreeSet();
 
 		} else if (Set.class.isAssignableFrom(targetClass)) {
-			ret = new HashSet();
-		} else if (List.class.isAssignableFrom(targetClass)) {
-			ret = new ArrayList();
-		} else {
+			ret = new HashSet(capacity(size));
+		} else if (Queue.class.isAssignableFrom(targetClass)) {
 			ret = new LinkedList();
+		} else {
+			ret = new ArrayList(size);
 		}
 
 		// iterate and populate
-		for (int i=0; i<source.size(); i++) {
+		for (int i=0; i<size; i++) {
+			ret.add(conversion.convert(source.get(i)));
+		}
 
-			// get value
-			Object value = source.get(i);
+		// return it
+		if (unmodifiable && SortedSet.class.isAssignableFrom(targetClass)) {
+			return Collections.unmodifiableSortedSet((SortedSet)ret);
+		} else if (unmodifiable && Set.class.isAssignableFrom(targetClass)) {
+			return Collections.unmodifiableSet((Set)ret);
+		} else if (unmodifiable && targetClass.isInterface()) {
+			return Collections.unmodifiableCollection(ret);
+		}
+		return ret;
+	}
 
-			// convert
-			if (value!=null) {
-				value = context.convert(value, parameterType);
+	/**
+	 * Creates a collection of the given class, sized for the
+	 * given number of elements when the class allows it.
+	 * @param clazz the class
+	 * @param size the number of elements
+	 * @return the collection
+	 * @throws ConversionException on error
+	 */
+	@SuppressWarnings("rawtypes")
+	private static Collection newCollection(Class<?> clazz, int size)
+		throws ConversionException {
+		if (clazz==ArrayList.class) {
+			return new ArrayList(size);
+		} else if (clazz==HashSet.class) {
+			return new HashSet(capacity(size));
+		} else if (clazz==LinkedHashSet.class) {
+			return new LinkedHashSet(capacity(size));
+		}
+		try {
+			Collection ret = Collection.class.cast(ReflectionUtil.instantiate(clazz));
+			if (ArrayList.class.isInstance(ret)) {
+				ArrayList.class.cast(ret).ensureCapacity(size);
 			}
-
-			// add
-			ret.add(value);
+			return ret;
+		} catch (Exception e) {
+			throw new ConversionException("Couldn't instantiate "+clazz.getName(), e);
 		}
+	}
 
-		// return it
+	/**
+	 * Returns the capacity of a hash based collection or map that
+	 * holds the given number of elements without resizing.
+	 * @param size the number of elements
+	 * @return the capacity
+	 */
+	static int capacity(int size) {
+		return (int)(size/0.75f)+1;
+	}
+
+	/**
+	 * Returns the implementation class hint.
+	 * @param hints the hints
+	 * @param targetClass the target class
+	 * @return the class, or null if there isn't one
+	 * @throws ConversionException if the class isn't found or
+	 * isn't assignable to the target class
+	 */
+	static Class<?> getImplementationClass(TypeConversionHints hints, Class<?> targetClass)
+		throws ConversionException {
+		Object hint = hints.get(HINT_IMPLEMENTATION_CLASS);
+		if (hint==null) {
+			return null;
+		}
+		Class<?> ret;
+		if (Class.class.isInstance(hint)) {
+			ret = Class.class.cast(hint);
+		} else {
+			try {
+				ret = Class.forName(hint.toString().trim());
+			} catch (ClassNotFoundException e) {
+				throw new ConversionException("Implementation class not found: "+hint, e);
+			}
+		}
+		if (!targetClass.isAssignableFrom(ret)) {
+			throw new ConversionException(
+				"Implementation class "+ret.getName()+" isn't a "+targetClass.getName());
+		}
 		return ret;
 	}
 
+	/**
+	 * Indicates whether or not the unmodifiable hint is set.
+	 * @param hints the hints
+	 * @return true if it is
+	 */
+	static boolean isUnmodifiable(TypeConversionHints hints) {
+		Object hint = hints.get(HINT_UNMODIFIABLE);
+		return hint!=null && Boolean.valueOf(hint.toString().trim()).booleanValue();
+	}
+
 }
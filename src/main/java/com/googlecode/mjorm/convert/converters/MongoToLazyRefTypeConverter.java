@@ -0,0 +1,77 @@
+package com.googlecode.mjorm.convert.converters;
+
+import java.lang.reflect.Type;
+
+import com.googlecode.mjorm.AbstractObjectMapper;
+import com.googlecode.mjorm.DBRefUtil;
+import com.googlecode.mjorm.LazyRef;
+import com.googlecode.mjorm.LazyRefLoader;
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.ConversionException;
+import com.googlecode.mjorm.convert.JavaType;
+import com.googlecode.mjorm.convert.TypeConversionHints;
+import com.googlecode.mjorm.convert.TypeConverter;
+import com.mongodb.DBObject;
+import com.mongodb.DBRefBase;
+
+public class MongoToLazyRefTypeConverter
+	implements TypeConverter<Object, LazyRef<?>> {
+
+	private final AbstractObjectMapper mapper;
+
+	/**
+	 * Creates the converter.
+	 * @param mapper the mapper whose {@link LazyRefLoader} loads
+	 * the references
+	 */
+	public MongoToLazyRefTypeConverter(AbstractObjectMapper mapper) {
+		this.mapper = mapper;
+	}
+
+	public boolean canConvert(Class<?> sourceClass, Class<?> targetClass) {
+		return LazyRef.class.equals(targetClass)
+			&& (DBRefBase.class.isAssignableFrom(sourceClass)
+			|| DBObject.class.isAssignableFrom(sourceClass));
+	}
+
+	public LazyRef<?> convert(
+		Object source, JavaType targetType, ConversionContext context, TypeConversionHints hints)
+		throws ConversionException {
+
+		// get parameter type
+		JavaType parameterType = null;
+		Type[] types = hints.get(TypeConversionHints.HINT_GENERIC_TYPE_PARAMETERS);
+		if (types!=null && types.length>0) {
+			parameterType = JavaType.fromType(types[0]);
+		}
+		if (parameterType==null) {
+			parameterType = targetType.getJavaTypeParameter(0);
+		}
+
+		// bail if we don't have a parameter type
+		if (parameterType==null) {
+			throw new ConversionException(
+				"Unable to determine parameterType of "+targetType);
+		}
+
+		// driver references, read from a DB
+		LazyRefLoader loader = mapper.getLazyRefLoader();
+		if (DBRefBase.class.isInstance(source)) {
+			DBRefBase ref = DBRefBase.class.cast(source);
+			return loader.create(ref.getDB(), ref.getRef(), ref.getId(), null,
+				parameterType.asClass());
+		}
+
+		// references stored as documents
+		DBObject dbObject = DBObject.class.cast(source);
+		if (!DBRefUtil.isRef(dbObject)) {
+			throw new ConversionException("Not a reference: "+dbObject);
+		}
+		Object database = dbObject.get("$db");
+		return loader.create(null,
+			String.valueOf(dbObject.get("$ref")), dbObject.get("$id"),
+			database!=null ? database.toString() : null,
+			parameterType.asClass());
+	}
+
+}
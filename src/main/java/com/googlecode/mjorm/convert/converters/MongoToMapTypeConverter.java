@@ -1,10 +1,15 @@
 package com.googlecode.mjorm.convert.converters;
 
 import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.Map.Entry;
 
+import com.googlecode.mjorm.ReflectionUtil;
 import com.googlecode.mjorm.convert.ConversionContext;
 import com.googlecode.mjorm.convert.ConversionException;
 import com.googlecode.mjorm.convert.JavaType;
@@ -15,11 +20,25 @@ import com.mongodb.BasicDBObject;
 public class MongoToMapTypeConverter
 	implements TypeConverter<BasicDBObject, Map<String, Object>> {
 
+	/**
+	 * Hint naming the class of map to create when the target
+	 * type is an interface, the class or it's name.
+	 */
+	public static final String HINT_IMPLEMENTATION_CLASS
+		= MongoToCollectionTypeConverter.HINT_IMPLEMENTATION_CLASS;
+
+	/**
+	 * Hint that, when "true", creates an unmodifiable map.
+	 */
+	public static final String HINT_UNMODIFIABLE
+		= MongoToCollectionTypeConverter.HINT_UNMODIFIABLE;
+
 	public boolean canConvert(Class<?> sourceClass, Class<?> targetClass) {
 		return BasicDBObject.class.equals(sourceClass)
 			&& Map.class.isAssignableFrom(targetClass);
 	}
 
+	@SuppressWarnings("unchecked")
 	public Map<String, Object> convert(
 		BasicDBObject source, JavaType targetType, ConversionContext context, TypeConversionHints hints)
 		throws ConversionException {
@@ -40,21 +59,58 @@ public class MongoToMapTypeConverter
 				"Unable to determine parameter type for "+targetType);
 		}
 
-		// create and convert
-		Map<String, Object> ret = new HashMap<String, Object>();
-		for (Entry<String, Object> entry : source.entrySet()) {
-
-			// get value
-			Object value = entry.getValue();
+		// create the map
+		Class<?> targetClass = targetType.asClass();
+		Class<?> implementationClass = MongoToCollectionTypeConverter
+			.getImplementationClass(hints, targetClass);
+		Map<String, Object> ret;
+		if (implementationClass!=null) {
+			ret = newMap(implementationClass, source.size());
+		} else if (!targetClass.isInterface()) {
+			ret = newMap(targetClass, source.size());
+		} else if (SortedMap.class.isAssignableFrom(targetClass)) {
+			ret = new TreeMap<String, Object>();
+		} else {
+			ret = new HashMap<String, Object>(
+				MongoToCollectionTypeConverter.capacity(source.size()));
+		}
 
-			// convert
-			if (value!=null) {
-				value = context.convert(value, parameterType);
-			}
+		// convert
+		ElementConversion conversion = new ElementConversion(context, parameterType);
+		for (Entry<String, Object> entry : source.entrySet()) {
+			ret.put(entry.getKey(), conversion.convert(entry.getValue()));
+		}
 
-			ret.put(entry.getKey(), value);
+		// return it
+		if (MongoToCollectionTypeConverter.isUnmodifiable(hints) && targetClass.isInterface()) {
+			return SortedMap.class.isInstance(ret)
+				? Collections.unmodifiableSortedMap(SortedMap.class.cast(ret))
+				: Collections.unmodifiableMap(ret);
 		}
 		return ret;
 	}
 
+	/**
+	 * Creates a map of the given class, sized for the given
+	 * number of entries when the class allows it.
+	 * @param clazz the class
+	 * @param size the number of entries
+	 * @return the map
+	 * @throws ConversionException on error
+	 */
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> newMap(Class<?> clazz, int size)
+		throws ConversionException {
+		if (clazz==HashMap.class) {
+			return new HashMap<String, Object>(MongoToCollectionTypeConverter.capacity(size));
+		} else if (clazz==LinkedHashMap.class) {
+			return new LinkedHashMap<String, Object>(MongoToCollectionTypeConverter.capacity(size));
+		}
+		try {
+			return Map.class.cast(ReflectionUtil.instantiate(clazz));
+		} catch (Exception e) {
+			throw new ConversionException("Couldn't instantiate "+clazz.getName(), e);
+		}
+	}
+
 }
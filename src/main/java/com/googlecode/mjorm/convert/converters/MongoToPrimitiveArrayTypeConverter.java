@@ -0,0 +1,123 @@
+package com.googlecode.mjorm.convert.converters;
+
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.ConversionException;
+import com.googlecode.mjorm.convert.JavaType;
+import com.googlecode.mjorm.convert.TypeConversionHints;
+import com.googlecode.mjorm.convert.TypeConverter;
+import com.mongodb.BasicDBList;
+
+/**
+ * Converts {@link BasicDBList}s to arrays of primitives by unboxing
+ * the elements directly.  Elements that aren't of the matching
+ * wrapper type (or a {@link Number} for numeric arrays) are
+ * converted by the {@link ConversionContext}, null elements
+ * become the default value of the primitive.
+ */
+public class MongoToPrimitiveArrayTypeConverter
+	implements TypeConverter<BasicDBList, Object> {
+
+	private static final JavaType CHARACTER_TYPE = JavaType.fromType(Character.class);
+	private static final JavaType BOOLEAN_TYPE = JavaType.fromType(Boolean.class);
+	private static final JavaType DOUBLE_TYPE = JavaType.fromType(Double.class);
+
+	public boolean canConvert(Class<?> sourceClass, Class<?> targetClass) {
+		return BasicDBList.class.equals(sourceClass)
+			&& targetClass.isArray()
+			&& targetClass.getComponentType().isPrimitive();
+	}
+
+	public Object convert(
+		BasicDBList source, JavaType targetType, ConversionContext context, TypeConversionHints hints)
+		throws ConversionException {
+		Class<?> componentType = targetType.asClass().getComponentType();
+		int size = source.size();
+
+		// numbers
+		if (componentType==int.class) {
+			int[] ret = new int[size];
+			for (int i=0; i<size; i++) {
+				Number value = toNumber(source.get(i), context);
+				ret[i] = value!=null ? value.intValue() : 0;
+			}
+			return ret;
+		} else if (componentType==long.class) {
+			long[] ret = new long[size];
+			for (int i=0; i<size; i++) {
+				Number value = toNumber(source.get(i), context);
+				ret[i] = value!=null ? value.longValue() : 0L;
+			}
+			return ret;
+		} else if (componentType==double.class) {
+			double[] ret = new double[size];
+			for (int i=0; i<size; i++) {
+				Number value = toNumber(source.get(i), context);
+				ret[i] = value!=null ? value.doubleValue() : 0d;
+			}
+			return ret;
+		} else if (componentType==float.class) {
+			float[] ret = new float[size];
+			for (int i=0; i<size; i++) {
+				Number value = toNumber(source.get(i), context);
+				ret[i] = value!=null ? value.floatValue() : 0f;
+			}
+			return ret;
+		} else if (componentType==short.class) {
+			short[] ret = new short[size];
+			for (int i=0; i<size; i++) {
+				Number value = toNumber(source.get(i), context);
+				ret[i] = value!=null ? value.shortValue() : 0;
+			}
+			return ret;
+		} else if (componentType==byte.class) {
+			byte[] ret = new byte[size];
+			for (int i=0; i<size; i++) {
+				Number value = toNumber(source.get(i), context);
+				ret[i] = value!=null ? value.byteValue() : 0;
+			}
+			return ret;
+
+		// others
+		} else if (componentType==boolean.class) {
+			boolean[] ret = new boolean[size];
+			for (int i=0; i<size; i++) {
+				Object value = source.get(i);
+				if (value!=null && !Boolean.class.isInstance(value)) {
+					value = context.convert(value, BOOLEAN_TYPE);
+				}
+				ret[i] = value!=null && Boolean.class.cast(value).booleanValue();
+			}
+			return ret;
+		} else if (componentType==char.class) {
+			char[] ret = new char[size];
+			for (int i=0; i<size; i++) {
+				Object value = source.get(i);
+				if (value!=null && !Character.class.isInstance(value)) {
+					value = context.convert(value, CHARACTER_TYPE);
+				}
+				ret[i] = value!=null ? Character.class.cast(value).charValue() : 0;
+			}
+			return ret;
+		}
+
+		throw new ConversionException(
+			"Unable to convert BasicDBList to "+targetType);
+	}
+
+	/**
+	 * Returns the given element as a {@link Number}, converting
+	 * it if it isn't one.
+	 * @param value the element
+	 * @param context the {@link ConversionContext}
+	 * @return the number, or null
+	 * @throws ConversionException on error
+	 */
+	private static Number toNumber(Object value, ConversionContext context)
+		throws ConversionException {
+		if (value==null || Number.class.isInstance(value)) {
+			return Number.class.cast(value);
+		}
+		return Number.class.cast(context.convert(value, DOUBLE_TYPE));
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.googlecode.mjorm.convert.converters;
+
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.ConversionException;
+import com.googlecode.mjorm.convert.JavaType;
+import com.googlecode.mjorm.convert.TypeConversionHints;
+import com.googlecode.mjorm.convert.TypeConverter;
+import com.mongodb.BasicDBList;
+
+/**
+ * Converts arrays of primitives to {@link BasicDBList}s by copying
+ * the elements directly, without looking up a converter for them.
+ */
+public class PrimitiveArrayToMongoTypeConverter
+	implements TypeConverter<Object, BasicDBList> {
+
+	public boolean canConvert(Class<?> sourceClass, Class<?> targetClass) {
+		return sourceClass.isArray()
+			&& sourceClass.getComponentType().isPrimitive()
+			&& BasicDBList.class.equals(targetClass);
+	}
+
+	public BasicDBList convert(
+		Object source, JavaType targetType, ConversionContext context, TypeConversionHints hints)
+		throws ConversionException {
+
+		// copy the elements
+		BasicDBList ret = new BasicDBList();
+		if (source instanceof int[]) {
+			int[] array = (int[])source;
+			ret.ensureCapacity(array.length);
+			for (int i=0; i<array.length; i++) {
+				ret.add(Integer.valueOf(array[i]));
+			}
+		} else if (source instanceof long[]) {
+			long[] array = (long[])source;
+			ret.ensureCapacity(array.length);
+			for (int i=0; i<array.length; i++) {
+				ret.add(Long.valueOf(array[i]));
+			}
+		} else if (source instanceof double[]) {
+			double[] array = (double[])source;
+			ret.ensureCapacity(array.length);
+			for (int i=0; i<array.length; i++) {
+				ret.add(Double.valueOf(array[i]));
+			}
+		} else if (source instanceof float[]) {
+			float[] array = (float[])source;
+			ret.ensureCapacity(array.length);
+			for (int i=0; i<array.length; i++) {
+				ret.add(Float.valueOf(array[i]));
+			}
+		} else if (source instanceof short[]) {
+			short[] array = (short[])source;
+			ret.ensureCapacity(array.length);
+			for (int i=0; i<array.length; i++) {
+				ret.add(Short.valueOf(array[i]));
+			}
+		} else if (source instanceof byte[]) {
+			byte[] array = (byte[])source;
+			ret.ensureCapacity(array.length);
+			for (int i=0; i<array.length; i++) {
+				ret.add(Byte.valueOf(array[i]));
+			}
+		} else if (source instanceof boolean[]) {
+			boolean[] array = (boolean[])source;
+			ret.ensureCapacity(array.length);
+			for (int i=0; i<array.length; i++) {
+				ret.add(Boolean.valueOf(array[i]));
+			}
+		} else if (source instanceof char[]) {
+			char[] array = (char[])source;
+			ret.ensureCapacity(array.length);
+			for (int i=0; i<array.length; i++) {
+				ret.add(Character.valueOf(array[i]));
+			}
+		} else {
+			throw new ConversionException(
+				"Unable to convert "+source.getClass()+" to "+targetType);
+		}
+
+		// return it
+		return ret;
+	}
+
+}
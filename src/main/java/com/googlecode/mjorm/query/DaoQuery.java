@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import com.googlecode.mjorm.DescriptorObjectMapper;
 import com.googlecode.mjorm.MongoDao;
 import com.googlecode.mjorm.ObjectIterator;
 import com.googlecode.mjorm.ObjectMapper;
@@ -33,6 +34,7 @@ public class DaoQuery
 	private ReadPreference readPreference;
 	private CursorVisitor cursorVisitor;
 	private DaoModifier modifier;
+	private boolean projectMappedFields;
 
 	/**
 	 * Allows for the visiting of the {@link DBCursor}
@@ -102,7 +104,8 @@ public class DaoQuery
 	 */
 	public <T> ObjectIterator<T> findObjects(Class<T> clazz) {
 		assertValid();
-		DBCursor cursor = db.getCollection(collection).find(toQueryObject(objectMapper));
+		DBCursor cursor = db.getCollection(collection).find(
+			toQueryObject(objectMapper), createProjection(clazz));
 		setupCursor(cursor);
 		return new ObjectIterator<T>(cursor, objectMapper, clazz);
 	}
@@ -229,6 +232,18 @@ public class DaoQuery
 		return cursor.explain();
 	}
 
+	/**
+	 * Creates the projection for reading the given class, or
+	 * null if all fields should be read.
+	 * @param clazz the class
+	 * @return the projection
+	 */
+	private DBObject createProjection(Class<?> clazz) {
+		return projectMappedFields && DescriptorObjectMapper.class.isInstance(objectMapper)
+			? DescriptorObjectMapper.class.cast(objectMapper).createProjection(clazz)
+			: null;
+	}
+
 	/**
 	 * Sets up a {@link DBCursor} for this query.
 	 * @param cursor the curor.
@@ -426,6 +441,18 @@ public class DaoQuery
 		return self();
 	}
 
+	/**
+	 * Enables or disables projecting mapped fields.  When enabled, and
+	 * the {@link ObjectMapper} is a {@link DescriptorObjectMapper},
+	 * {@link #findObjects(Class)} and {@link #findObject(Class)} only
+	 * fetch the fields that are mapped to the class and it's sub classes.
+	 * @param projectMappedFields the projectMappedFields to set
+	 */
+	public DaoQuery setProjectMappedFields(boolean projectMappedFields) {
+		this.projectMappedFields = projectMappedFields;
+		return self();
+	}
+
 	/**
 	 * @param objectMapper the objectMapper to set
 	 */
@@ -6,6 +6,7 @@ import java.util.List;
 import org.springframework.beans.factory.config.AbstractFactoryBean;
 
 import com.googlecode.mjorm.annotations.AnnotationsDescriptorObjectMapper;
+import com.googlecode.mjorm.accessor.PropertyAccessorFactory;
 import com.googlecode.mjorm.convert.TypeConverter;
 
 /**
@@ -16,6 +17,7 @@ public class AnnotationsDescriptorObjectMapperFactoryBean
 
 	private Class<?>[] annotatedClasses = new Class<?>[0];
 	private List<TypeConverter<?, ?>> typeConverters = new ArrayList<TypeConverter<?, ?>>();
+	private PropertyAccessorFactory propertyAccessorFactory;
 
 	/**
 	 * {@inheritDoc}
@@ -24,6 +26,9 @@ public class AnnotationsDescriptorObjectMapperFactoryBean
 	protected AnnotationsDescriptorObjectMapper createInstance()
 		throws Exception {
 		AnnotationsDescriptorObjectMapper mapper = new AnnotationsDescriptorObjectMapper();
+		if (propertyAccessorFactory!=null) {
+			mapper.setPropertyAccessorFactory(propertyAccessorFactory);
+		}
 		for (TypeConverter<?, ?> converter : typeConverters) {
 			mapper.registerTypeConverter(converter);
 		}
@@ -48,6 +53,13 @@ public class AnnotationsDescriptorObjectMapperFactoryBean
 		this.typeConverters = typeConverters;
 	}
 
+	/**
+	 * @param propertyAccessorFactory the propertyAccessorFactory to set
+	 */
+	public void setPropertyAccessorFactory(PropertyAccessorFactory propertyAccessorFactory) {
+		this.propertyAccessorFactory = propertyAccessorFactory;
+	}
+
 	/**
 	 * @param annotatedClasses the annotatedClasses to set
 	 */
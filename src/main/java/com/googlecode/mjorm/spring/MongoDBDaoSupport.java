@@ -36,6 +36,11 @@ public class MongoDBDaoSupport
 	private String dbName;
 	private String username;
 	private String password;
+	private boolean directDecoding;
+	private boolean directEncoding;
+	private boolean projectMappedFields;
+	private boolean dirtyTracking;
+	private boolean fastInsert;
 	private Map<String, MapReduceConfiguration> mapReduceConfigs
 		= new HashMap<String, MapReduceConfiguration>();
 
@@ -83,7 +88,13 @@ public class MongoDBDaoSupport
 
 		// create the DAO if needed
 		if (mongoDao==null) {
-			mongoDao = new MongoDaoImpl(db, objectMapper);
+			MongoDaoImpl mongoDaoImpl = new MongoDaoImpl(db, objectMapper);
+			mongoDaoImpl.setDirectDecoding(directDecoding);
+			mongoDaoImpl.setDirectEncoding(directEncoding);
+			mongoDaoImpl.setProjectMappedFields(projectMappedFields);
+			mongoDaoImpl.setDirtyTracking(dirtyTracking);
+			mongoDaoImpl.setFastInsert(fastInsert);
+			mongoDao = mongoDaoImpl;
 		}
 
 		// ensure indexes
@@ -182,6 +193,46 @@ public class MongoDBDaoSupport
 		this.password = password;
 	}
 
+	/**
+	 * @param directDecoding the directDecoding to set
+	 * @see MongoDaoImpl#setDirectDecoding(boolean)
+	 */
+	public void setDirectDecoding(boolean directDecoding) {
+		this.directDecoding = directDecoding;
+	}
+
+	/**
+	 * @param directEncoding the directEncoding to set
+	 * @see MongoDaoImpl#setDirectEncoding(boolean)
+	 */
+	public void setDirectEncoding(boolean directEncoding) {
+		this.directEncoding = directEncoding;
+	}
+
+	/**
+	 * @param projectMappedFields the projectMappedFields to set
+	 * @see MongoDaoImpl#setProjectMappedFields(boolean)
+	 */
+	public void setProjectMappedFields(boolean projectMappedFields) {
+		this.projectMappedFields = projectMappedFields;
+	}
+
+	/**
+	 * @param dirtyTracking the dirtyTracking to set
+	 * @see MongoDaoImpl#setDirtyTracking(boolean)
+	 */
+	public void setDirtyTracking(boolean dirtyTracking) {
+		this.dirtyTracking = dirtyTracking;
+	}
+
+	/**
+	 * @param fastInsert the fastInsert to set
+	 * @see MongoDaoImpl#setFastInsert(boolean)
+	 */
+	public void setFastInsert(boolean fastInsert) {
+		this.fastInsert = fastInsert;
+	}
+
 	/**
 	 * @param mongoDao the mongoDao to set
 	 */
@@ -9,6 +9,7 @@ import org.springframework.beans.factory.config.AbstractFactoryBean;
 import org.springframework.core.io.Resource;
 
 import com.googlecode.mjorm.XmlDescriptorObjectMapper;
+import com.googlecode.mjorm.accessor.PropertyAccessorFactory;
 import com.googlecode.mjorm.convert.TypeConverter;
 
 /**
@@ -20,6 +21,7 @@ public class XmlDescriptorObjectMapperFactoryBean
 	private List<Resource> xmlResources = new ArrayList<Resource>();
 	private List<File> xmlFiles = new ArrayList<File>();
 	private List<TypeConverter<?, ?>> typeConverters = new ArrayList<TypeConverter<?, ?>>();
+	private PropertyAccessorFactory propertyAccessorFactory;
 
 	/**
 	 * {@inheritDoc}
@@ -28,6 +30,9 @@ public class XmlDescriptorObjectMapperFactoryBean
 	protected XmlDescriptorObjectMapper createInstance()
 		throws Exception {
 		XmlDescriptorObjectMapper mapper = new XmlDescriptorObjectMapper();
+		if (propertyAccessorFactory!=null) {
+			mapper.setPropertyAccessorFactory(propertyAccessorFactory);
+		}
 		for (TypeConverter<?, ?> converter : typeConverters) {
 			mapper.registerTypeConverter(converter);
 		}
@@ -71,4 +76,11 @@ public class XmlDescriptorObjectMapperFactoryBean
 		this.typeConverters = typeConverters;
 	}
 
+	/**
+	 * @param propertyAccessorFactory the propertyAccessorFactory to set
+	 */
+	public void setPropertyAccessorFactory(PropertyAccessorFactory propertyAccessorFactory) {
+		this.propertyAccessorFactory = propertyAccessorFactory;
+	}
+
 }
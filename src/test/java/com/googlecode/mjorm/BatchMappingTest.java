@@ -0,0 +1,151 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+import static com.googlecode.mjorm.MappingFixtures.*;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.DBObject;
+
+public class BatchMappingTest {
+
+	private XmlDescriptorObjectMapper mapper;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		mapper = createMapper();
+		executor = Executors.newFixedThreadPool(3);
+	}
+
+	@After
+	public void tearDown()
+		throws Exception {
+		executor.shutdownNow();
+	}
+
+	private void assertRoundTrip(int count) {
+		List<Person> people = createPeople(count);
+		List<DBObject> dbObjects = mapper.unmapAll(people);
+		assertEquals(count, dbObjects.size());
+		for (int i=0; i<count; i++) {
+			assertEquals("person"+i, dbObjects.get(i).get("firstName"));
+		}
+
+		List<Person> mapped = mapper.mapAll(dbObjects, Person.class);
+		assertEquals(count, mapped.size());
+		for (int i=0; i<count; i++) {
+			assertEquals("person"+i, mapped.get(i).getFirstName());
+			assertEquals(people.get(i).getAddress().getStreetName(),
+				mapped.get(i).getAddress().getStreetName());
+		}
+	}
+
+	@Test
+	public void testMapAll()
+		throws Exception {
+		assertRoundTrip(0);
+		assertRoundTrip(10);
+	}
+
+	@Test
+	public void testMapAll_Parallel()
+		throws Exception {
+		mapper.setExecutor(executor);
+		mapper.setParallelBatchSize(7);
+		assertRoundTrip(6);
+		assertRoundTrip(100);
+	}
+
+	@Test(timeout=10000)
+	public void testMapAll_NestedOnSameExecutor()
+		throws Exception {
+		ExecutorService single = Executors.newFixedThreadPool(1);
+		try {
+			mapper.setExecutor(single);
+			mapper.setParallelBatchSize(2);
+			final List<DBObject> dbObjects = mapper.unmapAll(createPeople(40));
+			final Person[] mapped = new Person[dbObjects.size()];
+
+			// chunks mapped on the executor that maps their batches,
+			// as the dao's readers do
+			ParallelBatch.run(single, 10, dbObjects.size(), new ParallelBatch.Task() {
+				public void run(int from, int to) {
+					List<Person> people = mapper.mapAll(dbObjects.subList(from, to), Person.class);
+					for (int i=from; i<to; i++) {
+						mapped[i] = people.get(i-from);
+					}
+				}
+			});
+			for (int i=0; i<mapped.length; i++) {
+				assertEquals("person"+i, mapped[i].getFirstName());
+			}
+		} finally {
+			single.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testMapAll_MixedAndNulls()
+		throws Exception {
+		List<Object> objects = new LinkedList<Object>();
+		objects.add(createPerson("first"));
+		objects.add(null);
+		objects.add(createCity());
+		List<DBObject> dbObjects = mapper.unmapAll(objects);
+		assertEquals("first", dbObjects.get(0).get("firstName"));
+		assertNull(dbObjects.get(1));
+		assertEquals(mapper.unmap(objects.get(2)), dbObjects.get(2));
+
+		List<Person> people = mapper.mapAll(dbObjects.subList(0, 2), Person.class);
+		assertEquals("first", people.get(0).getFirstName());
+		assertNull(people.get(1));
+	}
+
+	@Test
+	public void testMapAll_ObjectMapper()
+		throws Exception {
+		ObjectMapper objectMapper = new ObjectMapper() {
+			public <T> T map(DBObject dbObject, Class<T> objectClass) {
+				return mapper.map(dbObject, objectClass);
+			}
+			public <T> DBObject unmap(T object) {
+				return mapper.unmap(object);
+			}
+			public <T> Object unmapValue(T object) {
+				return mapper.unmapValue(object);
+			}
+		};
+
+		// mapped one at a time
+		List<DBObject> dbObjects = MappingUtil.unmapAll(objectMapper, createPeople(3));
+		assertEquals("person2", dbObjects.get(2).get("firstName"));
+		List<Person> people = MappingUtil.mapAll(objectMapper, dbObjects, Person.class);
+		assertEquals(3, people.size());
+		assertEquals("person1", people.get(1).getFirstName());
+	}
+
+	@Test
+	public void testMapAll_Error()
+		throws Exception {
+		mapper.setExecutor(executor);
+		mapper.setParallelBatchSize(2);
+		List<DBObject> dbObjects = mapper.unmapAll(createPeople(10));
+		dbObjects.get(7).put("address", "not an address");
+		try {
+			mapper.mapAll(dbObjects, Person.class);
+			fail("Expected MjormException");
+		} catch (MjormException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+import static com.googlecode.mjorm.MappingFixtures.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBEncoder;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteResult;
+
+public class BulkInsertTest {
+
+	private XmlDescriptorObjectMapper mapper;
+	private List<List<DBObject>> inserted;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		mapper = createMapper();
+		inserted = Collections.synchronizedList(new ArrayList<List<DBObject>>());
+	}
+
+	private BulkInsert createBulkInsert(final int failAt) {
+		BulkInsert ret = new BulkInsert(null, mapper) {
+			@Override
+			protected WriteResult doInsert(List<DBObject> batch, WriteConcern concern) {
+				if (inserted.size()==failAt) {
+					throw new IllegalStateException("failed");
+				}
+				inserted.add(batch);
+				return null;
+			}
+		};
+		return ret.setWriteConcern(WriteConcern.NORMAL);
+	}
+
+	@Test
+	public void testInsert_BatchSize()
+		throws Exception {
+		List<BulkInsertResult> results = createBulkInsert(-1)
+			.setMaxBatchSize(10)
+			.insert(createPeople(25));
+		assertEquals(3, results.size());
+		assertEquals(3, inserted.size());
+		int[] counts = { 10, 10, 5 };
+		for (int i=0; i<3; i++) {
+			assertEquals(i, results.get(i).getBatchIndex());
+			assertEquals(i*10, results.get(i).getOffset());
+			assertEquals(counts[i], results.get(i).getCount());
+			assertEquals(counts[i], inserted.get(i).size());
+			assertTrue(results.get(i).getBytes()>0);
+			assertNotNull(inserted.get(i).get(0).get("_id"));
+		}
+		assertEquals("person20", inserted.get(2).get(0).get("firstName"));
+	}
+
+	@Test
+	public void testInsert_BatchBytes()
+		throws Exception {
+		DBObject person = mapper.unmap(createPerson("person0"));
+		person.put("_id", new ObjectId());
+		int size = DefaultDBEncoder.FACTORY.create().writeObject(new BasicOutputBuffer(), person);
+		List<BulkInsertResult> results = createBulkInsert(-1)
+			.setMaxBatchBytes(size*4+size/2)
+			.insert(createPeople(10));
+		assertEquals(3, results.size());
+		int count = 0;
+		for (BulkInsertResult result : results) {
+			assertTrue(result.getBytes()<=size*4+size/2);
+			count += result.getCount();
+		}
+		assertEquals(10, count);
+
+		// too large for any batch
+		inserted.clear();
+		results = createBulkInsert(-1)
+			.setMaxBatchBytes(1)
+			.insert(createPeople(3));
+		assertEquals(3, results.size());
+	}
+
+	@Test
+	public void testInsert_SetsIds()
+		throws Exception {
+		mapper = new XmlDescriptorObjectMapper();
+		addMapping(mapper, "/com/googlecode/mjorm/City_alt_columns.mongo.xml");
+		List<City> cities = new ArrayList<City>();
+		for (int i=0; i<5; i++) {
+			City city = new City();
+			city.setName("city"+i);
+			cities.add(city);
+		}
+		createBulkInsert(-1).setMaxBatchSize(2).insert(cities);
+		assertEquals(3, inserted.size());
+		for (int i=0; i<5; i++) {
+			DBObject dbObject = inserted.get(i/2).get(i%2);
+			assertNotNull(cities.get(i).getId());
+			assertEquals(dbObject.get("_id").toString(), cities.get(i).getId());
+			assertEquals("city"+i, dbObject.get("col1"));
+		}
+	}
+
+	@Test
+	public void testInsert_Error()
+		throws Exception {
+		BulkInsert bulkInsert = createBulkInsert(2).setMaxBatchSize(10);
+		try {
+			bulkInsert.insert(createPeople(100));
+			fail("Expected MjormException");
+		} catch (MjormException e) {
+			assertEquals(IllegalStateException.class, e.getCause().getClass());
+		}
+		assertEquals(2, bulkInsert.getResults().size());
+		assertEquals(2, inserted.size());
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.googlecode.mjorm;
+
+public class Country {
+
+	private String name;
+	private LazyRef<City> capital;
+	/**
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+	/**
+	 * @param name the name to set
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+	/**
+	 * @return the capital
+	 */
+	public LazyRef<City> getCapital() {
+		return capital;
+	}
+	/**
+	 * @param capital the capital to set
+	 */
+	public void setCapital(LazyRef<City> capital) {
+		this.capital = capital;
+	}
+
+}
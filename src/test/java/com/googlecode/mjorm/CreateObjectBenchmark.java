@@ -0,0 +1,83 @@
+package com.googlecode.mjorm;
+
+import org.bson.types.ObjectId;
+
+import com.mongodb.DBObject;
+
+/**
+ * A simple (non JUnit) benchmark of the client side work done by
+ * {@link MongoDaoImpl#createObject(String, Object)}, with and
+ * without fast inserts.  The insert itself is simulated by giving
+ * the document an id like the driver does.  Run it's main method
+ * with the test classpath.
+ */
+public class CreateObjectBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 50000;
+	private static final int ITERATIONS = 200000;
+
+	public static void main(String[] args)
+		throws Exception {
+		XmlDescriptorObjectMapper mapper = MappingFixtures.createMapper();
+		for (int run=0; run<2; run++) {
+			benchmark(mapper, new City());
+			benchmark(mapper, MappingFixtures.createPerson("first"));
+			benchmark(mapper, MappingFixtures.createSuperDuper());
+		}
+	}
+
+	/**
+	 * Creates the given object repeatedly in both modes and
+	 * prints the throughput.
+	 * @param mapper the mapper
+	 * @param object the object
+	 */
+	private static void benchmark(XmlDescriptorObjectMapper mapper, Object object) {
+		for (int i=0; i<WARMUP_ITERATIONS; i++) {
+			create(mapper, object, false);
+			create(mapper, object, true);
+		}
+
+		long startBytes = MappingBenchmark.allocatedBytes();
+		long start = System.nanoTime();
+		for (int i=0; i<ITERATIONS; i++) {
+			create(mapper, object, false);
+		}
+		long mapNanos = System.nanoTime()-start;
+		long mapBytes = MappingBenchmark.allocatedBytes()-startBytes;
+
+		startBytes = MappingBenchmark.allocatedBytes();
+		start = System.nanoTime();
+		for (int i=0; i<ITERATIONS; i++) {
+			create(mapper, object, true);
+		}
+		long fastNanos = System.nanoTime()-start;
+		long fastBytes = MappingBenchmark.allocatedBytes()-startBytes;
+
+		System.out.println(String.format(
+			"%-14s re-map: %8d ops/s %6d B/op   fast: %8d ops/s %6d B/op",
+			object.getClass().getSimpleName(),
+			ITERATIONS*1000000000L/mapNanos, mapBytes/ITERATIONS,
+			ITERATIONS*1000000000L/fastNanos, fastBytes/ITERATIONS));
+	}
+
+	/**
+	 * Does the client side work of creating the given object.
+	 * @param mapper the mapper
+	 * @param object the object
+	 * @param fastInsert whether or not to skip mapping
+	 * @return the created object
+	 */
+	private static Object create(XmlDescriptorObjectMapper mapper, Object object, boolean fastInsert) {
+		DBObject dbObject = mapper.unmap(object);
+		if (dbObject.get("_id")==null) {
+			dbObject.put("_id", new ObjectId());
+		}
+		if (fastInsert) {
+			mapper.setIdentifier(object, dbObject.get("_id"));
+			return object;
+		}
+		return mapper.map(dbObject, object.getClass());
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+
+import org.bson.BSON;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+
+import com.googlecode.mjorm.annotations.AnnotationsDescriptorObjectMapper;
+import com.mongodb.BasicDBObjectBuilder;
+import com.mongodb.DBCollection;
+import com.mongodb.DBDecoder;
+import com.mongodb.DBObject;
+
+public class CreatorMappingTest {
+
+	private DBObject createDBObject(String id) {
+		return BasicDBObjectBuilder.start()
+			.add("_id", id)
+			.add("name", "city name")
+			.add("lat", new Double(1.5d))
+			.add("note", "a note")
+			.get();
+	}
+
+	private void assertCity(String id, ImmutableCity city) {
+		assertEquals(id, city.getId());
+		assertEquals("city name", city.getName());
+		assertEquals(1.5f, city.getLat(), 0.0f);
+		assertEquals(0.0f, city.getLon(), 0.0f);
+		assertEquals("a note", city.getNote());
+	}
+
+	private void testMapper(DescriptorObjectMapper mapper) {
+		String id = new ObjectId().toString();
+
+		// map
+		ImmutableCity city = mapper.map(createDBObject(id), ImmutableCity.class);
+		assertCity(id, city);
+
+		// decode
+		DBDecoder decoder = mapper.createDecoderFactory(ImmutableCity.class).create();
+		DBObject decoded = decoder.decode(BSON.encode(createDBObject(id)), (DBCollection)null);
+		assertCity(id, mapper.map(decoded, ImmutableCity.class));
+
+		// unmap
+		DBObject dbObject = mapper.unmap(city);
+		assertEquals(id, dbObject.get("_id"));
+		assertEquals(new Float(1.5f), dbObject.get("lat"));
+		assertEquals("a note", dbObject.get("note"));
+	}
+
+	@Test
+	public void testAnnotations()
+		throws Exception {
+		AnnotationsDescriptorObjectMapper mapper = new AnnotationsDescriptorObjectMapper();
+		mapper.addClass(ImmutableCity.class);
+		testMapper(mapper);
+	}
+
+	@Test
+	public void testXml()
+		throws Exception {
+		XmlDescriptorObjectMapper mapper = new XmlDescriptorObjectMapper();
+		mapper.addXmlObjectDescriptor(getClass().getResourceAsStream("/com/googlecode/mjorm/ImmutableCity.mongo.xml"));
+		testMapper(mapper);
+
+		ObjectDescriptor desc = new XmlObjectDescriptorParser().parseDocument(
+			getClass().getResourceAsStream("/com/googlecode/mjorm/ImmutableCity.mongo.xml")).get(0);
+		assertEquals("create", desc.getCreator().getName());
+	}
+
+	@Test
+	public void testSetCreator_WrongType()
+		throws Exception {
+		ObjectDescriptor desc = new ObjectDescriptor();
+		desc.setType(City.class);
+		try {
+			desc.setCreator(ImmutableCity.class.getMethod("create",
+				String.class, String.class, float.class, float.class),
+				"id", "name", "lat", "lon");
+			fail("Expected MjormException");
+		} catch (MjormException e) {
+			// expected
+		}
+		assertNull(desc.getCreator());
+	}
+
+}
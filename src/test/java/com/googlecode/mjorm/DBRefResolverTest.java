@@ -0,0 +1,158 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+
+public class DBRefResolverTest {
+
+	private Map<String, Map<Object, DBObject>> collections;
+	private List<String> queries;
+	private DBRefResolver resolver;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		collections = new HashMap<String, Map<Object, DBObject>>();
+		queries = new ArrayList<String>();
+		resolver = new DBRefResolver(null) {
+			@Override
+			protected List<DBObject> find(String database, String collection, Collection<Object> ids) {
+				queries.add(collection+ids.size());
+				List<DBObject> ret = new ArrayList<DBObject>();
+				for (Object id : ids) {
+					DBObject dbObject = collections.get(collection).get(id);
+					if (dbObject!=null) {
+						ret.add(dbObject);
+					}
+				}
+				return ret;
+			}
+		};
+	}
+
+	private DBObject store(String collection, Object id, Object... fields) {
+		if (!collections.containsKey(collection)) {
+			collections.put(collection, new HashMap<Object, DBObject>());
+		}
+		DBObject ret = new BasicDBObject("_id", id);
+		for (int i=0; i<fields.length; i+=2) {
+			ret.put((String)fields[i], fields[i+1]);
+		}
+		collections.get(collection).put(id, ret);
+		return ret;
+	}
+
+	private DBObject ref(String collection, Object id) {
+		return new BasicDBObject("$ref", collection).append("$id", id);
+	}
+
+	@Test
+	public void testResolve_Batched()
+		throws Exception {
+		BasicDBList people = new BasicDBList();
+		for (int i=0; i<20; i++) {
+			store("people", i, "name", "person"+i, "city", ref("cities", i%3));
+			people.add(ref("people", i));
+		}
+		for (int i=0; i<3; i++) {
+			store("cities", i, "name", "city"+i);
+		}
+		people.add(new DBRef(null, "cities", 0));
+		people.add(ref("people", 99));
+		DBObject root = new BasicDBObject("people", people);
+
+		// one query per collection and depth, fetched documents aren't fetched again
+		resolver.resolve(root);
+		assertEquals(Arrays.asList("people21", "cities1", "cities2"), queries);
+		for (int i=0; i<20; i++) {
+			DBObject person = (DBObject)people.get(i);
+			assertEquals("person"+i, person.get("name"));
+			assertEquals("city"+(i%3), ((DBObject)person.get("city")).get("name"));
+		}
+		assertEquals("city0", ((DBObject)people.get(20)).get("name"));
+		assertNull(people.get(21));
+	}
+
+	@Test
+	public void testResolve_DepthAndCycles()
+		throws Exception {
+		store("nodes", "a", "next", ref("nodes", "b"));
+		store("nodes", "b", "next", ref("nodes", "c"));
+		store("nodes", "c", "next", ref("nodes", "a"));
+
+		// stops at the cycle
+		DBObject root = new BasicDBObject("next", ref("nodes", "a"));
+		resolver.resolve(root);
+		DBObject a = (DBObject)root.get("next");
+		DBObject b = (DBObject)a.get("next");
+		DBObject c = (DBObject)b.get("next");
+		assertEquals("c", c.get("_id"));
+		assertTrue(DBRefUtil.isRef((DBObject)c.get("next")));
+
+		// stops at the depth
+		store("nodes", "a", "next", ref("nodes", "b"));
+		store("nodes", "b", "next", ref("nodes", "c"));
+		resolver.setMaxDepth(1);
+		root = new BasicDBObject("next", ref("nodes", "a"));
+		resolver.resolve(root);
+		a = (DBObject)root.get("next");
+		assertEquals("a", a.get("_id"));
+		assertTrue(DBRefUtil.isRef((DBObject)a.get("next")));
+	}
+
+	@Test
+	public void testResolve_MutualReferences()
+		throws Exception {
+		store("nodes", "x", "other", ref("nodes", "y"));
+		store("nodes", "y", "other", ref("nodes", "x"));
+
+		// every place gets it's own document, so there's no cycle of objects
+		BasicDBList list = new BasicDBList();
+		list.add(ref("nodes", "x"));
+		list.add(ref("nodes", "y"));
+		DBObject root = new BasicDBObject("nodes", list);
+		resolver.resolve(root);
+		DBObject x = (DBObject)list.get(0);
+		DBObject y = (DBObject)list.get(1);
+		assertEquals("y", ((DBObject)x.get("other")).get("_id"));
+		assertEquals("x", ((DBObject)y.get("other")).get("_id"));
+		assertNotSame(x, ((DBObject)y.get("other")));
+		assertNotSame(y, ((DBObject)x.get("other")));
+		assertTrue(DBRefUtil.isRef((DBObject)((DBObject)x.get("other")).get("other")));
+		assertTrue(DBRefUtil.isRef((DBObject)((DBObject)y.get("other")).get("other")));
+		assertNotNull(root.toString());
+	}
+
+	@Test
+	public void testFetch_ObjectRefs()
+		throws Exception {
+		ObjectId id = new ObjectId();
+		store("cities", id, "name", "city");
+		store("states", "state", "name", "state");
+		ObjectRef city = new ObjectRef(id.toString(), "cities");
+		ObjectRef state = new ObjectRef("state", "states");
+		ObjectRef missing = new ObjectRef("missing", "states");
+
+		Map<ObjectRef, DBObject> fetched = resolver.fetch(Arrays.asList(city, state, missing));
+		assertEquals(2, queries.size());
+		assertEquals("city", fetched.get(new ObjectRef(id.toString(), "cities")).get("name"));
+		assertEquals("state", fetched.get(state).get("name"));
+		assertFalse(fetched.containsKey(missing));
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+import static com.googlecode.mjorm.MappingFixtures.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.mjorm.annotations.AnnotationsDescriptorObjectMapper;
+import com.googlecode.mjorm.annotations.Entity;
+import com.googlecode.mjorm.annotations.Property;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+public class DirtyTrackerTest {
+
+	private XmlDescriptorObjectMapper mapper;
+	private DirtyTracker tracker;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		mapper = createMapper();
+		tracker = new DirtyTracker(mapper);
+	}
+
+	@Test
+	public void testCreateUpdate()
+		throws Exception {
+		Person person = createPerson("first");
+		assertNull(tracker.createUpdate(person));
+
+		// nothing changed
+		tracker.track(person);
+		assertTrue(tracker.isTracked(person));
+		assertTrue(tracker.createUpdate(person).keySet().isEmpty());
+
+		// set and unset
+		person.setFirstName("changed");
+		person.setLastName(null);
+		DBObject update = tracker.createUpdate(person);
+		assertEquals(2, update.keySet().size());
+		assertEquals("changed", ((DBObject)update.get("$set")).get("firstName"));
+		assertEquals(1, ((DBObject)update.get("$set")).keySet().size());
+		assertTrue(((DBObject)update.get("$unset")).containsField("lastName"));
+
+		// the state is only tracked once it's committed
+		assertEquals(2, tracker.createUpdate(person).keySet().size());
+		ObjectSnapshot current = tracker.createSnapshot(person);
+		assertEquals(2, tracker.createUpdate(person, current).keySet().size());
+		tracker.commit(person, current);
+		assertTrue(tracker.createUpdate(person).keySet().isEmpty());
+
+		// embedded objects are set whole
+		person.getAddress().setStreetName("other street");
+		update = tracker.createUpdate(person);
+		DBObject address = (DBObject)((DBObject)update.get("$set")).get("address");
+		assertEquals("other street", address.get("streetName"));
+
+		tracker.untrack(person);
+		assertFalse(tracker.isTracked(person));
+		assertEquals(0, tracker.size());
+	}
+
+	@Test
+	public void testCreateUpdate_Push()
+		throws Exception {
+		SuperDuper superDuper = new SuperDuper();
+		superDuper.setPersonList(new ArrayList<Person>());
+		superDuper.getPersonList().add(createPerson("p0"));
+		superDuper.getPersonList().add(createPerson("p1"));
+		tracker.track(superDuper);
+
+		superDuper.getPersonList().add(createPerson("added"));
+		DBObject update = tracker.createUpdate(superDuper);
+		assertEquals(1, update.keySet().size());
+		DBObject pushed = (DBObject)((DBObject)update.get("$push")).get("personList");
+		assertEquals("added", pushed.get("firstName"));
+
+		tracker.track(superDuper);
+		superDuper.getPersonList().add(createPerson("one"));
+		superDuper.getPersonList().add(createPerson("two"));
+		update = tracker.createUpdate(superDuper);
+		assertNotNull(((DBObject)update.get("$pushAll")).get("personList"));
+
+		// removing isn't an append
+		tracker.track(superDuper);
+		superDuper.getPersonList().remove(0);
+		update = tracker.createUpdate(superDuper);
+		assertNotNull(((DBObject)update.get("$set")).get("personList"));
+	}
+
+	@Test
+	public void testCreateUpdate_MutableValues()
+		throws Exception {
+		AnnotationsDescriptorObjectMapper annotationsMapper = new AnnotationsDescriptorObjectMapper();
+		annotationsMapper.addClass(Event.class);
+		DirtyTracker eventTracker = new DirtyTracker(annotationsMapper);
+		Event event = new Event();
+		event.when = new Date(1000L);
+		event.data = new BasicDBObject("count", 1);
+		event.tags = new BasicDBList();
+		eventTracker.track(event);
+
+		// values changed in place are seen
+		event.when.setTime(2000L);
+		event.data.put("count", 2);
+		event.tags.add("tag");
+		DBObject update = eventTracker.createUpdate(event);
+		assertEquals(new Date(2000L), ((DBObject)update.get("$set")).get("when"));
+		assertEquals(2, ((DBObject)((DBObject)update.get("$set")).get("data")).get("count"));
+		assertEquals("tag", ((DBObject)update.get("$push")).get("tags"));
+	}
+
+	@Entity
+	public static class Event {
+		@Property
+		private Date when;
+		@Property
+		private DBObject data;
+		@Property
+		private BasicDBList tags;
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.mjorm.accessor.ReflectionPropertyAccessorFactory;
+import com.googlecode.mjorm.annotations.AnnotationsDescriptorObjectMapper;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BasicDBObjectBuilder;
+import com.mongodb.DBObject;
+
+public class FieldAccessMappingTest {
+
+	private AnnotationsDescriptorObjectMapper mapper;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		mapper = new AnnotationsDescriptorObjectMapper();
+		mapper.addClass(FieldTestObject.class);
+	}
+
+	private void testMap() {
+		String id = new ObjectId().toString();
+		BasicDBObject dbObject = (BasicDBObject)BasicDBObjectBuilder.start()
+			.add("_id", id)
+			.add("n", "the name")
+			.add("count", new Integer(3))
+			.add("disc", "sub")
+			.add("total", new Long(12L))
+			.get();
+
+		FieldTestObject obj = mapper.map(dbObject, FieldTestObject.class);
+		assertEquals(FieldTestSubClass.class, obj.getClass());
+		assertEquals(id, obj.getId());
+		assertEquals("the name", obj.getName());
+		assertEquals(3, obj.count);
+		assertEquals(new Long(12L), FieldTestSubClass.class.cast(obj).getTotal());
+
+		DBObject unmapped = mapper.unmap(obj);
+		assertEquals(new ObjectId(id), unmapped.get("_id"));
+		assertEquals("the name", unmapped.get("n"));
+		assertEquals(new Integer(3), unmapped.get("count"));
+		assertEquals("sub", unmapped.get("disc"));
+		assertEquals(new Long(12L), unmapped.get("total"));
+	}
+
+	@Test
+	public void testMap_Bytecode() {
+		testMap();
+	}
+
+	@Test
+	public void testMap_Reflection() {
+		mapper.setPropertyAccessorFactory(ReflectionPropertyAccessorFactory.INSTANCE);
+		testMap();
+	}
+
+}
@@ -0,0 +1,42 @@
+package com.googlecode.mjorm;
+
+import com.googlecode.mjorm.annotations.Entity;
+import com.googlecode.mjorm.annotations.Id;
+import com.googlecode.mjorm.annotations.Property;
+import com.googlecode.mjorm.annotations.SubClass;
+
+@Entity(
+	discriminatorName = "disc",
+	discriminatorType = DiscriminatorType.STRING,
+	subClasses={
+		@SubClass(discriminiatorValue="sub", entityClass=FieldTestSubClass.class)
+	}
+)
+public class FieldTestObject {
+
+	@Id
+	@Property
+	private String id;
+
+	@Property(field="n")
+	private String name;
+
+	@Property
+	public int count;
+
+	@Property
+	private String disc;
+
+	public String getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDisc() {
+		return disc;
+	}
+
+}
@@ -0,0 +1,17 @@
+package com.googlecode.mjorm;
+
+import com.googlecode.mjorm.annotations.Entity;
+import com.googlecode.mjorm.annotations.Property;
+
+@Entity
+public class FieldTestSubClass
+	extends FieldTestObject {
+
+	@Property
+	private final Long total = null;
+
+	public Long getTotal() {
+		return total;
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.googlecode.mjorm;
+
+import com.googlecode.mjorm.annotations.Creator;
+import com.googlecode.mjorm.annotations.Entity;
+import com.googlecode.mjorm.annotations.Id;
+import com.googlecode.mjorm.annotations.Property;
+
+@Entity
+public final class ImmutableCity {
+
+	@Id(autoGenerated=false)
+	@Property
+	private final String id;
+
+	@Property
+	private final String name;
+
+	@Property
+	private final float lat;
+
+	@Property
+	private final float lon;
+
+	@Property
+	private String note;
+
+	@Creator(properties={"id", "name", "lat", "lon"})
+	public ImmutableCity(String id, String name, float lat, float lon) {
+		this.id = id;
+		this.name = name;
+		this.lat = lat;
+		this.lon = lon;
+	}
+
+	public static ImmutableCity create(String id, String name, float lat, float lon) {
+		return new ImmutableCity(id, name, lat, lon);
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public float getLat() {
+		return lat;
+	}
+
+	public float getLon() {
+		return lon;
+	}
+
+	public String getNote() {
+		return note;
+	}
+
+	public void setNote(String note) {
+		this.note = note;
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+import static com.googlecode.mjorm.MappingFixtures.*;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.mjorm.annotations.AnnotationsDescriptorObjectMapper;
+import com.googlecode.mjorm.annotations.Entity;
+import com.googlecode.mjorm.annotations.Property;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BasicDBObjectBuilder;
+import com.mongodb.DBObject;
+
+public class LazyMappingTest {
+
+	private XmlDescriptorObjectMapper mapper;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		mapper = createMapper();
+	}
+
+	@Test
+	public void testMapLazily()
+		throws Exception {
+		DBObject dbObject = mapper.unmap(createPerson("first"));
+
+		Person lazy = mapper.mapLazily(dbObject, Person.class);
+		assertTrue(lazy instanceof LazyEntity);
+		LazyLoader loader = ((LazyEntity)lazy).getLazyLoader();
+		assertFalse(loader.isLoaded("firstName"));
+		assertFalse(loader.isLoaded("address"));
+
+		// loaded on read
+		assertEquals("first", lazy.getFirstName());
+		assertTrue(loader.isLoaded("firstName"));
+		assertFalse(loader.isLoaded("address"));
+		assertEquals("street name", lazy.getAddress().getStreetName());
+		assertTrue(loader.isLoaded("address"));
+
+		// set before read isn't overwritten
+		lazy.setLastName("changed");
+		assertTrue(loader.isLoaded("lastName"));
+		assertEquals("changed", lazy.getLastName());
+
+		// unmaps the same
+		DBObject unmapped = mapper.unmap(lazy);
+		assertEquals("first", unmapped.get("firstName"));
+		assertEquals("changed", unmapped.get("lastName"));
+		assertEquals("street name", ((DBObject)unmapped.get("address")).get("streetName"));
+	}
+
+	@Test
+	public void testSetLazyMapping()
+		throws Exception {
+		String id = new ObjectId().toString();
+		BasicDBObject dbObject = (BasicDBObject)BasicDBObjectBuilder.start()
+			.add("_id", id)
+			.add("name", "city name")
+			.add("lat", new Double(1.5d))
+			.get();
+
+		mapper.setLazyMapping(true);
+		City city = mapper.map(dbObject, City.class);
+		assertTrue(city instanceof LazyEntity);
+		assertEquals(id, city.getId());
+		assertEquals("city name", city.getName());
+		assertEquals(new Float(1.5f), city.getLat());
+		assertNull(city.getLon());
+
+		// not lazy, it's final with a creator
+		dbObject.put("lon", new Double(2.5d));
+		ImmutableCity immutable = mapper.map(dbObject, ImmutableCity.class);
+		assertEquals(ImmutableCity.class, immutable.getClass());
+		assertEquals(2.5f, immutable.getLon(), 0.0f);
+
+		mapper.setLazyMapping(false);
+		assertEquals(City.class, mapper.map(dbObject, City.class).getClass());
+	}
+
+	@Test
+	public void testMapLazily_ConstructorCallsAccessors()
+		throws Exception {
+		AnnotationsDescriptorObjectMapper annotationsMapper = new AnnotationsDescriptorObjectMapper();
+		annotationsMapper.addClass(Named.class);
+
+		// the constructor's calls aren't lazy
+		Named named = annotationsMapper.mapLazily(new BasicDBObject("name", "stored"), Named.class);
+		assertTrue(named instanceof LazyEntity);
+		assertFalse(((LazyEntity)named).getLazyLoader().isLoaded("name"));
+		assertEquals("default", named.initialName);
+		assertEquals("stored", named.getName());
+	}
+
+	@Entity
+	public static class Named {
+
+		private String name;
+		private String initialName;
+
+		public Named() {
+			setName("default");
+			initialName = getName();
+		}
+
+		@Property
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+
+}
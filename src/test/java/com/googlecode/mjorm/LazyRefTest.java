@@ -0,0 +1,230 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBApiLayer;
+import com.mongodb.DBConnector;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import com.mongodb.Mongo;
+
+public class LazyRefTest {
+
+	private XmlDescriptorObjectMapper mapper;
+	private Map<Object, DBObject> cities;
+	private List<Integer> queries;
+	private List<DB> dbs;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		mapper = new XmlDescriptorObjectMapper();
+		mapper.addXmlObjectDescriptor(res("/com/googlecode/mjorm/City.mongo.xml"));
+		mapper.addXmlObjectDescriptor(res("/com/googlecode/mjorm/Country.mongo.xml"));
+		cities = new HashMap<Object, DBObject>();
+		queries = new ArrayList<Integer>();
+		dbs = new ArrayList<DB>();
+		mapper.setLazyRefLoader(new LazyRefLoader(mapper) {
+			@Override
+			protected List<DBObject> find(DB db, String database, String collection, Collection<Object> ids) {
+				assertEquals("cities", collection);
+				queries.add(ids.size());
+				dbs.add(db);
+				List<DBObject> ret = new ArrayList<DBObject>();
+				for (Object id : ids) {
+					if (cities.containsKey(id)) {
+						ret.add(cities.get(id));
+					}
+				}
+				return ret;
+			}
+		});
+	}
+
+	private InputStream res(String path) {
+		return getClass().getResourceAsStream(path);
+	}
+
+	/**
+	 * Creates a {@link DB} whose writes are accepted without
+	 * being sent anywhere.
+	 */
+	private DB createDB()
+		throws Exception {
+		DBConnector connector = (DBConnector)Proxy.newProxyInstance(
+			getClass().getClassLoader(), new Class<?>[] { DBConnector.class },
+			new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					return method.getReturnType()==boolean.class ? Boolean.TRUE : null;
+				}
+			});
+		return new DBApiLayer(new Mongo("127.0.0.1"), "mjorm_test_db", connector) { };
+	}
+
+	private ObjectId storeCity(String name) {
+		ObjectId id = new ObjectId();
+		cities.put(id, new BasicDBObject("_id", id).append("name", name));
+		return id;
+	}
+
+	private DBObject country(String name, Object capital) {
+		return new BasicDBObject("name", name).append("capital", capital);
+	}
+
+	@Test
+	public void testLoad_Batched()
+		throws Exception {
+		ObjectId paris = storeCity("Paris");
+		ObjectId rome = storeCity("Rome");
+		List<DBObject> dbObjects = Arrays.asList(
+			country("France", new BasicDBObject("$ref", "cities").append("$id", paris)),
+			country("Italy", new DBRef(null, "cities", rome)),
+			country("Nowhere", new BasicDBObject("$ref", "cities").append("$id", new ObjectId())),
+			country("None", null));
+
+		// nothing is fetched until a reference is read
+		List<Country> countries = mapper.mapAll(dbObjects, Country.class);
+		assertTrue(queries.isEmpty());
+		assertNull(countries.get(3).getCapital());
+		assertFalse(countries.get(0).getCapital().isLoaded());
+
+		// then all of them are fetched together
+		assertEquals("Rome", countries.get(1).getCapital().get().getName());
+		assertEquals(Arrays.asList(3), queries);
+		assertEquals("Paris", countries.get(0).getCapital().get().getName());
+		assertEquals(paris.toString(), countries.get(0).getCapital().get().getId());
+		assertTrue(countries.get(2).getCapital().isLoaded());
+		assertNull(countries.get(2).getCapital().get());
+		assertEquals(1, queries.size());
+	}
+
+	@Test
+	public void testLoad_MaxBatchSize()
+		throws Exception {
+		mapper.getLazyRefLoader().setMaxBatchSize(2);
+		List<DBObject> dbObjects = new ArrayList<DBObject>();
+		for (int i=0; i<5; i++) {
+			dbObjects.add(country("country"+i,
+				new BasicDBObject("$ref", "cities").append("$id", storeCity("city"+i))));
+		}
+		List<Country> countries = mapper.mapAll(dbObjects, Country.class);
+		for (int i=0; i<5; i++) {
+			assertEquals("city"+i, countries.get(i).getCapital().get().getName());
+		}
+		assertEquals(Arrays.asList(2, 2, 1), queries);
+	}
+
+	@Test
+	public void testLoad_ParallelBatch()
+		throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			mapper.setExecutor(executor);
+			mapper.setParallelBatchSize(2);
+			List<DBObject> dbObjects = new ArrayList<DBObject>();
+			for (int i=0; i<5; i++) {
+				dbObjects.add(country("country"+i,
+					new BasicDBObject("$ref", "cities").append("$id", storeCity("city"+i))));
+			}
+
+			// the parts mapped by other threads are in the same batch
+			List<Country> countries = mapper.mapAll(dbObjects, Country.class);
+			assertEquals("city4", countries.get(4).getCapital().get().getName());
+			assertEquals(Arrays.asList(5), queries);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testUnmap()
+		throws Exception {
+		ObjectId paris = storeCity("Paris");
+		Country country = new Country();
+		country.setName("France");
+		country.setCapital(new LazyRef<City>("cities", paris, null));
+		DBObject dbObject = mapper.unmap(country);
+		DBRef ref = (DBRef)dbObject.get("capital");
+		assertEquals("cities", ref.getRef());
+		assertEquals(paris, ref.getId());
+
+		// other databases
+		country.setCapital(new LazyRef<City>(null, "cities", paris, "other", City.class, null, 0));
+		DBObject other = (DBObject)mapper.unmap(country).get("capital");
+		assertEquals("cities", other.get("$ref"));
+		assertEquals("other", other.get("$db"));
+
+		// and back
+		country = mapper.map(dbObject, Country.class);
+		assertEquals("Paris", country.getCapital().get().getName());
+	}
+
+	@Test
+	public void testLoad_Batches()
+		throws Exception {
+		DBObject paris = country("France", new BasicDBObject("$ref", "cities").append("$id", storeCity("Paris")));
+		DBObject rome = country("Italy", new BasicDBObject("$ref", "cities").append("$id", storeCity("Rome")));
+
+		// only references of the same batch are loaded together
+		List<Country> first = mapper.mapAll(Arrays.asList(paris), Country.class);
+		Country second = mapper.map(rome, Country.class);
+		assertEquals("Paris", first.get(0).getCapital().get().getName());
+		assertFalse(second.getCapital().isLoaded());
+		assertEquals("Rome", second.getCapital().get().getName());
+		assertEquals(Arrays.asList(1, 1), queries);
+	}
+
+	@Test
+	public void testCreateObject()
+		throws Exception {
+		DB db = createDB();
+		MongoDaoImpl dao = new MongoDaoImpl(db, mapper);
+		Country country = new Country();
+		country.setName("France");
+		country.setCapital(new LazyRef<City>("cities", storeCity("Paris"), null));
+
+		// the reference is stored as a document, it's loaded from the dao's DB
+		Country created = dao.createObject("countries", country);
+		assertNotSame(country, created);
+		assertFalse(created.getCapital().isLoaded());
+		assertEquals("Paris", created.getCapital().get().getName());
+		assertEquals(1, dbs.size());
+		assertSame(db, dbs.get(0));
+	}
+
+	@Test
+	public void testLoad_NoDB()
+		throws Exception {
+		mapper.setLazyRefLoader(new LazyRefLoader(mapper));
+		Country country = mapper.map(
+			country("France", new BasicDBObject("$ref", "cities").append("$id", storeCity("Paris"))),
+			Country.class);
+		try {
+			country.getCapital().get();
+			fail("Expected MjormException");
+		} catch (MjormException e) {
+			// expected
+		}
+		assertFalse(country.getCapital().isLoaded());
+	}
+
+}
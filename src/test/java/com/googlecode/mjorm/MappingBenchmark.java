@@ -0,0 +1,96 @@
+package com.googlecode.mjorm;
+
+import static com.googlecode.mjorm.MappingFixtures.*;
+
+import java.lang.management.ManagementFactory;
+
+import com.googlecode.mjorm.accessor.BytecodePropertyAccessorFactory;
+import com.googlecode.mjorm.accessor.PropertyAccessorFactory;
+import com.googlecode.mjorm.accessor.ReflectionPropertyAccessorFactory;
+import com.mongodb.DBObject;
+
+/**
+ * A simple (non JUnit) benchmark of mapping and unmapping the
+ * test entities.  Run it's main method with the test classpath.
+ */
+public class MappingBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 50000;
+	private static final int ITERATIONS = 200000;
+
+	public static void main(String[] args)
+		throws Exception {
+		for (int run=0; run<2; run++) {
+			benchmarkAccessors("reflection", ReflectionPropertyAccessorFactory.INSTANCE);
+			benchmarkAccessors("bytecode", BytecodePropertyAccessorFactory.INSTANCE);
+		}
+	}
+
+	/**
+	 * Benchmarks the test entities with the given {@link PropertyAccessorFactory}.
+	 * @param name the name of the run
+	 * @param factory the factory
+	 * @throws Exception on error
+	 */
+	private static void benchmarkAccessors(String name, PropertyAccessorFactory factory)
+		throws Exception {
+		XmlDescriptorObjectMapper mapper = createMapper();
+		mapper.setPropertyAccessorFactory(factory);
+		benchmark(name, mapper, createCity());
+		benchmark(name, mapper, createImmutableCity());
+		benchmark(name, mapper, createPerson("first"));
+		benchmark(name, mapper, createSuperDuper());
+	}
+
+	/**
+	 * Maps and unmaps the given object repeatedly and prints
+	 * the throughput.
+	 * @param name the name of the run
+	 * @param mapper the {@link ObjectMapper}
+	 * @param object the object
+	 */
+	static void benchmark(String name, ObjectMapper mapper, Object object) {
+		DBObject dbObject = mapper.unmap(object);
+		Class<?> clazz = object.getClass();
+		for (int i=0; i<WARMUP_ITERATIONS; i++) {
+			mapper.map(mapper.unmap(object), clazz);
+		}
+
+		long startBytes = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i=0; i<ITERATIONS; i++) {
+			mapper.unmap(object);
+		}
+		long unmapNanos = System.nanoTime()-start;
+		long unmapBytes = allocatedBytes()-startBytes;
+
+		startBytes = allocatedBytes();
+		start = System.nanoTime();
+		for (int i=0; i<ITERATIONS; i++) {
+			mapper.map(dbObject, clazz);
+		}
+		long mapNanos = System.nanoTime()-start;
+		long mapBytes = allocatedBytes()-startBytes;
+
+		System.out.println(String.format(
+			"%-12s %-14s map: %8d ops/s %6d B/op   unmap: %8d ops/s %6d B/op",
+			name, clazz.getSimpleName(),
+			(ITERATIONS*1000000000L)/mapNanos, mapBytes/ITERATIONS,
+			(ITERATIONS*1000000000L)/unmapNanos, unmapBytes/ITERATIONS));
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread,
+	 * or 0 if the JVM doesn't measure it.
+	 * @return the bytes
+	 */
+	public static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)bean)
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+}
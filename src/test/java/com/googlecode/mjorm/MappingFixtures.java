@@ -0,0 +1,103 @@
+package com.googlecode.mjorm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.bson.types.ObjectId;
+
+/**
+ * The mapper and test entities shared by the tests and
+ * the benchmarks.
+ */
+public final class MappingFixtures {
+
+	private MappingFixtures() { }
+
+	/**
+	 * Creates a mapper with the Address, City, ImmutableCity,
+	 * Person and SuperDuper mappings.
+	 * @return the mapper
+	 * @throws Exception on error
+	 */
+	public static XmlDescriptorObjectMapper createMapper()
+		throws Exception {
+		XmlDescriptorObjectMapper mapper = new XmlDescriptorObjectMapper();
+		addMapping(mapper, "/com/googlecode/mjorm/Address.mongo.xml");
+		addMapping(mapper, "/com/googlecode/mjorm/City.mongo.xml");
+		addMapping(mapper, "/com/googlecode/mjorm/ImmutableCity.mongo.xml");
+		addMapping(mapper, "/com/googlecode/mjorm/Person.mongo.xml");
+		addMapping(mapper, "/com/googlecode/mjorm/SuperDuper.mongo.xml");
+		return mapper;
+	}
+
+	/**
+	 * Adds the mapping at the given classpath resource.
+	 * @param mapper the mapper
+	 * @param path the path
+	 * @throws Exception on error
+	 */
+	public static void addMapping(XmlDescriptorObjectMapper mapper, String path)
+		throws Exception {
+		mapper.addXmlObjectDescriptor(MappingFixtures.class.getResourceAsStream(path));
+	}
+
+	public static City createCity() {
+		City city = new City();
+		city.setName("city name");
+		city.setLat(new Float("123.456"));
+		city.setLon(new Float("789.101"));
+		return city;
+	}
+
+	public static ImmutableCity createImmutableCity() {
+		return new ImmutableCity(new ObjectId().toString(), "city name",
+			Float.parseFloat("123.456"), Float.parseFloat("789.101"));
+	}
+
+	public static Person createPerson(String firstName) {
+		Address address = new Address();
+		address.setStreetName("street name");
+		address.setStreetNumber(2435L);
+		address.setCity(createCity());
+		Person person = new Person();
+		person.setFirstName(firstName);
+		person.setLastName("last");
+		person.setAddress(address);
+		return person;
+	}
+
+	/**
+	 * Creates people named person0, person1 and so on.
+	 * @param count the number of people
+	 * @return the people
+	 */
+	public static List<Person> createPeople(int count) {
+		List<Person> ret = new ArrayList<Person>();
+		for (int i=0; i<count; i++) {
+			ret.add(createPerson("person"+i));
+		}
+		return ret;
+	}
+
+	public static SuperDuper createSuperDuper() {
+		SuperDuper superDuper = new SuperDuper();
+		superDuper.setPersonList(new ArrayList<Person>());
+		superDuper.setPersonMap(new HashMap<String, Person>());
+		superDuper.setPersonSet(new HashSet<Person>());
+		superDuper.setPersonSortedSet(new TreeSet<Person>());
+		superDuper.setStringMap(new HashMap<String, String>());
+		for (int i=0; i<5; i++) {
+			Person person = createPerson("p"+i);
+			superDuper.getPersonList().add(person);
+			superDuper.getPersonMap().put("p"+i, person);
+			superDuper.getPersonSet().add(person);
+			superDuper.getPersonSortedSet().add(person);
+			superDuper.getStringMap().put("s"+i, "v"+i);
+		}
+		return superDuper;
+	}
+
+}
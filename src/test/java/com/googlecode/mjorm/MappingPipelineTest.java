@@ -0,0 +1,116 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+import static com.googlecode.mjorm.MappingFixtures.*;
+
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.DBObject;
+
+public class MappingPipelineTest {
+
+	private XmlDescriptorObjectMapper mapper;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		mapper = createMapper();
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown()
+		throws Exception {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Unmapped people, the source fails after the given
+	 * number of documents if it's not negative.
+	 */
+	private class PeopleSource
+		implements Iterator<DBObject> {
+		private final int count;
+		private final int failAt;
+		private volatile int read;
+		private PeopleSource(int count, int failAt) {
+			this.count = count;
+			this.failAt = failAt;
+		}
+		public boolean hasNext() {
+			if (read==failAt) {
+				throw new IllegalStateException("failed");
+			}
+			return read<count;
+		}
+		public DBObject next() {
+			return mapper.unmap(createPerson("person"+(read++)));
+		}
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	@Test
+	public void testOrder()
+		throws Exception {
+		MappingPipeline<Person> pipeline = new MappingPipeline<Person>(
+			new PeopleSource(1003, -1), mapper, Person.class, executor, 10, 4);
+		pipeline.start();
+		for (int i=0; i<1003; i++) {
+			assertTrue(pipeline.hasNext());
+			assertEquals("person"+i, pipeline.next().getFirstName());
+		}
+		assertFalse(pipeline.hasNext());
+		assertFalse(pipeline.hasNext());
+	}
+
+	@Test
+	public void testError()
+		throws Exception {
+		MappingPipeline<Person> pipeline = new MappingPipeline<Person>(
+			new PeopleSource(100, 25), mapper, Person.class, executor, 10, 4);
+		pipeline.start();
+		int read = 0;
+		try {
+			while (pipeline.hasNext()) {
+				pipeline.next();
+				read++;
+			}
+			fail("Expected MjormException");
+		} catch (MjormException e) {
+			assertEquals(IllegalStateException.class, e.getCause().getClass());
+		}
+		assertEquals(20, read);
+		assertTrue(pipeline.isClosed());
+		assertFalse(pipeline.hasNext());
+	}
+
+	@Test
+	public void testBackPressureAndClose()
+		throws Exception {
+		PeopleSource source = new PeopleSource(100000, -1);
+		MappingPipeline<Person> pipeline = new MappingPipeline<Person>(
+			source, mapper, Person.class, executor, 10, 2);
+		pipeline.start();
+		assertEquals("person0", pipeline.next().getFirstName());
+		Thread.sleep(200);
+
+		// two queued batches, the one taken and the one waiting to be queued
+		assertTrue(source.read<=40);
+
+		pipeline.close();
+		assertFalse(pipeline.hasNext());
+		int read = source.read;
+		Thread.sleep(100);
+		assertEquals(read, source.read);
+	}
+
+}
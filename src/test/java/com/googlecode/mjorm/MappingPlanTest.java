@@ -0,0 +1,178 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.converters.MongoToPojoTypeConverter;
+import com.googlecode.mjorm.convert.converters.NumberTypeConverter;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BasicDBObjectBuilder;
+import com.mongodb.DBObject;
+
+public class MappingPlanTest {
+
+	private ObjectDescriptorRegistry registry;
+	private ConversionContext context;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		registry = new ObjectDescriptorRegistry();
+		context = new ConversionContext();
+		context.registerTypeConverter(new NumberTypeConverter());
+		context.registerTypeConverter(new MongoToPojoTypeConverter(registry));
+		register("/com/googlecode/mjorm/City.mongo.xml");
+	}
+
+	private InputStream res(String path) {
+		return getClass().getResourceAsStream(path);
+	}
+
+	private void register(String path)
+		throws Exception {
+		for (ObjectDescriptor desc : new XmlObjectDescriptorParser().parseDocument(res(path))) {
+			registry.registerDescriptor(desc);
+		}
+	}
+
+	@Test
+	public void testGetMappingPlan()
+		throws Exception {
+		MappingPlan plan = registry.getMappingPlan(City.class);
+		assertNotNull(plan);
+		assertSame(plan, registry.getMappingPlan(City.class));
+		assertEquals(City.class, plan.getType());
+		assertEquals(4, plan.getProperties().length);
+		assertNull(registry.getMappingPlan(Person.class));
+
+		// registering invalidates
+		register("/com/googlecode/mjorm/DiscriminatorTestObject.mongo.xml");
+		assertNotSame(plan, registry.getMappingPlan(City.class));
+
+		plan = registry.getMappingPlan(City.class);
+		registry.clearPlans();
+		assertNotSame(plan, registry.getMappingPlan(City.class));
+	}
+
+	@Test
+	public void testMap()
+		throws Exception {
+		ObjectId id = new ObjectId();
+		BasicDBObject dbObject = (BasicDBObject)BasicDBObjectBuilder.start()
+			.add("_id", id.toString())
+			.add("name", "city name")
+			.add("lat", new Double(1.5d))
+			.add("lon", new Float(2.5f))
+			.get();
+
+		MappingPlan plan = registry.getMappingPlan(City.class);
+		for (int i=0; i<2; i++) {
+			City city = (City)plan.map(dbObject, context);
+			assertEquals(id.toString(), city.getId());
+			assertEquals("city name", city.getName());
+			assertEquals(new Float(1.5f), city.getLat());
+			assertEquals(new Float(2.5f), city.getLon());
+		}
+	}
+
+	@Test
+	public void testRegisterInstantiator()
+		throws Exception {
+		final List<City> created = new ArrayList<City>();
+		registry.registerInstantiator(City.class, new Instantiator<City>() {
+			public City instantiate(Object[] args) {
+				created.add(new City());
+				return created.get(created.size()-1);
+			}
+		});
+		DBObject dbObject = new BasicDBObject("name", "city name");
+		City city = (City)registry.getMappingPlan(City.class).map(dbObject, context);
+		assertEquals("city name", city.getName());
+		assertEquals(1, created.size());
+		assertSame(created.get(0), city);
+
+		// it's scoped to the registry
+		ObjectDescriptorRegistry other = new ObjectDescriptorRegistry();
+		for (ObjectDescriptor desc : new XmlObjectDescriptorParser().parseDocument(
+			res("/com/googlecode/mjorm/City.mongo.xml"))) {
+			other.registerDescriptor(desc);
+		}
+		other.getMappingPlan(City.class).map(dbObject, context);
+		assertEquals(1, created.size());
+
+		registry.removeInstantiator(City.class);
+		registry.getMappingPlan(City.class).map(dbObject, context);
+		assertEquals(1, created.size());
+	}
+
+	@Test
+	public void testMap_Discriminator()
+		throws Exception {
+		register("/com/googlecode/mjorm/DiscriminatorTestObject.mongo.xml");
+		BasicDBObject dbObject = (BasicDBObject)BasicDBObjectBuilder.start()
+			.add("_id", new ObjectId().toString())
+			.add("name", "2")
+			.add("disc", "subClassTwo")
+			.add("two", "it is two")
+			.get();
+
+		MappingPlan plan = registry.getMappingPlan(DiscriminatorTestObject.class);
+		assertEquals(TestObjectSubClassTwo.class, plan.planFor(dbObject).getType());
+
+		TestObjectSubClassTwo two = (TestObjectSubClassTwo)plan.map(dbObject, context);
+		assertEquals("2", two.getName());
+		assertEquals("it is two", two.getTwo());
+	}
+
+	@Test
+	public void testCreateProjection()
+		throws Exception {
+		register("/com/googlecode/mjorm/DiscriminatorTestObject.mongo.xml");
+		DBObject projection = registry.getMappingPlan(DiscriminatorTestObject.class).createProjection();
+		assertEquals(5, projection.keySet().size());
+		for (String field : new String[] { "_id", "name", "disc", "one", "two" }) {
+			assertEquals(1, projection.get(field));
+		}
+
+		projection = registry.getMappingPlan(TestObjectSubClassOne.class).createProjection();
+		assertTrue(projection.containsField("one"));
+		assertFalse(projection.containsField("two"));
+	}
+
+	@Test
+	public void testMap_NestedDiscriminator()
+		throws Exception {
+		register("/com/googlecode/mjorm/NestedDiscriminatorTestObject.mongo.xml");
+		BasicDBObject dbObject = (BasicDBObject)BasicDBObjectBuilder.start()
+			.add("_id", new ObjectId().toString())
+			.add("name", "3")
+			.add("disc", "subSubClass")
+			.add("one", "it is one")
+			.add("three", "it is three")
+			.get();
+
+		MappingPlan plan = registry.getMappingPlan(DiscriminatorTestObject.class);
+		assertEquals(TestObjectSubSubClass.class, plan.planFor(dbObject).getType());
+		assertTrue(plan.getProjectedFieldNames().contains("three"));
+
+		TestObjectSubSubClass three = (TestObjectSubSubClass)plan.map(dbObject, context);
+		assertEquals("3", three.getName());
+		assertEquals("it is one", three.getOne());
+		assertEquals("it is three", three.getThree());
+
+		// from the middle of the chain
+		plan = registry.getMappingPlan(TestObjectSubClassOne.class);
+		assertEquals(TestObjectSubSubClass.class, plan.planFor(dbObject).getType());
+		dbObject.put("disc", "subClassOne");
+		assertEquals(TestObjectSubClassOne.class, plan.planFor(dbObject).getType());
+	}
+
+}
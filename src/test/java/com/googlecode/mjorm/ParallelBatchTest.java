@@ -0,0 +1,63 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelBatchTest {
+
+	private ExecutorService executor;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		executor = Executors.newFixedThreadPool(3);
+	}
+
+	@After
+	public void tearDown()
+		throws Exception {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testRun()
+		throws Exception {
+		final AtomicIntegerArray counts = new AtomicIntegerArray(101);
+		ParallelBatch.run(executor, 10, counts.length(), new ParallelBatch.Task() {
+			public void run(int from, int to) {
+				assertTrue(to-from<=10);
+				for (int i=from; i<to; i++) {
+					counts.incrementAndGet(i);
+				}
+			}
+		});
+		for (int i=0; i<counts.length(); i++) {
+			assertEquals(1, counts.get(i));
+		}
+	}
+
+	@Test
+	public void testRun_Error()
+		throws Exception {
+		try {
+			ParallelBatch.run(executor, 10, 100, new ParallelBatch.Task() {
+				public void run(int from, int to) {
+					if (from==50) {
+						throw new IllegalStateException("failed");
+					}
+				}
+			});
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+}
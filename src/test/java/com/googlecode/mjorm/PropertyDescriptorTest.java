@@ -0,0 +1,52 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.googlecode.mjorm.convert.TypeConversionHints;
+
+public class PropertyDescriptorTest {
+
+	@Test
+	public void testGetTypeConversionHints()
+		throws Exception {
+		PropertyDescriptor prop = new PropertyDescriptor();
+		assertSame(TypeConversionHints.NO_HINTS, prop.getTypeConversionHints());
+
+		Map<String, Object> conversionHints = new HashMap<String, Object>();
+		conversionHints.put("key", "value");
+		prop.setConversionHints(conversionHints);
+		prop.setGenericParameterTypes(new Type[] { String.class });
+
+		TypeConversionHints hints = prop.getTypeConversionHints();
+		assertSame(hints, prop.getTypeConversionHints());
+		assertEquals("value", hints.get("key"));
+		assertEquals(String.class, hints.<Type[]>get(TypeConversionHints.HINT_GENERIC_TYPE_PARAMETERS)[0]);
+		try {
+			hints.set("key", "other");
+			fail("Expected UnsupportedOperationException");
+		} catch(UnsupportedOperationException e) {
+			// expected
+		}
+
+		// the hints are copied, changes are only seen when set again
+		conversionHints.put("key", "changed");
+		assertEquals("value", prop.getConversionHints().get("key"));
+		assertEquals("value", prop.getTypeConversionHints().get("key"));
+		try {
+			prop.getConversionHints().put("key", "other");
+			fail("Expected UnsupportedOperationException");
+		} catch(UnsupportedOperationException e) {
+			// expected
+		}
+		prop.setConversionHints(conversionHints);
+		assertEquals("changed", prop.getConversionHints().get("key"));
+		assertEquals("changed", prop.getTypeConversionHints().get("key"));
+	}
+
+}
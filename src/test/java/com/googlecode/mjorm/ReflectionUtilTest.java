@@ -0,0 +1,78 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ReflectionUtilTest {
+
+	@Test
+	public void testInstantiate()
+		throws Exception {
+		City city = ReflectionUtil.instantiate(City.class);
+		assertNotNull(city);
+		assertNotSame(city, ReflectionUtil.instantiate(City.class));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testInstantiate_Args()
+		throws Exception {
+		List<String> list = ReflectionUtil.instantiate(ArrayList.class, new Integer(10));
+		assertTrue(list.isEmpty());
+
+		Value value = ReflectionUtil.instantiate(Value.class, "name", new Integer(3));
+		assertEquals("name", value.name);
+		assertEquals(3, value.count);
+
+		value = ReflectionUtil.instantiate(Value.class, null, new Integer(4));
+		assertNull(value.name);
+		assertEquals(4, value.count);
+	}
+
+	@Test
+	public void testInstantiate_NonPublicConstructor()
+		throws Exception {
+		assertNotNull(ReflectionUtil.instantiate(Value.class));
+	}
+
+	@Test(expected=InstantiationException.class)
+	public void testInstantiate_Interface()
+		throws Exception {
+		ReflectionUtil.instantiate(List.class);
+	}
+
+	@Test
+	public void testInstantiate_OtherClassLoader()
+		throws Exception {
+		ClassLoader loader = new URLClassLoader(
+			new URL[] { Value.class.getProtectionDomain().getCodeSource().getLocation() }, null);
+		Class<?> clazz = loader.loadClass(Value.class.getName());
+		assertNotSame(Value.class, clazz);
+
+		// classes of other class loaders aren't cached
+		ReflectionUtil.clearInstantiatorCache();
+		assertEquals(clazz, ReflectionUtil.instantiate(clazz).getClass());
+		assertEquals(clazz, ReflectionUtil.instantiate(clazz, "name", new Integer(1)).getClass());
+		assertEquals(0, ReflectionUtil.getInstantiatorCacheSize());
+
+		ReflectionUtil.instantiate(Value.class);
+		assertEquals(1, ReflectionUtil.getInstantiatorCacheSize());
+	}
+
+	public static class Value {
+		private String name;
+		private int count;
+		private Value() { }
+		public Value(String name, int count) {
+			this.name = name;
+			this.count = count;
+		}
+	}
+
+}
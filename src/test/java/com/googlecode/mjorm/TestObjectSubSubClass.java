@@ -0,0 +1,22 @@
+package com.googlecode.mjorm;
+
+public class TestObjectSubSubClass
+	extends TestObjectSubClassOne {
+
+	private String three;
+
+	/**
+	 * @return the three
+	 */
+	public String getThree() {
+		return three;
+	}
+
+	/**
+	 * @param three the three to set
+	 */
+	public void setThree(String three) {
+		this.three = three;
+	}
+
+}
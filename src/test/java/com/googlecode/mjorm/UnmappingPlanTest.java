@@ -0,0 +1,156 @@
+package com.googlecode.mjorm;
+
+import static org.junit.Assert.*;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.JavaType;
+import com.googlecode.mjorm.convert.converters.NumberTypeConverter;
+import com.googlecode.mjorm.convert.converters.ObjectIdToStringTypeConverter;
+import com.googlecode.mjorm.convert.converters.PojoToMongoTypeConverter;
+import com.googlecode.mjorm.convert.converters.StringTypeConverter;
+import com.mongodb.BasicDBObject;
+
+public class UnmappingPlanTest {
+
+	private ObjectDescriptorRegistry registry;
+	private ConversionContext context;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		registry = new ObjectDescriptorRegistry();
+		context = new ConversionContext();
+		context.registerTypeConverter(new StringTypeConverter());
+		context.registerTypeConverter(new NumberTypeConverter());
+		context.registerTypeConverter(new ObjectIdToStringTypeConverter());
+		context.registerTypeConverter(new PojoToMongoTypeConverter(registry));
+		for (ObjectDescriptor desc : new XmlObjectDescriptorParser().parseDocument(
+			getClass().getResourceAsStream("/com/googlecode/mjorm/City.mongo.xml"))) {
+			registry.registerDescriptor(desc);
+		}
+
+		ObjectDescriptor desc = new ObjectDescriptor();
+		desc.setType(Bean.class);
+		desc.addPropertyDescriptor(prop(Bean.class, "count", int.class));
+		desc.addPropertyDescriptor(prop(Bean.class, "date", Date.class));
+		desc.addPropertyDescriptor(prop(Bean.class, "value", Object.class));
+		desc.addPropertyDescriptor(prop(Bean.class, "list", List.class));
+		registry.registerDescriptor(desc);
+	}
+
+	private PropertyDescriptor prop(Class<?> clazz, String name, Class<?> type) {
+		PropertyDescriptor ret = new PropertyDescriptor();
+		ret.setName(name);
+		ret.setFieldName(name);
+		ret.setType(JavaType.fromType(type));
+		ret.setGetter(ReflectionUtil.findGetter(clazz, name));
+		ret.setSetter(ReflectionUtil.findSetter(clazz, name));
+		return ret;
+	}
+
+	private UnmappingPlan.PropertyUnmapping find(UnmappingPlan plan, String name) {
+		for (UnmappingPlan.PropertyUnmapping prop : plan.getProperties()) {
+			if (prop.getProperty().getName().equals(name)) {
+				return prop;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testGetUnmappingPlan()
+		throws Exception {
+		UnmappingPlan plan = registry.getUnmappingPlan(Bean.class);
+		assertSame(plan, registry.getUnmappingPlan(Bean.class));
+		assertEquals(4, plan.getProperties().length);
+		assertTrue(find(plan, "count").isStaticStorageType());
+		assertFalse(find(plan, "date").isStaticStorageType());
+		assertFalse(find(plan, "value").isStaticStorageType());
+		assertFalse(find(plan, "list").isStaticStorageType());
+		assertNull(registry.getUnmappingPlan(Person.class));
+
+		registry.clearPlans();
+		assertNotSame(plan, registry.getUnmappingPlan(Bean.class));
+	}
+
+	@Test
+	public void testUnmap()
+		throws Exception {
+		City city = new City();
+		city.setName("city name");
+		city.setLat(new Float(1.5f));
+
+		BasicDBObject dbObject = registry.getUnmappingPlan(City.class).unmap(city, context);
+		assertEquals("city name", dbObject.get("name"));
+		assertEquals(new Float(1.5f), dbObject.get("lat"));
+		assertTrue(dbObject.containsField("lon"));
+		assertNull(dbObject.get("lon"));
+
+		// auto generated id
+		assertNotNull(city.getId());
+		assertTrue(ObjectId.isValid(city.getId()));
+		assertEquals(new ObjectId(city.getId()), dbObject.get("_id"));
+	}
+
+	@Test
+	public void testUnmap_Polymorphic()
+		throws Exception {
+		UnmappingPlan plan = registry.getUnmappingPlan(Bean.class);
+		Bean bean = new Bean();
+		bean.setCount(3);
+		bean.setDate(new Timestamp(1000L));
+		bean.setValue("string");
+
+		BasicDBObject dbObject = plan.unmap(bean, context);
+		assertEquals(Integer.valueOf(3), dbObject.get("count"));
+		assertEquals(new Timestamp(1000L), dbObject.get("date"));
+		assertEquals("string", dbObject.get("value"));
+
+		bean.setValue(new Long(12L));
+		bean.setDate(new Date(2000L));
+		dbObject = plan.unmap(bean, context);
+		assertEquals(new Date(2000L), dbObject.get("date"));
+		assertEquals(new Long(12L), dbObject.get("value"));
+	}
+
+	@Test
+	public void testUnmap_StorageClassOfValue()
+		throws Exception {
+		UnmappingPlan plan = registry.getUnmappingPlan(Bean.class);
+		Bean bean = new Bean();
+		bean.setList(new LinkedList<String>(Arrays.asList("a", "b")));
+
+		// the storage class registered for the value's
+		// class applies, rather than that of List
+		context.registerStorageClass(LinkedList.class, String.class);
+		assertEquals("[a, b]", plan.unmap(bean, context).get("list"));
+		assertEquals(String.class,
+			find(plan, "list").getStorageType(bean.getList(), context).asClass());
+	}
+
+	public static class Bean {
+		private int count;
+		private Date date;
+		private Object value;
+		private List<String> list;
+		public int getCount() { return count; }
+		public void setCount(int count) { this.count = count; }
+		public Date getDate() { return date; }
+		public void setDate(Date date) { this.date = date; }
+		public Object getValue() { return value; }
+		public void setValue(Object value) { this.value = value; }
+		public List<String> getList() { return list; }
+		public void setList(List<String> list) { this.list = list; }
+	}
+
+}
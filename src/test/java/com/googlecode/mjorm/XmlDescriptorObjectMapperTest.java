@@ -339,6 +339,45 @@ public class XmlDescriptorObjectMapperTest {
 		assertArrayEquals(state.getCitiesArray(), transformedState.getCitiesArray());
 		
 	}
-		
+
+	@Test
+	public void testSetIdentifier()
+		throws Exception {
+		addMapping("/com/googlecode/mjorm/City.mongo.xml");
+		addMapping("/com/googlecode/mjorm/Person.mongo.xml");
+		addMapping("/com/googlecode/mjorm/Address.mongo.xml");
+
+		ObjectId id = new ObjectId();
+		City city = new City();
+		assertNull(mapper.getIdentifier(city));
+		assertTrue(mapper.setIdentifier(city, id));
+		assertEquals(id.toString(), city.getId());
+		assertEquals(id, mapper.getIdentifier(city));
+
+		// set ids are kept
+		assertFalse(mapper.setIdentifier(city, new ObjectId()));
+		assertEquals(id.toString(), city.getId());
+
+		// no identifier property
+		assertFalse(mapper.setIdentifier(new Person(), id));
+		assertNull(mapper.getIdentifier(new Person()));
+		assertFalse(mapper.setIdentifier(new City(), null));
+	}
+
+	@Test
+	public void testMapBeforeRegistering()
+		throws Exception {
+		DBObject dbObject = new BasicDBObject("name", "city name");
+		try {
+			mapper.map(dbObject, City.class);
+			fail("Expected MjormException");
+		} catch (MjormException e) {
+			// expected, it isn't mapped yet
+		}
+
+		addMapping("/com/googlecode/mjorm/City.mongo.xml");
+		assertEquals("city name", mapper.map(dbObject, City.class).getName());
+		assertEquals("city name", mapper.unmap(mapper.map(dbObject, City.class)).get("name"));
+	}
 
 }
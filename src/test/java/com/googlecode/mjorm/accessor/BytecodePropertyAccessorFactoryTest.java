@@ -0,0 +1,150 @@
+package com.googlecode.mjorm.accessor;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.mjorm.PropertyDescriptor;
+import com.googlecode.mjorm.ReflectionUtil;
+
+public class BytecodePropertyAccessorFactoryTest {
+
+	private BytecodePropertyAccessorFactory factory;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		factory = new BytecodePropertyAccessorFactory();
+	}
+
+	private PropertyDescriptor[] props(Class<?> clazz, String... names) {
+		PropertyDescriptor[] ret = new PropertyDescriptor[names.length];
+		for (int i=0; i<names.length; i++) {
+			ret[i] = new PropertyDescriptor();
+			ret[i].setName(names[i]);
+			ret[i].setGetter(ReflectionUtil.findGetter(clazz, names[i]));
+			ret[i].setSetter(ReflectionUtil.findSetter(clazz, names[i]));
+		}
+		return ret;
+	}
+
+	@Test
+	public void testCreateAccessors()
+		throws Exception {
+		PropertyAccessor[] accessors = factory.createAccessors(Bean.class,
+			props(Bean.class, "name", "count", "total", "ratio", "flag", "letter", "values", "readOnly"));
+		for (PropertyAccessor accessor : accessors) {
+			assertFalse(accessor instanceof ReflectionPropertyAccessor);
+		}
+
+		Bean bean = new Bean();
+		accessors[0].set(bean, "the name");
+		accessors[1].set(bean, 12);
+		accessors[2].set(bean, 1234567890123L);
+		accessors[3].set(bean, 0.5d);
+		accessors[4].set(bean, Boolean.TRUE);
+		accessors[5].set(bean, 'x');
+		accessors[6].set(bean, new String[] {"a", "b"});
+
+		assertEquals("the name", bean.getName());
+		assertEquals(12, bean.getCount());
+		assertEquals(1234567890123L, bean.getTotal());
+		assertEquals(0.5d, bean.getRatio(), 0.0d);
+		assertTrue(bean.isFlag());
+		assertEquals('x', bean.getLetter());
+		assertArrayEquals(new String[] {"a", "b"}, bean.getValues());
+
+		assertEquals("the name", accessors[0].get(bean));
+		assertEquals(Integer.valueOf(12), accessors[1].get(bean));
+		assertEquals(Long.valueOf(1234567890123L), accessors[2].get(bean));
+		assertEquals(Double.valueOf(0.5d), accessors[3].get(bean));
+		assertEquals(Boolean.TRUE, accessors[4].get(bean));
+		assertEquals(Character.valueOf('x'), accessors[5].get(bean));
+		assertEquals("read only", accessors[7].get(bean));
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testCreateAccessors_NoSetter()
+		throws Exception {
+		PropertyAccessor[] accessors = factory.createAccessors(Bean.class,
+			props(Bean.class, "readOnly"));
+		accessors[0].set(new Bean(), "value");
+	}
+
+	@Test
+	public void testCreateAccessors_NonPublicClass()
+		throws Exception {
+		PropertyAccessor[] accessors = factory.createAccessors(HiddenBean.class,
+			props(HiddenBean.class, "name"));
+		assertTrue(accessors[0] instanceof ReflectionPropertyAccessor);
+
+		HiddenBean bean = new HiddenBean();
+		accessors[0].set(bean, "hidden");
+		assertEquals("hidden", accessors[0].get(bean));
+	}
+
+	@Test
+	public void testCreateAccessors_Fields()
+		throws Exception {
+		PropertyDescriptor[] props = new PropertyDescriptor[3];
+		for (int i=0; i<props.length; i++) {
+			props[i] = new PropertyDescriptor();
+		}
+		props[0].setField(FieldBean.class.getField("name"));
+		props[1].setField(FieldBean.class.getField("count"));
+		props[2].setField(FieldBean.class.getDeclaredField("hidden"));
+		PropertyAccessor[] accessors = factory.createAccessors(FieldBean.class, props);
+		assertFalse(accessors[0] instanceof FieldPropertyAccessor);
+		assertFalse(accessors[1] instanceof FieldPropertyAccessor);
+		assertTrue(accessors[2] instanceof FieldPropertyAccessor);
+
+		FieldBean bean = new FieldBean();
+		accessors[0].set(bean, "the name");
+		accessors[1].set(bean, 12L);
+		accessors[2].set(bean, "hidden");
+		assertEquals("the name", bean.name);
+		assertEquals(12L, bean.count);
+		assertEquals("the name", accessors[0].get(bean));
+		assertEquals(Long.valueOf(12L), accessors[1].get(bean));
+		assertEquals("hidden", accessors[2].get(bean));
+	}
+
+	public static class FieldBean {
+		public String name;
+		public long count;
+		private String hidden;
+	}
+
+	public static class Bean {
+		private String name;
+		private int count;
+		private long total;
+		private double ratio;
+		private boolean flag;
+		private char letter;
+		private String[] values;
+		public String getName() { return name; }
+		public void setName(String name) { this.name = name; }
+		public int getCount() { return count; }
+		public void setCount(int count) { this.count = count; }
+		public long getTotal() { return total; }
+		public void setTotal(long total) { this.total = total; }
+		public double getRatio() { return ratio; }
+		public void setRatio(double ratio) { this.ratio = ratio; }
+		public boolean isFlag() { return flag; }
+		public void setFlag(boolean flag) { this.flag = flag; }
+		public char getLetter() { return letter; }
+		public void setLetter(char letter) { this.letter = letter; }
+		public String[] getValues() { return values; }
+		public void setValues(String[] values) { this.values = values; }
+		public String getReadOnly() { return "read only"; }
+	}
+
+	static class HiddenBean {
+		private String name;
+		public String getName() { return name; }
+		public void setName(String name) { this.name = name; }
+	}
+
+}
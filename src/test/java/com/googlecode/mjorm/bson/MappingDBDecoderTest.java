@@ -0,0 +1,105 @@
+package com.googlecode.mjorm.bson;
+
+import static org.junit.Assert.*;
+import static com.googlecode.mjorm.MappingFixtures.*;
+
+import org.bson.BSON;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.mjorm.City;
+import com.googlecode.mjorm.DiscriminatorTestObject;
+import com.googlecode.mjorm.Person;
+import com.googlecode.mjorm.SuperDuper;
+import com.googlecode.mjorm.TestObjectSubClassTwo;
+import com.googlecode.mjorm.XmlDescriptorObjectMapper;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BasicDBObjectBuilder;
+import com.mongodb.DBCollection;
+import com.mongodb.DBDecoder;
+import com.mongodb.DBObject;
+
+public class MappingDBDecoderTest {
+
+	private XmlDescriptorObjectMapper mapper;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		mapper = createMapper();
+		addMapping(mapper, "/com/googlecode/mjorm/DiscriminatorTestObject.mongo.xml");
+	}
+
+	private DBObject decode(DBObject dbObject, Class<?> clazz) {
+		DBDecoder decoder = mapper.createDecoderFactory(clazz).create();
+		return decoder.decode(BSON.encode(dbObject), (DBCollection)null);
+	}
+
+	@Test
+	public void testDecode()
+		throws Exception {
+		Person person = createPerson("first");
+		DBObject dbObject = mapper.unmap(person);
+		dbObject.put("notMapped", "value");
+
+		DBObject decoded = decode(dbObject, Person.class);
+		assertTrue(decoded instanceof MappedDBObject);
+		assertEquals("value", decoded.get("notMapped"));
+		assertFalse(decoded.containsField("firstName"));
+
+		Person ret = mapper.map(decoded, Person.class);
+		assertSame(((MappedDBObject)decoded).getObject(), ret);
+		assertEquals("first", ret.getFirstName());
+		assertEquals("last", ret.getLastName());
+		assertEquals("street name", ret.getAddress().getStreetName());
+		assertEquals(Long.valueOf(2435L), ret.getAddress().getStreetNumber());
+		assertEquals("city name", ret.getAddress().getCity().getName());
+
+		dbObject.removeField("notMapped");
+		assertEquals(dbObject, mapper.unmap(ret));
+	}
+
+	@Test
+	public void testDecode_Collections()
+		throws Exception {
+		SuperDuper superDuper = createSuperDuper();
+		DBObject dbObject = mapper.unmap(superDuper);
+
+		SuperDuper ret = mapper.map(decode(dbObject, SuperDuper.class), SuperDuper.class);
+		assertEquals(5, ret.getPersonList().size());
+		assertEquals(5, ret.getPersonMap().size());
+		assertEquals(5, ret.getStringMap().size());
+		assertEquals(dbObject, mapper.unmap(ret));
+	}
+
+	@Test
+	public void testDecode_MissingFields()
+		throws Exception {
+		DBObject dbObject = new BasicDBObject("name", "city name");
+
+		City ret = mapper.map(decode(dbObject, City.class), City.class);
+		assertEquals("city name", ret.getName());
+		assertNull(ret.getId());
+		assertNull(ret.getLat());
+	}
+
+	@Test
+	public void testDecode_Discriminator()
+		throws Exception {
+		DBObject dbObject = BasicDBObjectBuilder.start()
+			.add("_id", new ObjectId())
+			.add("name", "2")
+			.add("disc", "subClassTwo")
+			.add("two", "it is two")
+			.get();
+
+		DBObject decoded = decode(dbObject, DiscriminatorTestObject.class);
+		assertFalse(decoded instanceof MappedDBObject);
+
+		DiscriminatorTestObject ret = mapper.map(decoded, DiscriminatorTestObject.class);
+		assertTrue(ret instanceof TestObjectSubClassTwo);
+		assertEquals("it is two", ((TestObjectSubClassTwo)ret).getTwo());
+	}
+
+}
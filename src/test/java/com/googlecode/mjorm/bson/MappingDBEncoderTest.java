@@ -0,0 +1,107 @@
+package com.googlecode.mjorm.bson;
+
+import static org.junit.Assert.*;
+import static com.googlecode.mjorm.MappingFixtures.*;
+
+import java.util.ArrayList;
+
+import org.bson.BSON;
+import org.bson.BSONObject;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.mjorm.City;
+import com.googlecode.mjorm.Person;
+import com.googlecode.mjorm.SuperDuper;
+import com.googlecode.mjorm.XmlDescriptorObjectMapper;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+public class MappingDBEncoderTest {
+
+	private XmlDescriptorObjectMapper mapper;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		mapper = createMapper();
+	}
+
+	private BSONObject encode(DBObject dbObject) {
+		BasicOutputBuffer buf = new BasicOutputBuffer();
+		new MappingDBEncoder().writeObject(buf, dbObject);
+		return BSON.decode(buf.toByteArray());
+	}
+
+	@Test
+	public void testEncode()
+		throws Exception {
+		Person person = createPerson("first");
+		UnmappedDBObject dbObject = mapper.createUnmappedDBObject(person);
+		assertTrue(dbObject.get("address") instanceof UnmappedDBObject);
+
+		BSONObject encoded = encode(dbObject);
+		assertEquals(mapper.unmap(person), new BasicDBObject(encoded.toMap()));
+		assertEquals("first", encoded.get("firstName"));
+		assertEquals("street name", ((BSONObject)encoded.get("address")).get("streetName"));
+	}
+
+	@Test
+	public void testEncode_Collections()
+		throws Exception {
+		SuperDuper superDuper = createSuperDuper();
+		BSONObject encoded = encode(mapper.createUnmappedDBObject(superDuper));
+		assertEquals(mapper.unmap(superDuper), new BasicDBObject(encoded.toMap()));
+		assertEquals(5, ((java.util.List<?>)encoded.get("personList")).size());
+	}
+
+	@Test
+	public void testEncode_GeneratedId()
+		throws Exception {
+		City city = createCity();
+		UnmappedDBObject dbObject = mapper.createUnmappedDBObject(city);
+		assertNull(city.getId());
+
+		// the id is generated when the fields are read, as
+		// the driver does before inserting
+		Object id = dbObject.get("_id");
+		assertTrue(id instanceof ObjectId);
+		assertEquals(id.toString(), city.getId());
+
+		dbObject.put("extra", new ArrayList<String>());
+		BSONObject encoded = encode(dbObject);
+		assertEquals("_id", encoded.keySet().iterator().next());
+		assertEquals(id, encoded.get("_id"));
+		assertEquals("city name", encoded.get("name"));
+		assertTrue(encoded.containsField("extra"));
+	}
+
+	@Test
+	public void testEncode_AssignedId()
+		throws Exception {
+		XmlDescriptorObjectMapper altMapper = new XmlDescriptorObjectMapper();
+		addMapping(altMapper, "/com/googlecode/mjorm/City_alt_columns.mongo.xml");
+		City city = new City();
+		city.setName("city name");
+		UnmappedDBObject dbObject = altMapper.createUnmappedDBObject(city);
+		assertNull(dbObject.get("_id"));
+
+		// the driver puts the id it generates, which is set back
+		// on the object after inserting
+		ObjectId id = new ObjectId();
+		dbObject.put("_id", id);
+		assertEquals(id, dbObject.get("_id"));
+		assertTrue(altMapper.setIdentifier(city, dbObject.get("_id")));
+		assertEquals(id.toString(), city.getId());
+	}
+
+	@Test
+	public void testEncode_OtherObjects()
+		throws Exception {
+		DBObject dbObject = new BasicDBObject("a", "b");
+		assertEquals(dbObject, new BasicDBObject(encode(dbObject).toMap()));
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.googlecode.mjorm.convert;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.googlecode.mjorm.convert.converters.BooleanTypeConverter;
+import com.googlecode.mjorm.convert.converters.NumberTypeConverter;
+import com.googlecode.mjorm.convert.converters.StringTypeConverter;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+
+public class ConversionContextTest {
+
+	@Test
+	public void testGetConverter()
+		throws Exception {
+		ConversionContext context = new ConversionContext();
+		NumberTypeConverter numbers = new NumberTypeConverter();
+		context.registerTypeConverter(numbers);
+
+		assertSame(numbers, context.getConverter(Integer.class, Long.class));
+		assertSame(numbers, context.getConverter(Integer.class, Long.class));
+		assertNull(context.getConverter(Integer.class, String.class));
+		assertNull(context.getConverter(Integer.class, String.class));
+	}
+
+	@Test
+	public void testRegisterTypeConverter_ClearsCache()
+		throws Exception {
+		ConversionContext context = new ConversionContext();
+		context.registerTypeConverter(new BooleanTypeConverter());
+		assertNull(context.getConverter(Integer.class, String.class));
+
+		StringTypeConverter strings = new StringTypeConverter();
+		context.registerTypeConverter(strings);
+		assertSame(strings, context.getConverter(Integer.class, String.class));
+	}
+
+	@Test
+	public void testClearConverterCache()
+		throws Exception {
+		final boolean[] convertible = { false };
+		ConversionContext context = new ConversionContext();
+		StringTypeConverter strings = new StringTypeConverter() {
+			@Override
+			public boolean canConvert(Class<?> sourceClass, Class<?> targetClass) {
+				return convertible[0];
+			}
+		};
+		context.registerTypeConverter(strings);
+		assertNull(context.getConverter(Integer.class, String.class));
+
+		convertible[0] = true;
+		assertNull(context.getConverter(Integer.class, String.class));
+		context.clearConverterCache();
+		assertSame(strings, context.getConverter(Integer.class, String.class));
+	}
+
+	@Test
+	public void testGetStorageType()
+		throws Exception {
+		ConversionContext context = new ConversionContext();
+		JavaType type = context.getStorageType(Integer.class);
+		assertEquals(Integer.class, type.asClass());
+		assertSame(type, context.getStorageType(Integer.class));
+		assertEquals(String.class, context.getStorageType(UUID.class).asClass());
+		assertEquals(BasicDBList.class, context.getStorageType(ArrayList.class).asClass());
+		assertEquals(BasicDBObject.class, context.getStorageType(Object.class).asClass());
+	}
+
+	@Test
+	public void testRegisterStorageClass()
+		throws Exception {
+		ConversionContext context = new ConversionContext();
+		assertEquals(String.class, context.getStorageType(UUID.class).asClass());
+		context.registerStorageClass(UUID.class, UUID.class);
+		assertEquals(UUID.class, context.getStorageType(UUID.class).asClass());
+	}
+
+}
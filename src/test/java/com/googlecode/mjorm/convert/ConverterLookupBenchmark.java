@@ -0,0 +1,90 @@
+package com.googlecode.mjorm.convert;
+
+import java.util.concurrent.CountDownLatch;
+
+import com.googlecode.mjorm.City;
+import com.googlecode.mjorm.ObjectDescriptorRegistry;
+import com.googlecode.mjorm.convert.converters.ArrayToMongoTypeConverter;
+import com.googlecode.mjorm.convert.converters.BooleanTypeConverter;
+import com.googlecode.mjorm.convert.converters.MongoToArrayTypeConverter;
+import com.googlecode.mjorm.convert.converters.MongoToPojoTypeConverter;
+import com.googlecode.mjorm.convert.converters.NumberTypeConverter;
+import com.googlecode.mjorm.convert.converters.PojoToMongoTypeConverter;
+import com.googlecode.mjorm.convert.converters.StringTypeConverter;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+
+/**
+ * A simple (non JUnit) benchmark of {@link ConversionContext#getConverter(Class, Class)}
+ * with several threads looking up converters at the same time.  Run
+ * it's main method with the test classpath.
+ */
+public class ConverterLookupBenchmark {
+
+	private static final int ITERATIONS = 2000000;
+
+	private static final Class<?>[][] PAIRS = {
+		{ Integer.class, Long.class },
+		{ String.class, Integer.class },
+		{ City.class, BasicDBObject.class },
+		{ BasicDBObject.class, City.class },
+		{ BasicDBList.class, String[].class },
+		{ Integer.class, City.class }, // no converter
+	};
+
+	public static void main(String[] args)
+		throws Exception {
+		ObjectDescriptorRegistry registry = new ObjectDescriptorRegistry();
+		ConversionContext context = new ConversionContext();
+		context.registerTypeConverter(new BooleanTypeConverter());
+		context.registerTypeConverter(new StringTypeConverter());
+		context.registerTypeConverter(new NumberTypeConverter());
+		context.registerTypeConverter(new ArrayToMongoTypeConverter());
+		context.registerTypeConverter(new MongoToArrayTypeConverter());
+		context.registerTypeConverter(new PojoToMongoTypeConverter(registry));
+		context.registerTypeConverter(new MongoToPojoTypeConverter(registry));
+		int cpus = Runtime.getRuntime().availableProcessors();
+		for (int run=0; run<2; run++) {
+			benchmark(context, 1);
+			benchmark(context, cpus);
+			benchmark(context, cpus*2);
+		}
+	}
+
+	/**
+	 * Looks up converters from the given number of threads
+	 * and prints the throughput.
+	 * @param context the {@link ConversionContext}
+	 * @param threads the number of threads
+	 * @throws Exception on error
+	 */
+	private static void benchmark(final ConversionContext context, int threads)
+		throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int t=0; t<threads; t++) {
+			new Thread(new Runnable() {
+				public void run() {
+					try {
+						start.await();
+						for (int i=0; i<ITERATIONS; i++) {
+							Class<?>[] pair = PAIRS[i % PAIRS.length];
+							context.getConverter(pair[0], pair[1]);
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						done.countDown();
+					}
+				}
+			}).start();
+		}
+		long startNanos = System.nanoTime();
+		start.countDown();
+		done.await();
+		long nanos = System.nanoTime()-startNanos;
+		System.out.println(String.format("threads: %3d   lookups: %10d ops/s",
+			threads, (ITERATIONS*(long)threads*1000000000L)/nanos));
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.googlecode.mjorm.convert;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class JavaTypeTest {
+
+	public List<String> stringList;
+
+	@After
+	public void tearDown() {
+		JavaType.configureCache(JavaTypeCache.DEFAULT_MAXIMUM_SIZE, false);
+	}
+
+	@Test
+	public void testFromType()
+		throws Exception {
+		JavaType.clearCache();
+		JavaType type = JavaType.fromType(String.class);
+		assertSame(type, JavaType.fromType(String.class));
+		assertEquals(1, JavaType.getCacheMisses());
+		assertEquals(1, JavaType.getCacheHits());
+		assertEquals(1, JavaType.getCacheSize());
+
+		JavaType list = JavaType.fromType(getClass().getField("stringList").getGenericType());
+		assertEquals(List.class, list.asClass());
+		assertEquals(String.class, list.getTypeParameter(0));
+		assertSame(list, JavaType.fromType(getClass().getField("stringList").getGenericType()));
+	}
+
+	@Test
+	public void testFromType_Bounded()
+		throws Exception {
+		JavaType.configureCache(2, false);
+		JavaType.fromType(String.class);
+		JavaType.fromType(Integer.class);
+		JavaType.fromType(Long.class);
+		assertTrue(JavaType.getCacheSize()<=2);
+		assertEquals(3, JavaType.getCacheMisses());
+	}
+
+	@Test
+	public void testFromType_WeakKeys()
+		throws Exception {
+		JavaType.configureCache(16, true);
+		JavaType type = JavaType.fromType(String.class);
+		assertSame(type, JavaType.fromType(String.class));
+		assertEquals(1, JavaType.getCacheHits());
+		assertEquals(1, JavaType.getCacheSize());
+	}
+
+	@Test
+	public void testFromType_WeakKeysBounded()
+		throws Exception {
+		JavaType.configureCache(2, true);
+		Class<?>[] types = { String.class, Integer.class, Long.class, Double.class, Short.class };
+		for (Class<?> type : types) {
+			assertEquals(type, JavaType.fromType(type).asClass());
+		}
+		assertTrue(JavaType.getCacheSize()<=2);
+	}
+
+}
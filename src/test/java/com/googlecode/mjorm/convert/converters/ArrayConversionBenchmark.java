@@ -0,0 +1,111 @@
+package com.googlecode.mjorm.convert.converters;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.googlecode.mjorm.MappingBenchmark;
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.JavaType;
+import com.googlecode.mjorm.convert.TypeConversionHints;
+import com.mongodb.BasicDBList;
+
+/**
+ * A simple (non JUnit) benchmark of converting 10k element arrays
+ * and lists to and from {@link BasicDBList}s.  Run it's main
+ * method with the test classpath.
+ */
+public class ArrayConversionBenchmark {
+
+	private static final int SIZE = 10000;
+	private static final int WARMUP_ITERATIONS = 2000;
+	private static final int ITERATIONS = 5000;
+
+	public static void main(String[] args)
+		throws Exception {
+		ConversionContext context = new ConversionContext();
+		context.registerTypeConverter(new NumberTypeConverter());
+		context.registerTypeConverter(new PrimitiveArrayToMongoTypeConverter());
+		context.registerTypeConverter(new ArrayToMongoTypeConverter());
+		context.registerTypeConverter(new CollectionToMongoTypeConverter());
+		context.registerTypeConverter(new MongoToPrimitiveArrayTypeConverter());
+		context.registerTypeConverter(new MongoToArrayTypeConverter());
+		context.registerTypeConverter(new MongoToCollectionTypeConverter());
+
+		int[] ints = new int[SIZE];
+		long[] longs = new long[SIZE];
+		double[] doubles = new double[SIZE];
+		Integer[] boxed = new Integer[SIZE];
+		List<Integer> list = new ArrayList<Integer>(SIZE);
+		for (int i=0; i<SIZE; i++) {
+			ints[i] = i;
+			longs[i] = i*1000L;
+			doubles[i] = i/3d;
+			boxed[i] = Integer.valueOf(i);
+			list.add(Integer.valueOf(i));
+		}
+
+		for (int run=0; run<2; run++) {
+			benchmark("int[]", context, ints, JavaType.fromType(int[].class));
+			benchmark("long[]", context, longs, JavaType.fromType(long[].class));
+			benchmark("double[]", context, doubles, JavaType.fromType(double[].class));
+			benchmark("Integer[]", context, boxed, JavaType.fromType(Integer[].class));
+			benchmark("List<Integer>", context, list, JavaType.fromType(List.class), Integer.class);
+		}
+	}
+
+	private static void benchmark(String name, ConversionContext context, Object value, JavaType type)
+		throws Exception {
+		benchmark(name, context, value, type, null);
+	}
+
+	/**
+	 * Converts the value to a {@link BasicDBList} and back
+	 * repeatedly and prints the throughput.
+	 * @param name the name of the run
+	 * @param context the {@link ConversionContext}
+	 * @param value the array or list
+	 * @param type the type to convert back to
+	 * @param parameterType the element type of a list, or null
+	 * @throws Exception on error
+	 */
+	private static void benchmark(
+		String name, ConversionContext context, Object value, JavaType type, Class<?> parameterType)
+		throws Exception {
+		TypeConversionHints hints = parameterType!=null
+			? new TypeConversionHints()
+			: TypeConversionHints.NO_HINTS;
+		if (parameterType!=null) {
+			hints.set(TypeConversionHints.HINT_GENERIC_TYPE_PARAMETERS,
+				new Type[] { parameterType });
+		}
+		JavaType listType = JavaType.fromType(BasicDBList.class);
+		BasicDBList dbList = context.convert(value, listType);
+		for (int i=0; i<WARMUP_ITERATIONS; i++) {
+			context.convert(context.convert(value, listType), type, hints);
+		}
+
+		long startBytes = MappingBenchmark.allocatedBytes();
+		long start = System.nanoTime();
+		for (int i=0; i<ITERATIONS; i++) {
+			context.convert(value, listType);
+		}
+		long unmapNanos = System.nanoTime()-start;
+		long unmapBytes = MappingBenchmark.allocatedBytes()-startBytes;
+
+		startBytes = MappingBenchmark.allocatedBytes();
+		start = System.nanoTime();
+		for (int i=0; i<ITERATIONS; i++) {
+			context.convert(dbList, type, hints);
+		}
+		long mapNanos = System.nanoTime()-start;
+		long mapBytes = MappingBenchmark.allocatedBytes()-startBytes;
+
+		System.out.println(String.format(
+			"%-14s unmap: %8d ops/s %10d B/op   map: %8d ops/s %10d B/op",
+			name,
+			(ITERATIONS*1000000000L)/unmapNanos, unmapBytes/ITERATIONS,
+			(ITERATIONS*1000000000L)/mapNanos, mapBytes/ITERATIONS));
+	}
+
+}
@@ -2,28 +2,93 @@ package com.googlecode.mjorm.convert.converters;
 
 import static org.junit.Assert.*;
 
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.JavaType;
+import com.googlecode.mjorm.convert.TypeConversionHints;
+import com.mongodb.BasicDBList;
+
 public class MongoToCollectionTypeConverterTest {
 
+	private MongoToCollectionTypeConverter conv;
+	private ConversionContext context;
+	private BasicDBList source;
+
 	@Before
 	public void setUp() throws Exception {
+		conv = new MongoToCollectionTypeConverter();
+		context = new ConversionContext();
+		context.registerTypeConverter(new NumberTypeConverter());
+		source = new BasicDBList();
+		source.add(1L);
+		source.add(2L);
+		source.add(3);
 	}
 
 	@After
 	public void tearDown() throws Exception {
 	}
 
+	private TypeConversionHints hints(Object... keyValues) {
+		TypeConversionHints ret = new TypeConversionHints();
+		ret.set(TypeConversionHints.HINT_GENERIC_TYPE_PARAMETERS, new Type[] { Integer.class });
+		for (int i=0; i<keyValues.length; i+=2) {
+			ret.set(keyValues[i].toString(), keyValues[i+1]);
+		}
+		return ret;
+	}
+
 	@Test
 	public void testCanConvert() {
-		//fail("Not yet implemented");
+		assertTrue(conv.canConvert(BasicDBList.class, List.class));
+		assertTrue(conv.canConvert(BasicDBList.class, HashSet.class));
+		assertFalse(conv.canConvert(BasicDBList.class, Integer[].class));
+	}
+
+	@Test
+	public void testConvert() throws Exception {
+		Collection<?> ret = conv.convert(source, JavaType.fromType(List.class), context, hints());
+		assertEquals(ArrayList.class, ret.getClass());
+		assertEquals(Arrays.asList(1, 2, 3), ret);
+
+		ret = conv.convert(source, JavaType.fromType(Collection.class), context, hints());
+		assertEquals(ArrayList.class, ret.getClass());
+
+		ret = conv.convert(source, JavaType.fromType(Set.class), context, hints());
+		assertEquals(new HashSet<Integer>(Arrays.asList(1, 2, 3)), ret);
+
+		ret = conv.convert(source, JavaType.fromType(LinkedList.class), context, hints());
+		assertEquals(LinkedList.class, ret.getClass());
 	}
 
 	@Test
-	public void testConvert() {
-		//fail("Not yet implemented");
+	public void testConvert_Hints() throws Exception {
+		Collection<?> ret = conv.convert(source, JavaType.fromType(List.class), context,
+			hints(MongoToCollectionTypeConverter.HINT_IMPLEMENTATION_CLASS, LinkedList.class.getName()));
+		assertEquals(LinkedList.class, ret.getClass());
+		assertEquals(Arrays.asList(1, 2, 3), ret);
+
+		ret = conv.convert(source, JavaType.fromType(List.class), context,
+			hints(MongoToCollectionTypeConverter.HINT_UNMODIFIABLE, "true"));
+		assertEquals(Arrays.asList(1, 2, 3), ret);
+		try {
+			ret.clear();
+			fail("should be unmodifiable");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
 	}
 
 }
@@ -2,28 +2,65 @@ package com.googlecode.mjorm.convert.converters;
 
 import static org.junit.Assert.*;
 
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.JavaType;
+import com.googlecode.mjorm.convert.TypeConversionHints;
+import com.mongodb.BasicDBObject;
+
 public class MongoToMapTypeConverterTest {
 
+	private MongoToMapTypeConverter conv;
+	private ConversionContext context;
+	private BasicDBObject source;
+
 	@Before
 	public void setUp() throws Exception {
+		conv = new MongoToMapTypeConverter();
+		context = new ConversionContext();
+		context.registerTypeConverter(new NumberTypeConverter());
+		source = new BasicDBObject("b", 2L).append("a", 1L);
 	}
 
 	@After
 	public void tearDown() throws Exception {
 	}
 
+	private TypeConversionHints hints() {
+		TypeConversionHints ret = new TypeConversionHints();
+		ret.set(TypeConversionHints.HINT_GENERIC_TYPE_PARAMETERS, new Type[] { String.class, Integer.class });
+		return ret;
+	}
+
 	@Test
 	public void testCanConvert() {
-		//fail("Not yet implemented");
+		assertTrue(conv.canConvert(BasicDBObject.class, Map.class));
+		assertFalse(conv.canConvert(BasicDBObject.class, String.class));
 	}
 
 	@Test
-	public void testConvert() {
-		//fail("Not yet implemented");
+	public void testConvert() throws Exception {
+		Map<String, Object> ret = conv.convert(source, JavaType.fromType(Map.class), context, hints());
+		assertEquals(HashMap.class, ret.getClass());
+		assertEquals(Integer.valueOf(1), ret.get("a"));
+		assertEquals(Integer.valueOf(2), ret.get("b"));
+
+		ret = conv.convert(source, JavaType.fromType(SortedMap.class), context, hints());
+		assertEquals("a", ((SortedMap<String, Object>)ret).firstKey());
+
+		TypeConversionHints hints = hints();
+		hints.set(MongoToMapTypeConverter.HINT_IMPLEMENTATION_CLASS, TreeMap.class);
+		ret = conv.convert(source, JavaType.fromType(Map.class), context, hints);
+		assertEquals(TreeMap.class, ret.getClass());
 	}
 
 }
@@ -0,0 +1,78 @@
+package com.googlecode.mjorm.convert.converters;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.googlecode.mjorm.convert.ConversionContext;
+import com.googlecode.mjorm.convert.JavaType;
+import com.mongodb.BasicDBList;
+
+public class PrimitiveArrayTypeConverterTest {
+
+	private ConversionContext context;
+
+	@Before
+	public void setUp()
+		throws Exception {
+		context = new ConversionContext();
+		context.registerTypeConverter(new NumberTypeConverter());
+		context.registerTypeConverter(new PrimitiveArrayToMongoTypeConverter());
+		context.registerTypeConverter(new ArrayToMongoTypeConverter());
+		context.registerTypeConverter(new CollectionToMongoTypeConverter());
+		context.registerTypeConverter(new MongoToPrimitiveArrayTypeConverter());
+		context.registerTypeConverter(new MongoToArrayTypeConverter());
+		context.registerTypeConverter(new MongoToCollectionTypeConverter());
+	}
+
+	@Test
+	public void testCanConvert() {
+		assertTrue(new PrimitiveArrayToMongoTypeConverter().canConvert(int[].class, BasicDBList.class));
+		assertFalse(new PrimitiveArrayToMongoTypeConverter().canConvert(Integer[].class, BasicDBList.class));
+		assertTrue(new MongoToPrimitiveArrayTypeConverter().canConvert(BasicDBList.class, double[].class));
+		assertFalse(new MongoToPrimitiveArrayTypeConverter().canConvert(BasicDBList.class, Double[].class));
+		assertFalse(new ArrayToMongoTypeConverter().canConvert(int[].class, BasicDBList.class));
+		assertFalse(new MongoToArrayTypeConverter().canConvert(BasicDBList.class, int[].class));
+	}
+
+	@Test
+	public void testConvert()
+		throws Exception {
+		BasicDBList list = context.convert(new int[] { 1, 2, 3 }, JavaType.fromType(BasicDBList.class));
+		assertEquals(Arrays.asList(1, 2, 3), list);
+
+		int[] ints = context.convert(list, JavaType.fromType(int[].class));
+		assertTrue(Arrays.equals(new int[] { 1, 2, 3 }, ints));
+
+		// other number types and nulls
+		list.add(4.5d);
+		list.add(null);
+		long[] longs = context.convert(list, JavaType.fromType(long[].class));
+		assertTrue(Arrays.equals(new long[] { 1, 2, 3, 4, 0 }, longs));
+		double[] doubles = context.convert(list, JavaType.fromType(double[].class));
+		assertTrue(Arrays.equals(new double[] { 1, 2, 3, 4.5d, 0 }, doubles));
+
+		list = context.convert(new boolean[] { true, false }, JavaType.fromType(BasicDBList.class));
+		boolean[] booleans = context.convert(list, JavaType.fromType(boolean[].class));
+		assertTrue(Arrays.equals(new boolean[] { true, false }, booleans));
+	}
+
+	@Test
+	public void testConvert_MixedElements()
+		throws Exception {
+		BasicDBList list = new BasicDBList();
+		list.add(1);
+		list.add(2L);
+		list.add(3.0d);
+		Long[] longs = context.convert(list, JavaType.fromType(Long[].class));
+		assertTrue(Arrays.equals(new Long[] { 1L, 2L, 3L }, longs));
+
+		List<?> back = context.convert(longs, JavaType.fromType(BasicDBList.class));
+		assertEquals(Arrays.asList(1L, 2L, 3L), back);
+	}
+
+}